@@ -3,7 +3,9 @@ package at.enactmentengine.serverless.main;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
 import at.enactmentengine.serverless.parser.YAMLParser;
-import at.uibk.dps.databases.MongoDBAccess;
+import at.enactmentengine.serverless.scheduler.ExecutionMode;
+import at.enactmentengine.serverless.transport.ResultCache;
+import at.enactmentengine.serverless.utils.ExecutionLog;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
 import com.google.gson.Gson;
@@ -38,6 +40,11 @@ class Executor {
      */
     private Map<String, Object> workflowInput;
 
+    /**
+     * The execution mode of the workflows ({@code null} to use the default mode of the engine).
+     */
+    private ExecutionMode executionMode;
+
     /**
      * Default constructor for executor.
      */
@@ -45,6 +52,16 @@ class Executor {
         workflowInput = new HashMap<>();
     }
 
+    /**
+     * Constructor for an executor running the workflows in the given mode.
+     *
+     * @param executionMode the execution mode (e.g. virtual threads).
+     */
+    public Executor(ExecutionMode executionMode) {
+        this();
+        this.executionMode = executionMode;
+    }
+
     /**
      * workflowResult
      *
@@ -95,6 +112,9 @@ class Executor {
 
         /* Create an executable workflow */
         ExecutableWorkflow ex = new YAMLParser().parseExecutableWorkflow(workflow, Language.YAML, executionId);
+        if (ex != null) {
+            ex.setExecutionMode(executionMode);
+        }
 
         /* Create variable to store workflow output */
         Map<String, Object> workflowOutput = null;
@@ -116,16 +136,19 @@ class Executor {
                 workflowOutput = ex.executeWorkflow(this.workflowInput);
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
-                MongoDBAccess.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start, false, -1, -1, start, Type.EXEC);
+                ExecutionLog.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start, false, -1, -1, start, Type.EXEC);
                 return null;
             }
 
             /* Measure end time of the workflow execution */
             long end = System.currentTimeMillis();
             LOGGER.info("Execution took {}ms.", (end - start));
-            boolean success = ex.getEndNode().getResult() != null;
+            if (ResultCache.get().getMisses() > 0) {
+                LOGGER.info("{}", ResultCache.get());
+            }
+            boolean success = ex.getResult() != null;
             Event event = success ? Event.WORKFLOW_END : Event.WORKFLOW_FAILED;
-            MongoDBAccess.saveLog(event, null, null, null, null, null, end - start, success, -1, -1, start, Type.EXEC);
+            ExecutionLog.saveLog(event, null, null, null, null, null, end - start, success, -1, -1, start, Type.EXEC);
         }
 
         return workflowOutput;
@@ -1,7 +1,10 @@
 package at.enactmentengine.serverless.main;
 
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.scheduler.ExecutionMode;
 import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.utils.ExecutionLog;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.cronjob.ManualUpdate;
 import at.uibk.dps.databases.MongoDBAccess;
@@ -53,7 +56,6 @@ public class Local {
         rootLogger.setLevel(Level.INFO);
         /* Workflow executor */
         Executor executor = new Executor();
-        Simulator simulator = new Simulator();
 
         /* Check for inputs and execute workflow */
         Map<String, Object> result = null;
@@ -61,15 +63,19 @@ public class Local {
             int length = args.length;
             List<String> parameterList = Arrays.asList(args);
             boolean simulate = parameterList.contains("--simulate");
+            boolean ignoreFT = false;
+            boolean noDistribution = false;
+            int replicas = 0;
+            long seed = System.nanoTime();
             if (simulate) {
                 length -= 1;
-                SimulationParameters.IGNORE_FT = parameterList.contains("--ignore-FT") || parameterList.contains("--ignore-ft");
-                if (SimulationParameters.IGNORE_FT) {
+                ignoreFT = parameterList.contains("--ignore-FT") || parameterList.contains("--ignore-ft");
+                if (ignoreFT) {
                     length -= 1;
                 }
 
-                SimulationParameters.NO_DISTRIBUTION = parameterList.contains("--no-distribution");
-                if (SimulationParameters.NO_DISTRIBUTION) {
+                noDistribution = parameterList.contains("--no-distribution");
+                if (noDistribution) {
                     length -= 1;
                 }
 
@@ -77,6 +83,17 @@ public class Local {
                 if (MetadataStore.FORCE_DATABASE_PROVIDER) {
                     length -= 1;
                 }
+
+                /* Simulate a batch of independent runs instead of a single one, reproducibly for a given seed */
+                for (String parameter : parameterList) {
+                    if (parameter.startsWith("--replicas=")) {
+                        replicas = Integer.parseInt(parameter.substring("--replicas=".length()));
+                        length -= 1;
+                    } else if (parameter.startsWith("--seed=")) {
+                        seed = Long.parseLong(parameter.substring("--seed=".length()));
+                        length -= 1;
+                    }
+                }
             }
             boolean export = parameterList.contains("--export");
             if (export) {
@@ -87,6 +104,7 @@ public class Local {
                 length -= 1;
                 logger.info("Updating database. This could take a moment...");
                 ManualUpdate.main(null);
+                MetadataStore.refreshed();
                 logger.info("Updating complete!");
             }
             boolean hideCredentials = parameterList.contains("--hide-credentials");
@@ -94,6 +112,15 @@ public class Local {
                 LoggerUtil.HIDE_CREDENTIALS = true;
                 length -= 1;
             }
+            boolean virtualThreads = parameterList.contains("--virtual-threads");
+            if (virtualThreads) {
+                EngineScheduler.MODE = ExecutionMode.VIRTUAL_THREADS;
+                length -= 1;
+            }
+
+            /* Workflow simulator */
+            Simulator simulator = simulate
+                    ? new Simulator(new SimulationParameters(ignoreFT, noDistribution, MetadataStore.get()), seed) : null;
 
             String workflowContent = null;
             String workflowInput = null;
@@ -107,7 +134,9 @@ public class Local {
             /* Measure start time of the workflow execution */
             long start = System.currentTimeMillis();
 
-            if (length > 1 && simulate) {
+            if (length > 0 && replicas > 0) {
+                simulator.simulateBatch(args[0], length > 1 ? args[1] : null, replicas);
+            } else if (length > 1 && simulate) {
                 MongoDBAccess.saveLogWorkflowStart(Type.SIM, workflowContent, workflowInput, start);
                 result = simulator.simulateWorkflow(args[0], args[1], -1, start);
             } else if (length > 0 && simulate) {
@@ -120,18 +149,21 @@ public class Local {
                 MongoDBAccess.saveLogWorkflowStart(Type.EXEC, workflowContent, null, start);
                 result = executor.executeWorkflow(args[0], null, -1, start);
             } else {
-                logger.error("Usage: java -jar enactment-engine-all.jar path/to/workflow.yaml [path/to/input.json] [--simulate] [--ignore-FT] [--update] [--export] [--hide-credentials]");
+                logger.error("Usage: java -jar enactment-engine-all.jar path/to/workflow.yaml [path/to/input.json] [--simulate] [--ignore-FT] [--replicas=N] [--seed=S] [--update] [--export] [--hide-credentials] [--virtual-threads]");
             }
             if (!simulate) {
                 logger.info("Result: {}", result);
             }
             if (export) {
+                /* Write the entries still in the execution log before they are exported */
+                ExecutionLog.flush();
                 exportLogsToFile();
             }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
             try {
+                ExecutionLog.flush();
                 MongoDBAccess.addAllEntries();
                 if (close) {
                     MongoDBAccess.close();
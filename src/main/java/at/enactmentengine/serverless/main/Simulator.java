@@ -1,10 +1,16 @@
 package at.enactmentengine.serverless.main;
 
-import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
+import at.enactmentengine.serverless.parser.WorkflowPlan;
+import at.enactmentengine.serverless.parser.WorkflowPlanCache;
 import at.enactmentengine.serverless.parser.YAMLParser;
-import at.uibk.dps.databases.MongoDBAccess;
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
+import at.enactmentengine.serverless.simulation.SimulationContext;
+import at.enactmentengine.serverless.simulation.SimulationParameters;
+import at.enactmentengine.serverless.simulation.SimulationSummary;
+import at.enactmentengine.serverless.utils.ExecutionLog;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
 import com.google.gson.Gson;
@@ -16,9 +22,12 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Main class for the simulation part of the enactment engine.
@@ -37,10 +46,27 @@ public class Simulator {
      */
     private Map<String, Object> workflowInput;
 
+    /**
+     * The parameters of the simulations.
+     */
+    private final SimulationParameters parameters;
+
+    /**
+     * The seed from which the random numbers of the simulations are derived.
+     */
+    private final long seed;
+
     /**
      * Default constructor for Simulator.
+     *
+     * @param parameters the parameters of the simulations.
+     * @param seed       the seed from which the random numbers of the simulations are derived (simulating with the
+     *                   same seed and parameters reproduces the same results).
      */
-    public Simulator() { }
+    public Simulator(SimulationParameters parameters, long seed) {
+        this.parameters = parameters;
+        this.seed = seed;
+    }
 
     /**
      * workflowResult
@@ -109,24 +135,138 @@ public class Simulator {
             }
 
             /* Execute the workflow */
+            SimulationContext simulation = new SimulationContext(start, seed, true, parameters);
+            LOGGER.info("Simulating workflow with seed {}.", seed);
             try {
-                workflowOutput = ex.simulateWorkflow(this.workflowInput);
+                workflowOutput = ex.simulateWorkflow(this.workflowInput, simulation);
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
-                MongoDBAccess.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start,
-                        SimulationParameters.workflowCost, false, -1, -1, start, Type.SIM);
+                ExecutionLog.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, simulation.getMakespan(),
+                        simulation.getCost(), false, -1, -1, start, Type.SIM);
                 return null;
             }
 
-            long simWorkflowDuration = MongoDBAccess.getLastEndDateOverall() - start;
-            boolean success = ex.getEndNode().getResult() != null;
+            long simWorkflowDuration = simulation.getMakespan();
+            boolean success = ex.getResult() != null;
             Event event = success ? Event.WORKFLOW_END : Event.WORKFLOW_FAILED;
 
-            LOGGER.info("Simulation of workflow takes {}ms with a cost of {}.", simWorkflowDuration, SimulationParameters.workflowCost);
-            MongoDBAccess.saveLog(event, null, null, null, null, null, simWorkflowDuration, SimulationParameters.workflowCost, success, -1, -1, start, Type.SIM);
+            LOGGER.info("Simulation of workflow takes {}ms with a cost of {}.", simWorkflowDuration, simulation.getCost());
+            ExecutionLog.saveLog(event, null, null, null, null, null, simWorkflowDuration, simulation.getCost(), success, -1, -1, start, Type.SIM);
         }
 
         return workflowOutput;
     }
 
+    /**
+     * Simulates the given workflow several times.
+     *
+     * @param workflow      path to workflow yaml file which should be simulated.
+     * @param workflowInput path to input json file which should be used as workflow input.
+     * @param replicas      the number of independent simulation runs.
+     *
+     * @return the summary of the runs ({@code null} if the workflow could not be read).
+     */
+    SimulationSummary simulateBatch(String workflow, String workflowInput, int replicas) {
+        try {
+            return simulateBatch(
+                    workflow == null ? null : FileUtils.readFileToByteArray(new File(workflow)),
+                    workflowInput == null ? null : FileUtils.readFileToByteArray(new File(workflowInput)),
+                    replicas);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Simulates the given workflow several times. The runs (replicas) are independent of each other and are simulated
+     * in parallel on the engine scheduler, each with its own simulation state and a seed derived from the seed of the
+     * simulator, so the summary of a batch can be reproduced. The workflow is parsed only once for all replicas. The
+     * events of the replicas are not written to the logs, failed replicas are logged and counted in the summary.
+     *
+     * @param workflow      byte[] of the workflow yaml file which should be simulated.
+     * @param workflowInput byte[] of the input json file which should be used as workflow input.
+     * @param replicas      the number of independent simulation runs.
+     *
+     * @return the summary of the runs ({@code null} if the workflow could not be read).
+     */
+    SimulationSummary simulateBatch(byte[] workflow, byte[] workflowInput, int replicas) {
+        if (workflow == null) {
+            LOGGER.error("Please specify a workflow file");
+            return null;
+        }
+
+        /* Parse the workflow once, every replica gets its own instance of the plan */
+        WorkflowPlan plan;
+        try {
+            plan = WorkflowPlanCache.get().getPlan(workflow, Language.YAML);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+        if (plan == null) {
+            LOGGER.error("The workflow file does not contain a workflow");
+            return null;
+        }
+
+        /* Decode json workflow input */
+        Map<String, Object> input = null;
+        if (workflowInput != null) {
+            String decodedJsonInput = new String(workflowInput, StandardCharsets.UTF_8);
+            input = new Gson().fromJson(decodedJsonInput, new TypeToken<HashMap<String, Object>>() {
+            }.getType());
+        }
+        final Map<String, Object> replicaInput = input;
+
+        /* Stream the replicas through the engine, failed replicas are kept as null */
+        long start = System.currentTimeMillis();
+        SimulationContext[] simulations = new SimulationContext[replicas];
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler("simulation of " + plan.getWorkflowName());
+        Future<Void> done = scheduler.stream(replicas, Runtime.getRuntime().availableProcessors(), i -> () -> {
+            long replicaSeed = SimulationContext.seed(seed, i);
+            SimulationContext simulation = new SimulationContext(start, replicaSeed, false, parameters);
+            try {
+                if (plan.instantiate(-1, true).simulateWorkflow(replicaInput, simulation) != null) {
+                    simulations[i] = simulation;
+                } else {
+                    LOGGER.warn("Replica {} with seed {} did not produce a result.", i, replicaSeed);
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.warn("Replica {} with seed {} failed: {}", i, replicaSeed, e.getMessage(), e);
+            }
+            return null;
+        });
+        try {
+            scheduler.await(done);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.cancel();
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.error(e.getCause().getMessage(), e.getCause());
+            return null;
+        }
+
+        /* Collect the samples of the successful replicas */
+        double[] makespans = new double[replicas];
+        double[] costs = new double[replicas];
+        int successful = 0;
+        for (SimulationContext simulation : simulations) {
+            if (simulation != null) {
+                makespans[successful] = simulation.getMakespan();
+                costs[successful] = simulation.getCost();
+                successful++;
+            }
+        }
+
+        SimulationSummary summary = new SimulationSummary(replicas, Arrays.copyOf(makespans, successful),
+                Arrays.copyOf(costs, successful));
+        if (summary.getFailures() > 0) {
+            LOGGER.warn("{} of {} replicas failed and are not part of the summary.", summary.getFailures(), replicas);
+        }
+        LOGGER.info("Simulation of {} with seed {}", summary, seed);
+        return summary;
+    }
 }
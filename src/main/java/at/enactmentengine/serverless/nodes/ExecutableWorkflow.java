@@ -2,6 +2,12 @@ package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
 import at.enactmentengine.serverless.object.ListPair;
+import at.enactmentengine.serverless.payload.PayloadStore;
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.scheduler.ExecutionMode;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
+import at.enactmentengine.serverless.simulation.SimulationContext;
+import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,8 +16,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
@@ -27,29 +31,24 @@ public class ExecutableWorkflow {
     private static final Logger logger = LoggerFactory.getLogger(ExecutableWorkflow.class);
 
     /**
-     * Start node of the executable workflow.
+     * The compiled node graph of the workflow (shared by all executions of the workflow).
      */
-    private Node startNode;
+    private final WorkflowGraph graph;
 
     /**
-     * End node of the executable workflow.
+     * The execution id of the workflow (needed to log the execution).
      */
-    private Node endNode;
+    private final int executionId;
 
     /**
-     * The name of the workflow.
+     * The frame holding the state of the current (or last) run of the workflow.
      */
-    private String workflowName;
+    private volatile ExecutionFrame frame;
 
     /**
-     * The expected workflow input (written in the .yaml file).
+     * The execution mode of the workflow ({@code null} to use the default mode of the engine).
      */
-    private List<DataIns> definedInput;
-
-    /**
-     * Executor service to run the workflow.
-     */
-    private ExecutorService executorService;
+    private ExecutionMode executionMode;
 
     /**
      * Default constructor to create an executable workflow.
@@ -59,11 +58,18 @@ public class ExecutableWorkflow {
      * @param definedInput expected workflow inputs.
      */
     public ExecutableWorkflow(String workflowName, ListPair<Node, Node> workflow, List<DataIns> definedInput) {
-        startNode = workflow.getStart();
-        endNode = workflow.getEnd();
-        this.workflowName = workflowName;
-        this.definedInput = definedInput;
-        executorService = Executors.newSingleThreadExecutor();
+        this(new WorkflowGraph(workflowName, workflow, definedInput), -1);
+    }
+
+    /**
+     * Constructor to create an executable workflow from an already compiled graph.
+     *
+     * @param graph       the compiled node graph of the workflow.
+     * @param executionId the unique identifier of the execution.
+     */
+    public ExecutableWorkflow(WorkflowGraph graph, int executionId) {
+        this.graph = graph;
+        this.executionId = executionId;
     }
 
     /**
@@ -83,57 +89,32 @@ public class ExecutableWorkflow {
         final Map<String, Object> presentInput = new HashMap<>();
 
         /* Iterate over all expected inputs */
-        if (definedInput != null) {
-            for (DataIns data : definedInput) {
+        if (graph.getDefinedInput() != null) {
+            String[] inputKeys = graph.getInputKeys();
+            for (int i = 0; i < inputKeys.length; i++) {
+                DataIns data = graph.getDefinedInput().get(i);
 
                 /* Check if the actual input contains the expected input */
                 if (input != null && input.containsKey(data.getSource())) {
 
                     /* Add the actual input to the list of actually present inputs */
-                    presentInput.put(workflowName + "/" + data.getName(), input.get(data.getSource()));
+                    presentInput.put(inputKeys[i], input.get(data.getSource()));
                 } else {
                     /* The expected input is not present */
-                    throw new MissingInputDataException(workflowName + " needs more input data: " + data.getSource());
+                    throw new MissingInputDataException(graph.getWorkflowName() + " needs more input data: " + data.getSource());
                 }
             }
         }
 
         /* Start workflow execution */
-        logger.info("Starting execution of workflow: \"{}\" [at {}ms]", workflowName, System.currentTimeMillis());
+        logger.info("Starting execution of workflow: \"{}\" [at {}ms]", graph.getWorkflowName(), System.currentTimeMillis());
 
-        /* Pass the present inputs to the start node */
-        startNode.passResult(presentInput);
-
-        /* Run the start node */
-        Future<Boolean> future = executorService.submit(startNode);
-
-        try {
-
-            /* Wait if needed for the node */
-            if (Boolean.TRUE.equals(future.get())) {
-                /* Check if the result is valid */
-                if (endNode.getResult() != null) {
-                    logger.info("Workflow completed: {}", endNode.getResult());
-                } else {
-                    logger.error("Workflow Failed! End result is Null");
-                }
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            /* Cancel task and shut down executor on failure */
-            future.cancel(true);
-            executorService.shutdownNow();
-            throw e;
-        }
-
-        /* Terminate executor */
-        executorService.shutdown();
-
-        /* Return result of the last node in the workflow (workflow result) */
-        return endNode.getResult();
+        /* Run the workflow and return the result of the last node */
+        return run(presentInput, null);
     }
 
     /**
-     * Starts the execution of the workflow.
+     * Starts the simulation of the workflow with the default parameters.
      *
      * @param input values for the first workflow element (actual values).
      *
@@ -144,95 +125,154 @@ public class ExecutableWorkflow {
      * @throws InterruptedException      on interruption.
      */
     public Map<String, Object> simulateWorkflow(Map<String, Object> input) throws MissingInputDataException, ExecutionException, InterruptedException {
+        return simulateWorkflow(input, new SimulationContext(System.currentTimeMillis(), SimulationParameters.defaults()));
+    }
+
+    /**
+     * Starts the simulation of the workflow within the given simulation run.
+     *
+     * @param input      values for the first workflow element (actual values).
+     * @param simulation the state of the simulation run.
+     *
+     * @return result of the workflow.
+     *
+     * @throws MissingInputDataException on missing input data.
+     * @throws ExecutionException        on execution failure.
+     * @throws InterruptedException      on interruption.
+     */
+    public Map<String, Object> simulateWorkflow(Map<String, Object> input, SimulationContext simulation)
+            throws MissingInputDataException, ExecutionException, InterruptedException {
 
         /* Create a variable to handle the present input */
         final Map<String, Object> presentInput = new HashMap<>();
 
         /* Iterate over all expected inputs */
-        if (definedInput != null) {
-            for (DataIns data : definedInput) {
+        if (graph.getDefinedInput() != null) {
+            String[] inputKeys = graph.getInputKeys();
+            for (int i = 0; i < inputKeys.length; i++) {
+                DataIns data = graph.getDefinedInput().get(i);
 
                 /* Check if the actual input contains the expected input */
                 if (input != null && input.containsKey(data.getSource())) {
 
                     /* Add the actual input to the list of actually present inputs */
-                    presentInput.put(workflowName + "/" + data.getName(), input.get(data.getSource()));
+                    presentInput.put(inputKeys[i], input.get(data.getSource()));
                 } else {
                     /* The expected input is not present */
-                    throw new MissingInputDataException(workflowName + " needs more input data: " + data.getSource());
+                    throw new MissingInputDataException(graph.getWorkflowName() + " needs more input data: " + data.getSource());
                 }
             }
         }
 
         /* Start workflow execution */
-        logger.info("Starting simulation of workflow: \"{}\" [at {}ms]", workflowName, System.currentTimeMillis());
+        logger.info("Starting simulation of workflow: \"{}\" [at {}ms]", graph.getWorkflowName(), System.currentTimeMillis());
+
+        /* Run the workflow and return the result of the last node */
+        return run(presentInput, simulation);
+    }
+
+    /**
+     * Runs the workflow on the engine-wide scheduler and waits for its completion.
+     *
+     * @param presentInput the actual inputs of the workflow.
+     * @param simulation   the state of the simulation run ({@code null} if the workflow is executed).
+     *
+     * @return result of the workflow.
+     *
+     * @throws ExecutionException   on execution failure.
+     * @throws InterruptedException on interruption.
+     */
+    private Map<String, Object> run(Map<String, Object> presentInput, SimulationContext simulation) throws ExecutionException, InterruptedException {
+
+        /* Create the state of this run */
+        Node startNode = graph.getStartNode();
+        ExecutionFrame runFrame = new ExecutionFrame(graph.getSize(), executionId, simulation,
+                EngineScheduler.CRITICAL_PATH ? graph.rankNodes() : null);
+        frame = runFrame;
 
         /* Pass the present inputs to the start node */
-        startNode.passResult(presentInput);
+        startNode.passResult(runFrame, presentInput);
+        if (simulation != null) {
+            /* The simulated workflow starts at the start of its virtual clock */
+            startNode.setStartTime(runFrame, simulation.getStart());
+        }
 
         /* Run the start node */
-        Future<Boolean> future = executorService.submit(startNode);
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler(graph.getWorkflowName(),
+                executionMode != null ? executionMode : EngineScheduler.MODE);
+        Future<Boolean> future = scheduler.submit(() -> startNode.call(runFrame));
 
         try {
 
-            /* Wait if needed for the node */
+            /* Wait until all nodes of the workflow are finished */
+            scheduler.awaitCompletion();
             if (Boolean.TRUE.equals(future.get())) {
-
                 /* Check if the result is valid */
-                if (endNode.getResult() != null) {
-                    logger.info("Workflow completed: {}", endNode.getResult());
+                if (getResult() != null) {
+                    logger.info("Workflow completed: {}", getResult());
                 } else {
                     logger.error("Workflow Failed! End result is Null");
                 }
             }
         } catch (InterruptedException | ExecutionException e) {
-
-            /* Cancel task and shut down executor on failure */
+            /* Cancel the remaining tasks of the workflow on failure */
             future.cancel(true);
-            executorService.shutdownNow();
+            scheduler.cancel();
             throw e;
         }
 
-        /* Terminate executor */
-        executorService.shutdown();
-
         /* Return result of the last node in the workflow (workflow result) */
-        return endNode.getResult();
+        return getResult();
+    }
+
+    /**
+     * Get the result of the last run of the workflow.
+     *
+     * @return result of the last node in the workflow ({@code null} if the workflow was not run or failed).
+     */
+    public Map<String, Object> getResult() {
+        ExecutionFrame runFrame = frame;
+        Map<String, Object> result = runFrame != null ? graph.getEndNode().getResult(runFrame) : null;
+        if (result != null) {
+            /* Values moved out of memory are part of the workflow result again */
+            PayloadStore.resolveAll(result);
+        }
+        return result;
     }
 
     /**
      * Getter ans Setter
      */
 
-    public Node getStartNode() {
-        return startNode;
+    public WorkflowGraph getGraph() {
+        return graph;
     }
 
-    public void setStartNode(Node startNode) {
-        this.startNode = startNode;
+    public int getExecutionId() {
+        return executionId;
     }
 
-    public Node getEndNode() {
-        return endNode;
+    public Node getStartNode() {
+        return graph.getStartNode();
     }
 
-    public void setEndNode(Node endNode) {
-        this.endNode = endNode;
+    public Node getEndNode() {
+        return graph.getEndNode();
     }
 
     public String getWorkflowName() {
-        return workflowName;
+        return graph.getWorkflowName();
     }
 
-    public void setWorkflowName(String workflowName) {
-        this.workflowName = workflowName;
+    public List<DataIns> getDefinedInput() {
+        return graph.getDefinedInput();
     }
 
-    public List<DataIns> getDefinedInput() {
-        return definedInput;
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
     }
 
-    public void setDefinedInput(List<DataIns> definedInput) {
-        this.definedInput = definedInput;
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
     }
 }
@@ -0,0 +1,221 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.simulation.SimulationContext;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The per-execution state of a workflow. The nodes of a workflow are immutable and shared by all executions, the
+ * values they produce are stored in a frame, indexed by the slot of the node. Every iteration of a parallelFor loop
+ * gets its own frame for the nodes in the loop body, while the nodes outside of the loop are resolved in the parent
+ * frames. States are created when a node is reached for the first time.
+ */
+public class ExecutionFrame {
+
+    /**
+     * The frame of the enclosing scope ({@code null} for the frame of the workflow).
+     */
+    private final ExecutionFrame parent;
+
+    /**
+     * The parallelFor loop whose body is stored in this frame ({@code null} for the frame of the workflow).
+     */
+    private final ParallelForStartNode loop;
+
+    /**
+     * The number of the iteration within the parallelFor loop.
+     */
+    private final int loopCounter;
+
+    /**
+     * The end of the parallelFor loop.
+     */
+    private final int maxLoopCounter;
+
+    /**
+     * The concurrency limit of the parallelFor loop.
+     */
+    private final int concurrencyLimit;
+
+    /**
+     * The execution id of the workflow.
+     */
+    private final int executionId;
+
+    /**
+     * The state of the simulation run ({@code null} if the workflow is executed).
+     */
+    private final SimulationContext simulation;
+
+    /**
+     * The seed of the random numbers drawn by the simulated nodes in the scope of this frame.
+     */
+    private final long seed;
+
+    /**
+     * The ranks of the nodes within the execution ({@code null} if the nodes are not ranked).
+     */
+    private final Map<Node, Long> ranks;
+
+    /**
+     * The states of the nodes in the scope of this frame.
+     */
+    private final AtomicReferenceArray<NodeState> states;
+
+    /**
+     * Constructor for the frame of a workflow execution.
+     *
+     * @param size        the number of nodes outside of parallelFor loops.
+     * @param executionId the unique identifier of the execution.
+     */
+    public ExecutionFrame(int size, int executionId) {
+        this(size, executionId, null);
+    }
+
+    /**
+     * Constructor for the frame of a workflow simulation.
+     *
+     * @param size        the number of nodes outside of parallelFor loops.
+     * @param executionId the unique identifier of the execution.
+     * @param simulation  the state of the simulation run.
+     */
+    public ExecutionFrame(int size, int executionId, SimulationContext simulation) {
+        this(size, executionId, simulation, null);
+    }
+
+    /**
+     * Constructor for the frame of a workflow execution with ranked nodes.
+     *
+     * @param size        the number of nodes outside of parallelFor loops.
+     * @param executionId the unique identifier of the execution.
+     * @param simulation  the state of the simulation run ({@code null} if the workflow is executed).
+     * @param ranks       the ranks of the nodes ({@code null} if the nodes are not ranked).
+     */
+    public ExecutionFrame(int size, int executionId, SimulationContext simulation, Map<Node, Long> ranks) {
+        this(null, null, -1, -1, -1, executionId, simulation, simulation != null ? simulation.getSeed() : 0, ranks,
+                size);
+    }
+
+    private ExecutionFrame(ExecutionFrame parent, ParallelForStartNode loop, int loopCounter, int maxLoopCounter,
+                           int concurrencyLimit, int executionId, SimulationContext simulation, long seed,
+                           Map<Node, Long> ranks, int size) {
+        this.parent = parent;
+        this.loop = loop;
+        this.loopCounter = loopCounter;
+        this.maxLoopCounter = maxLoopCounter;
+        this.concurrencyLimit = concurrencyLimit;
+        this.executionId = executionId;
+        this.simulation = simulation;
+        this.seed = seed;
+        this.ranks = ranks;
+        this.states = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Creates the frame for a single iteration of a parallelFor loop.
+     *
+     * @param loop             the start node of the loop.
+     * @param loopCounter      the number of the iteration.
+     * @param maxLoopCounter   the end of the loop.
+     * @param concurrencyLimit the concurrency limit of the loop.
+     *
+     * @return the frame of the iteration.
+     */
+    ExecutionFrame newIteration(ParallelForStartNode loop, int loopCounter, int maxLoopCounter, int concurrencyLimit) {
+        ExecutionFrame scope = forNode(loop);
+        long iterationSeed = SimulationContext.seed(SimulationContext.seed(scope.seed, loop.getSlot()), loopCounter);
+        return new ExecutionFrame(scope, loop, loopCounter, maxLoopCounter, concurrencyLimit, executionId,
+                simulation, iterationSeed, ranks, loop.getBodySize());
+    }
+
+    /**
+     * Returns the frame holding the state of the given node, which is this frame or one of its parents.
+     *
+     * @param node the node to look for.
+     *
+     * @return the frame of the node.
+     */
+    public ExecutionFrame forNode(Node node) {
+        ExecutionFrame frame = this;
+        while (frame.loop != node.getLoop()) {
+            frame = frame.parent;
+            if (frame == null) {
+                throw new IllegalStateException("Node " + node.getName() + " is not part of the executed scope.");
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the frame of the iteration of the given loop, which is this frame or one of its parents.
+     *
+     * @param loop the start node of the loop.
+     *
+     * @return the frame of the iteration ({@code null} if this frame is not within an iteration of the loop).
+     */
+    ExecutionFrame iterationOf(ParallelForStartNode loop) {
+        ExecutionFrame frame = this;
+        while (frame != null && frame.loop != loop) {
+            frame = frame.parent;
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the state of the given node and creates it if the node was not reached before.
+     *
+     * @param node the node.
+     *
+     * @return the state of the node.
+     */
+    NodeState getState(Node node) {
+        ExecutionFrame frame = forNode(node);
+        NodeState state = frame.states.get(node.getSlot());
+        if (state == null) {
+            state = node.newState();
+            if (!frame.states.compareAndSet(node.getSlot(), null, state)) {
+                state = frame.states.get(node.getSlot());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Returns the rank of the given node within the execution.
+     *
+     * @param node the node.
+     *
+     * @return the rank of the node (0 if the nodes are not ranked).
+     */
+    long getRank(Node node) {
+        Long rank = ranks != null ? ranks.get(node) : null;
+        return rank != null ? rank : 0;
+    }
+
+    /** Getter */
+
+    public int getLoopCounter() {
+        return loopCounter;
+    }
+
+    public int getMaxLoopCounter() {
+        return maxLoopCounter;
+    }
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public int getExecutionId() {
+        return executionId;
+    }
+
+    public SimulationContext getSimulation() {
+        return simulation;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
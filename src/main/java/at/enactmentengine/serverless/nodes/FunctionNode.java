@@ -1,14 +1,24 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.object.Credentials;
+import at.enactmentengine.serverless.object.DataType;
+import at.enactmentengine.serverless.object.FunctionResult;
 import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.payload.PayloadStore;
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
 import at.enactmentengine.serverless.simulation.ServiceSimulationModel;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.transport.HedgedInvocation;
+import at.enactmentengine.serverless.transport.InvocationTransport;
+import at.enactmentengine.serverless.transport.ResultCache;
+import at.enactmentengine.serverless.utils.ExecutionLog;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.*;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.exception.InvokationFailureException;
 import at.uibk.dps.exception.LatestFinishingTimeException;
 import at.uibk.dps.exception.LatestStartingTimeException;
@@ -16,15 +26,16 @@ import at.uibk.dps.exception.MaxRunningTimeException;
 import at.uibk.dps.function.Function;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
-import com.google.gson.JsonObject;
-import jFaaS.Gateway;
 import jFaaS.utils.PairResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Class which handles the execution of a function.
@@ -46,19 +57,11 @@ public class FunctionNode extends Node {
     /**
      * The number of executed functions.
      */
-    private static int counter = 0;
-    /**
-     * The invoker for the cloud functions.
-     */
-    private static Gateway gateway = new Gateway(Utils.PATH_TO_CREDENTIALS);
+    private static final AtomicInteger counter = new AtomicInteger();
     /**
      * The deployment of the Atomic Function.
      */
     private final String deployment;
-    /**
-     * The execution id of the workflow (needed to log the execution).
-     */
-    private int executionId;
     /**
      * The constraints for the function node.
      */
@@ -76,14 +79,25 @@ public class FunctionNode extends Node {
      */
     private List<DataIns> input;
     /**
-     * The result of the function node.
+     * The keys of the inputs passed to the output (resolved when the workflow is compiled).
      */
-    private Map<String, Object> result;
-
+    private String[] inputKeys;
+    /**
+     * The keys of the outputs (resolved when the workflow is compiled).
+     */
+    private String[] outputKeys;
+    /**
+     * The names of the outputs, the only values read from the function result.
+     */
+    private Set<String> outputNames;
+    /**
+     * The time to live of cached results in milliseconds (-1 if the results of the function are not cached).
+     */
+    private final long cacheTtl;
     /**
-     * Flag if function was successful or not.
+     * The latency percentile after which a hedged request is sent (-1 if the function is not hedged).
      */
-    private boolean success;
+    private double hedgePercentile = -1;
 
     /**
      * Constructor for a function node.
@@ -95,37 +109,136 @@ public class FunctionNode extends Node {
      * @param constraints of the base function.
      * @param input       to the base function.
      * @param output      of the base function.
-     * @param executionId for the logging of the execution.
      */
     public FunctionNode(String name, String type, String deployment, List<PropertyConstraint> properties,
-                        List<PropertyConstraint> constraints, List<DataIns> input, List<DataOutsAtomic> output, int executionId) {
+                        List<PropertyConstraint> constraints, List<DataIns> input, List<DataOutsAtomic> output) {
         super(name, type);
         this.deployment = deployment;
         this.output = output;
         this.properties = properties;
         this.constraints = constraints;
         this.input = input;
-        this.executionId = executionId;
         if (output == null) {
             this.output = new ArrayList<>();
         }
+        this.cacheTtl = parseCacheTtl(properties);
+        parseHedging(constraints);
+    }
+
+    /**
+     * Reads the constraint enabling hedged requests. Its value is the latency percentile (e.g. 95) after which the
+     * hedged request is sent. The request goes to the first function of the first alternative plan if there is one.
+     * Functions with constraints are not hedged, since only the fault tolerance engine enforces them.
+     *
+     * @param constraints of the base function.
+     */
+    private void parseHedging(List<PropertyConstraint> constraints) {
+        PropertyConstraint hedge = constraints != null ? Utils.getPropertyConstraintByName(constraints, "FT-Hedge") : null;
+        if (hedge == null || hedge.getValue() == null) {
+            return;
+        }
+        for (PropertyConstraint constraint : constraints) {
+            if (constraint.getName().startsWith("C-")) {
+                logger.warn("Function {} has constraint {}, no hedged requests are sent.", name, constraint.getName());
+                return;
+            }
+        }
+        try {
+            double percentile = Double.parseDouble(hedge.getValue());
+            hedgePercentile = percentile > 1 ? percentile / 100 : percentile;
+        } catch (NumberFormatException e) {
+            logger.warn("Could not parse hedging percentile {} of {}.", hedge.getValue(), name);
+        }
+    }
+
+    /**
+     * Returns the function hedged requests are sent to, the first function of the first alternative plan.
+     *
+     * @param functionToInvoke the base function with its parsed fault tolerance settings.
+     *
+     * @return the alternative function or {@code null} to send hedged requests to the base function.
+     */
+    private static Function getHedgeTarget(Function functionToInvoke) {
+        if (functionToInvoke == null || functionToInvoke.getFTSettings() == null
+                || functionToInvoke.getFTSettings().getAltStrategy() == null) {
+            return null;
+        }
+        for (List<Function> alternativePlan : functionToInvoke.getFTSettings().getAltStrategy()) {
+            if (!alternativePlan.isEmpty()) {
+                return alternativePlan.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the property marking the function as deterministic. The value is either a boolean or the time to live of
+     * the cached results in seconds.
+     *
+     * @param properties of the base function.
+     *
+     * @return the time to live in milliseconds or -1 if the results should not be cached.
+     */
+    private static long parseCacheTtl(List<PropertyConstraint> properties) {
+        PropertyConstraint cacheable = properties != null ? Utils.getPropertyConstraintByName(properties, "cacheable") : null;
+        if (cacheable == null || cacheable.getValue() == null || "false".equalsIgnoreCase(cacheable.getValue())) {
+            return -1;
+        } else if ("true".equalsIgnoreCase(cacheable.getValue())) {
+            return ResultCache.DEFAULT_TTL;
+        }
+        try {
+            return (long) (Double.parseDouble(cacheable.getValue()) * 1000);
+        } catch (NumberFormatException e) {
+            logger.warn("Could not parse cacheable property {}, using the default time to live.", cacheable.getValue());
+            return ResultCache.DEFAULT_TTL;
+        }
     }
 
     /**
-     * Checks the inputs, invokes function and passes results to children.
+     * Checks whether hedged requests are sent for the function.
      *
+     * @return true if the function is hedged, false otherwise.
+     */
+    boolean isHedged() {
+        return hedgePercentile >= 0;
+    }
+
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        inputKeys = portKeys(name, input, DataIns::getName);
+        outputKeys = portKeys(name, output, DataOutsAtomic::getName);
+        outputNames = new HashSet<>();
+        for (DataOutsAtomic data : output) {
+            outputNames.add(data.getName());
+        }
+    }
+
+    /**
+     * Estimates the duration of the function by the average round trip time of its deployment.
+     */
+    @Override
+    long estimateDuration() {
+        return estimateFunctionDuration(properties);
+    }
+
+    /**
+     * Checks the inputs, invokes function and passes results to children. With asynchronous invocations, the method
+     * returns after issuing the invocation and the children are executed on completion.
+     *
+     * @param frame the frame of the execution.
      * @return boolean representing success of the node execution.
      *
      * @throws Exception on failure.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        NodeState state = getState(frame);
 
         /* The identifier for the current function */
-        int id;
-        synchronized (this) {
-            id = counter++;
-        }
+        int id = counter.getAndIncrement();
 
         /* Read the resource link of the base function */
         String resourceLink = Utils.getResourceLink(properties, this);
@@ -143,10 +256,11 @@ public class FunctionNode extends Node {
             if (input != null) {
 
                 /* Iterate over all specified inputs */
-                for (DataIns data : input) {
+                for (int i = 0; i < inputKeys.length; i++) {
+                    DataIns data = input.get(i);
 
                     /* Check if actual data contains the specified source */
-                    if (dataValues.containsKey(data.getSource())) {
+                    if (state.dataValues.containsKey(data.getSource())) {
 
 
                         boolean replicate = false;
@@ -161,10 +275,10 @@ public class FunctionNode extends Node {
 
                         /* Check if the element should be passed to the output */
                         if (passing || replicate) {
-                            functionOutputs.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                            functionOutputs.put(inputKeys[i], state.dataValues.get(data.getSource()));
                         }
                         if (!passing) {
-                            actualFunctionInputs.put(data.getName(), dataValues.get(data.getSource()));
+                            actualFunctionInputs.put(data.getName(), state.dataValues.get(data.getSource()));
                         }
                     } else {
                         // constant value in the workflow
@@ -192,33 +306,74 @@ public class FunctionNode extends Node {
         /* Log the function input */
         logFunctionInput(actualFunctionInputs, id);
 
+        /* Read values moved out of memory, the function needs the actual values */
+        try {
+            PayloadStore.resolveAll(actualFunctionInputs);
+        } catch (UncheckedIOException e) {
+            logger.error(e.getMessage(), e);
+            return false;
+        }
+
         /* Parse function with optional constraints and properties */
-        Function functionToInvoke = Utils.parseFTConstraints(resourceLink, actualFunctionInputs, constraints, type, name, loopCounter);
+        Function functionToInvoke = Utils.parseFTConstraints(resourceLink, actualFunctionInputs, constraints, type, name, getLoopCounter(frame));
         if (functionToInvoke != null) {
             functionToInvoke.setDeployment(deployment);
         }
 
-        /* Invoke function and measure duration */
-        long start = System.currentTimeMillis();
-        PairResult<String, Long> pairResult = invokeFunction(functionToInvoke, resourceLink, actualFunctionInputs, functionOutputs);
-        long end = System.currentTimeMillis();
+        /*
+         * Invoke the function without blocking the current thread and continue with the children on completion. The
+         * invocation keeps a slot of the workflow budget until it is finished.
+         */
+        if (EngineScheduler.ASYNC_INVOCATIONS) {
+            WorkflowScheduler.current().startAsync(() -> EngineScheduler.get().invokeAsync(
+                    () -> invokeFunction(frame, functionToInvoke, resourceLink, actualFunctionInputs, functionOutputs)),
+                    pairResult -> completeInvocation(frame, pairResult, functionOutputs, id), getRank(frame));
+            return true;
+        }
+
+        /* Invoke function and wait for the result */
+        PairResult<String, Long> pairResult = invokeFunction(frame, functionToInvoke, resourceLink, actualFunctionInputs, functionOutputs);
+        completeInvocation(frame, pairResult, functionOutputs, id);
+
+        return true;
+    }
+
+    /**
+     * Logs the result of the function invocation, passes the output to the children and schedules them.
+     *
+     * @param frame           the frame of the execution.
+     * @param pairResult      the result and round trip time of the invocation.
+     * @param functionOutputs the parsed output values of the function.
+     * @param id              unique identifier of the base function.
+     *
+     * @throws Exception on failure.
+     */
+    private void completeInvocation(ExecutionFrame frame, PairResult<String, Long> pairResult, Map<String, Object> functionOutputs, int id) throws Exception {
 
         /* Log the function output */
         logFunctionOutput(pairResult.getRTT(), pairResult.getResult(), id);
 
-        /* Pass the output to the next node */
-        for (Node node : children) {
-            node.passResult(functionOutputs);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
+        /* Move large output values out of memory before they are passed on */
+        if (PayloadStore.ENABLED && pairResult.getResult() != null && pairResult.getResult().length() > PayloadStore.THRESHOLD) {
+            try {
+                PayloadStore.get().offload(functionOutputs);
+            } catch (IOException e) {
+                logger.warn("Could not offload output of function {}: {}", name, e.getMessage());
             }
-            node.call();
         }
 
         /* Set the result of the function node */
-        result = functionOutputs;
+        ((State) getState(frame)).result = functionOutputs;
+
+        /*
+         * Pass the output to the next nodes and schedule them, so chains of control nodes are not run on the stack of
+         * the completed invocation
+         */
+        WorkflowScheduler scheduler = WorkflowScheduler.current();
+        for (Node node : children) {
+            node.passResult(frame, functionOutputs);
+            scheduler.submit(() -> node.call(frame), node.getRank(frame));
+        }
 
         /*
          * Check if the execution identifier is specified (check if execution should be
@@ -239,7 +394,6 @@ public class FunctionNode extends Node {
             Utils.storeInDBFunctionInvocation(logger, functionInvocation, executionId);
         }
         */
-        return true;
     }
 
     /**
@@ -279,6 +433,7 @@ public class FunctionNode extends Node {
     /**
      * Invoke the base function.
      *
+     * @param frame            the frame of the execution.
      * @param functionToInvoke the base function which should be invoked.
      * @param resourceLink     the resource of the base function.
      * @param functionInputs   the input to the base function.
@@ -291,49 +446,53 @@ public class FunctionNode extends Node {
      * @throws LatestStartingTimeException  on latest start time exceeded.
      * @throws InvokationFailureException   on failed invocation.
      * @throws IOException                  on input output exception.
+     * @throws InterruptedException         if interrupted while waiting for the invocation.
      */
-    private PairResult<String, Long> invokeFunction(Function functionToInvoke, String resourceLink, Map<String, Object> functionInputs, Map<String, Object> functionOutputs)
-            throws MaxRunningTimeException, LatestFinishingTimeException, LatestStartingTimeException,
-            InvokationFailureException, IOException {
+    private PairResult<String, Long> invokeFunction(ExecutionFrame frame, Function functionToInvoke, String resourceLink, Map<String, Object> functionInputs, Map<String, Object> functionOutputs)
+            throws Exception {
         String resultString = null;
         PairResult<String, Long> pairResult = null;
+        boolean success;
 
         /* Check if function should be invoked with fault tolerance settings */
-        if (functionToInvoke != null && (functionToInvoke.hasConstraintSet() || functionToInvoke.hasFTSet())) {
-
-            /* Invoke the function with fault tolerance */
-            FaultToleranceEngine ftEngine = null;
-
-            if (getGoogleAccount() != null && getAzureAccount() != null && getIBMAccount() != null && getAWSAccount() != null) {
-                ftEngine = new FaultToleranceEngine(getGoogleAccount(), getAzureAccount(), getAWSAccount(), getIBMAccount());
-            } else if (getGoogleAccount() != null && getAzureAccount() != null && getIBMAccount() != null) {
-                ftEngine = new FaultToleranceEngine(getGoogleAccount(), getAzureAccount(), getIBMAccount());
-            } else if (getGoogleAccount() != null && getAzureAccount() != null && getAWSAccount() != null) {
-                ftEngine = new FaultToleranceEngine(getGoogleAccount(), getAzureAccount(), getAWSAccount());
-            } else if (getAzureAccount() != null && getGoogleAccount() != null) {
-                ftEngine = new FaultToleranceEngine(getGoogleAccount(), getAzureAccount());
-            } else if (getIBMAccount() != null && getAWSAccount() != null) {
-                ftEngine = new FaultToleranceEngine(getAWSAccount(), getIBMAccount());
-            }
-
-            try {
-                logger.info("Invoking function with fault tolerance...");
-                pairResult = ftEngine.InvokeFunctionFT(functionToInvoke);
-                resultString = pairResult.getResult();
-            } catch (Exception e) {
-                result = null;
-                throw e;
-            } finally {
-                /*
-                 * Read the actual function outputs by their key and store them in
-                 * functionOutputs
-                 */
-                success = getValuesParsed(resultString, functionOutputs);
-            }
+        boolean faultTolerant = functionToInvoke != null && (functionToInvoke.hasConstraintSet() || functionToInvoke.hasFTSet());
+        if (faultTolerant && !isHedged()) {
+            pairResult = invokeFaultTolerant(functionToInvoke, functionOutputs);
         } else {
             /* Invoke the function without fault tolerance */
             long start = System.currentTimeMillis();
-            pairResult = gateway.invokeFunction(resourceLink, functionInputs);
+            String invokedResourceLink = resourceLink;
+            String invokedDeployment = deployment;
+            AtomicBoolean invoked = new AtomicBoolean(true);
+            ResultCheck resultCheck = new ResultCheck();
+            if (isHedged()) {
+                Function alternative = getHedgeTarget(functionToInvoke);
+                String hedgeResourceLink = alternative != null ? alternative.getUrl() : resourceLink;
+                try {
+                    HedgedInvocation.Result hedgedResult = EngineScheduler.block(() -> HedgedInvocation.invoke(resourceLink,
+                            hedgeResourceLink, functionInputs, hedgePercentile, resultCheck));
+                    if (hedgedResult.isHedged() && alternative != null) {
+                        invokedResourceLink = alternative.getUrl();
+                        invokedDeployment = alternative.getDeployment();
+                    }
+                    pairResult = hedgedResult;
+                } catch (IOException e) {
+                    if (!faultTolerant) {
+                        throw e;
+                    }
+                    logger.warn("Hedged invocation of {} failed: {}", name, e.getMessage());
+                    return invokeFaultTolerant(functionToInvoke, functionOutputs);
+                }
+            } else if (cacheTtl >= 0) {
+                invoked.set(false);
+                pairResult = EngineScheduler.block(() -> ResultCache.get().invoke(resourceLink, functionInputs, cacheTtl,
+                        resultCheck, () -> {
+                            invoked.set(true);
+                            return InvocationTransport.get().invoke(resourceLink, functionInputs);
+                        }));
+            } else {
+                pairResult = EngineScheduler.block(() -> InvocationTransport.get().invoke(resourceLink, functionInputs));
+            }
             long end = System.currentTimeMillis();
             resultString = pairResult.getResult();
             long totalRttForServices = 0;
@@ -342,7 +501,7 @@ public class FunctionNode extends Node {
              * Read the actual function outputs by their key and store them in
              * functionOutputs
              */
-            success = getValuesParsed(resultString, functionOutputs);
+            success = getValuesParsed(resultString, resultCheck.parsed(resultString), functionOutputs);
             Event event = null;
             if (success) {
                 event = Event.FUNCTION_END;
@@ -350,9 +509,10 @@ public class FunctionNode extends Node {
                 // simulate round trip time for used services to subtract below
                 List<String> usedServicesForFunction = ServiceSimulationModel.getUsedServices(properties);
 
-                if(!usedServicesForFunction.isEmpty() && deployment != null) {
-                    String lambdaRegion = SimulationNode.extractValuesFromDeployment(deployment).get(1);
-                    totalRttForServices = ServiceSimulationModel.calculateTotalRttForUsedServices(-1, lambdaRegion, usedServicesForFunction).getRTT();
+                if(!usedServicesForFunction.isEmpty() && invokedDeployment != null) {
+                    String lambdaRegion = SimulationNode.extractValuesFromDeployment(invokedDeployment).get(1);
+                    totalRttForServices = ServiceSimulationModel.calculateTotalRttForUsedServices(MetadataStore.get(), -1, lambdaRegion,
+                            usedServicesForFunction).getRTT();
                 }
             } else {
                 event = Event.FUNCTION_FAILED;
@@ -361,7 +521,54 @@ public class FunctionNode extends Node {
             // remove the execution times of the services from the round trip time to be stored to the database
             long logRtt = pairResult.getRTT() - totalRttForServices;
 
-            MongoDBAccess.saveLog(event, resourceLink, deployment, name, type, resultString, logRtt, success, loopCounter, maxLoopCounter, start, Type.EXEC);
+            /*
+             * Results served from the cache (or by waiting for the same invocation) are not logged, their round trip
+             * time is not the one of the function and would distort the metadata of the simulation
+             */
+            if (invoked.get()) {
+                ExecutionLog.saveLog(event, invokedResourceLink, invokedDeployment, name, type, resultString, logRtt, success, getLoopCounter(frame), getMaxLoopCounter(frame), start, Type.EXEC);
+            }
+
+            /* Retry and use the alternative strategy only if the hedged requests failed */
+            if (!success && faultTolerant) {
+                pairResult = invokeFaultTolerant(functionToInvoke, functionOutputs);
+            }
+        }
+        return pairResult;
+    }
+
+    /**
+     * Invoke the base function with its fault tolerance settings and constraints.
+     *
+     * @param functionToInvoke the base function which should be invoked.
+     * @param functionOutputs  the parsed output values of the function.
+     *
+     * @return a PairResult containing the stringified json result of the base function invocation and the round trip
+     * time.
+     *
+     * @throws Exception on failed invocation.
+     */
+    private PairResult<String, Long> invokeFaultTolerant(Function functionToInvoke, Map<String, Object> functionOutputs)
+            throws Exception {
+        String resultString = null;
+        PairResult<String, Long> pairResult;
+
+        /* Invoke the function with fault tolerance, the engine is shared with later invocations */
+        Credentials credentials = Credentials.get();
+        final FaultToleranceEngine engine = credentials.acquireEngine();
+
+        try {
+            logger.info("Invoking function with fault tolerance...");
+            pairResult = EngineScheduler.block(() -> engine.InvokeFunctionFT(functionToInvoke));
+            resultString = pairResult.getResult();
+        } finally {
+            credentials.release(engine);
+
+            /*
+             * Read the actual function outputs by their key and store them in
+             * functionOutputs
+             */
+            getValuesParsed(resultString, null, functionOutputs);
         }
         return pairResult;
     }
@@ -385,81 +592,68 @@ public class FunctionNode extends Node {
      * Parses the json result into a map as key-value pair.
      *
      * @param result          The stringified json result from the base function.
+     * @param jsonResult      The already parsed result ({@code null} if it has not been parsed yet).
      * @param functionOutputs The output values / map of the base function. a
      *
      * @return success or failure of the value parsing.
      */
-    private boolean getValuesParsed(String result, Map<String, Object> functionOutputs) {
+    private boolean getValuesParsed(String result, FunctionResult jsonResult, Map<String, Object> functionOutputs) {
         /* Check if there is a function result and a specified output */
         if (result == null || "null".equals(result)) {
             return output == null || output.isEmpty();
         }
 
+        /* Read the json result once, only the specified outputs are kept */
+        if (jsonResult == null) {
+            jsonResult = FunctionResult.parse(result, outputNames);
+        }
 
         /* Iterate over all specified outputs in the yaml file */
-        for (DataOutsAtomic data : output) {
-
-            /* Convert the json result to a json object */
-            JsonObject jsonResult = Utils.generateJson(result, data);
+        for (int i = 0; i < outputKeys.length; i++) {
+            DataOutsAtomic data = output.get(i);
 
             /* Check if the function output already contains the specified value */
-            if (functionOutputs.containsKey(name + "/" + data.getName())) {
+            if (functionOutputs.containsKey(outputKeys[i])) {
                 continue;
             }
 
             // TODO why not do this?
-            // functionOutputs.put(name + "/" + data.getName(),
+            // functionOutputs.put(outputKeys[i],
             // jsonResult.get(data.getName()));
 
             /* Parse according data type */
+            DataType type = DataType.of(data.getType());
+            if (type == null) {
+                logger.error("Error while trying to parse key in function {}. Type: {}", name, data.getType());
+                continue;
+            }
             try {
-                switch (data.getType()) {
-                    case "number":
-                        Object number = jsonResult.get(data.getName()).getAsDouble();
-                        functionOutputs.put(name + "/" + data.getName(), number);
-                        break;
-                    case "string":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsString());
-                        break;
-                    case "collection":
-                        // array stays array to later decide which type
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsJsonArray());
-                        break;
-                    case "object":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()));
-                        break;
-                    case "bool":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsBoolean());
-                        break;
-                    default:
-                        logger.error("Error while trying to parse key in function {}. Type: {}", name, data.getType());
-                        break;
-                }
+                // if the value is null we save it regardless of the data type
+                functionOutputs.put(outputKeys[i], type.fromJson(jsonResult.get(data.getName())));
             } catch (UnsupportedOperationException e) {
-                // if the value was null we save it regardless of the data type
-                if (e.getMessage().equals("JsonNull")) {
-                    functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()));
-                }
+                logger.warn("Could not parse key {} of function {} as {}.", data.getName(), name, data.getType());
             } catch (Exception e) {
                 logger.error("Error while trying to parse key in function {}", name);
                 return false;
             }
         }
-        return !(result.contains("error:") || result.contains("\"error\":"));
+        return !jsonResult.isError();
     }
 
     /**
      * Sets the dataValues and passes the result to all children.
      *
+     * @param frame the frame of the execution.
      * @param input to the child functions.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        NodeState state = getState(frame);
+        synchronized (state) {
             try {
-                dataValues = input;
+                state.dataValues = input;
                 for (Node node : children) {
-                    node.passResult(input);
+                    node.passResult(frame, input);
                 }
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
@@ -471,103 +665,67 @@ public class FunctionNode extends Node {
     /**
      * Get the result of a function node.
      *
+     * @param frame the frame of the execution.
      * @return result of the base function.
      */
     @Override
-    public Map<String, Object> getResult() {
-        return result;
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).result;
     }
 
     /**
      * Checks if the current node is within a parallelFor.
      *
+     * @param frame the frame of the execution.
      * @return true if it is within a parallelFor, false otherwise
      */
-    private boolean inLoop() {
-        return loopCounter != -1;
+    private boolean inLoop(ExecutionFrame frame) {
+        return getLoopCounter(frame) != -1;
     }
 
-    /**
-     * Read the AWS credentials. TODO do we need this?
-     *
-     * @return aws account object.
-     */
-    private AWSAccount getAWSAccount() {
-        String awsAccessKey = null;
-        String awsSecretKey = null;
-        String awsSessionToken = null;
-        try {
-            Properties propertiesFile = new Properties();
-//            propertiesFile.load(LambdaHandler.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
-            // FileUtils.readFileToByteArray(new File(workflow))
-            awsAccessKey = propertiesFile.getProperty("aws_access_key_id");
-            awsSecretKey = propertiesFile.getProperty("aws_secret_access_key");
-            if (propertiesFile.containsKey("aws_session_token")) {
-                awsSessionToken = propertiesFile.getProperty("aws_session_token");
-            }
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        }
-        return new AWSAccount(awsAccessKey, awsSecretKey, awsSessionToken);
+    @Override
+    protected NodeState newState() {
+        return new State();
     }
 
     /**
-     * Read the IBM credentials. TODO do we need this?
-     *
-     * @return ibm account object.
+     * Checks whether the results of an invocation are successful. The parsed results are kept for the invocation
+     * (see {@link #parsed(String)}), so the result which is used is only parsed once.
      */
-    private IBMAccount getIBMAccount() {
-        String ibmKey = null;
-        try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
+    private final class ResultCheck implements Predicate<String> {
 
-            ibmKey = propertiesFile.getProperty("ibm_api_key");
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        }
-        return new IBMAccount(ibmKey);
-    }
+        /**
+         * The parsed results by their (identical) result string.
+         */
+        private final Map<String, FunctionResult> results = Collections.synchronizedMap(new IdentityHashMap<>());
 
-    /**
-     * Read the Azure credentials. TODO do we need this?
-     *
-     * @return azure account object.
-     */
-    private AzureAccount getAzureAccount() {
-        String azure_key = null;
-        try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
+        @Override
+        public boolean test(String result) {
+            FunctionResult jsonResult = FunctionResult.parse(result, outputNames);
+            results.put(result, jsonResult);
+            return !jsonResult.isError();
+        }
 
-            azure_key = propertiesFile.getProperty("azure_key");
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
+        /**
+         * Returns the parsed result of the given result string.
+         *
+         * @param result the stringified json result.
+         *
+         * @return the parsed result or {@code null} if the result was not checked.
+         */
+        FunctionResult parsed(String result) {
+            return result != null ? results.get(result) : null;
         }
-        return new AzureAccount(azure_key);
     }
 
-
     /**
-     * Read the Google credentials. TODO do we need this?
-     *
-     * @return google account object.
+     * State of a function node within a single execution.
      */
-    private GoogleFunctionAccount getGoogleAccount() {
-        String google_key = null;
-        try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
+    static class State extends NodeState {
 
-            google_key = propertiesFile.getProperty("google_sa_key");
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        }
-        return new GoogleFunctionAccount(google_key);
+        /**
+         * The result of the function node.
+         */
+        private volatile Map<String, Object> result;
     }
-
 }
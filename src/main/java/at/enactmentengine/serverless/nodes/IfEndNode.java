@@ -26,11 +26,10 @@ public class IfEndNode extends Node {
      * The output of the if node defined in the workflow file.
      */
     private List<DataOuts> dataOuts;
-
     /**
-     * The actual output of the if node.
+     * The keys of the outputs (resolved when the workflow is compiled).
      */
-    private Map<String, Object> ifResult;
+    private String[] portKeys;
 
     /**
      * Constructor for an if-end control node.
@@ -43,16 +42,26 @@ public class IfEndNode extends Node {
         this.dataOuts = dataOuts;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, dataOuts, DataOuts::getName);
+    }
+
     /**
      * Passes the results to the children if one parent has finished. No
      * synchronization needed because always just one parent (if or else branch) is
      * executed.
      *
+     * @param frame the frame of the execution.
      * @return boolean representing success of the node execution.
      * @throws Exception on failure.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        State state = getState(frame);
 
         /* Define the output values of the if-end construct */
         Map<String, Object> outputValues = new HashMap<>();
@@ -61,11 +70,12 @@ public class IfEndNode extends Node {
         if (dataOuts != null) {
 
             /* Iterate over all data outputs specified in the workflow file */
-            for (DataOuts data : dataOuts) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataOuts data = dataOuts.get(i);
 
                 /* Find the corresponding actual output of the if node */
-                for (Entry<String, Object> inputElement : ifResult.entrySet()) {
-                    outputValues.put(name + "/" + data.getName(), inputElement.getValue());
+                for (Entry<String, Object> inputElement : state.ifResult.entrySet()) {
+                    outputValues.put(portKeys[i], inputElement.getValue());
                 }
             }
         }
@@ -74,14 +84,11 @@ public class IfEndNode extends Node {
 
         /* Pass the output to all child nodes */
         for (Node node : children) {
-            node.passResult(outputValues);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
+            node.passResult(frame, outputValues);
+            if (frame.getSimulation() != null) {
+                node.setStartTime(frame, state.startTime);
             }
-            node.call();
+            node.call(frame);
         }
 
         return true;
@@ -90,15 +97,13 @@ public class IfEndNode extends Node {
     /**
      * Sets the result for the if element.
      *
+     * @param frame the frame of the execution.
      * @param input to the child functions.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
-            /* Check if there is an input specified */
-            if (ifResult == null) {
-                ifResult = new HashMap<>();
-            }
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        State state = getState(frame);
+        synchronized (state) {
 
             /* Check if there is an output specified in the workflow file */
             if (dataOuts != null) {
@@ -107,7 +112,7 @@ public class IfEndNode extends Node {
                 for (DataOuts data : dataOuts) {
                     for (Entry<String, Object> inputElement : input.entrySet()) {
                         if (data.getSource().contains(inputElement.getKey())) {
-                            ifResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                            state.ifResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
                         }
                     }
                 }
@@ -116,30 +121,29 @@ public class IfEndNode extends Node {
     }
 
     /**
-     * Clones this node and its children. Cloning is needed for ParallelFor
-     * branches.
+     * Get the result of the if-end construct.
      *
-     * @param endNode end node.
-     * @return cloned node.
-     * @throws CloneNotSupportedException on failure.
+     * @param frame the frame of the execution.
+     * @return the if-end result.
      */
     @Override
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-
-        /* Clone the node */
-        IfEndNode node = (IfEndNode) super.clone();
-        node.ifResult = new HashMap<>();
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).ifResult;
+    }
 
-        return node;
+    @Override
+    protected NodeState newState() {
+        return new State();
     }
 
     /**
-     * Get the result of the if-end construct.
-     *
-     * @return the if-end result.
+     * State of an if-end node within a single execution.
      */
-    @Override
-    public Map<String, Object> getResult() {
-        return ifResult;
+    static class State extends NodeState {
+
+        /**
+         * The actual output of the if node.
+         */
+        private final Map<String, Object> ifResult = new HashMap<>();
     }
 }
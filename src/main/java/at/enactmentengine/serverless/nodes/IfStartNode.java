@@ -24,10 +24,6 @@ public class IfStartNode extends Node {
      */
     static final Logger logger = LoggerFactory.getLogger(IfStartNode.class);
 
-    /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
-     */
-    public long isAfterParallelForNode = -1;
     /**
      * Condition of the if node (if statement).
      */
@@ -36,6 +32,10 @@ public class IfStartNode extends Node {
      * The input specified in the workflow file.
      */
     private List<DataIns> dataIns;
+    /**
+     * The keys of the inputs passed to the children (resolved when the workflow is compiled).
+     */
+    private String[] portKeys;
 
     /**
      * Constructor for a if-start node.
@@ -50,15 +50,25 @@ public class IfStartNode extends Node {
         this.dataIns = dataIns;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, dataIns, DataIns::getName);
+    }
+
     /**
      * Checks the dataValues and evaluates the condition. Depending on the
      * evaluation either the if or else branch is executed.
      *
+     * @param frame the frame of the execution.
      * @return boolean representing success of the node execution.
      * @throws Exception on failure.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        NodeState state = getState(frame);
 
         /* Iterate over all specified inputs and check if they are present */
         final Map<String, Object> ifInputValues = new HashMap<>();
@@ -67,14 +77,15 @@ public class IfStartNode extends Node {
         if(dataIns != null){
 
             /* Iterate over every input specified in the workflow file */
-            for (DataIns data : dataIns) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataIns data = dataIns.get(i);
 
                 /* Check if the actual input does not contains the specified input */
-                if (!dataValues.containsKey(data.getSource())) {
+                if (!state.dataValues.containsKey(data.getSource())) {
                     throw new MissingInputDataException(
                             IfStartNode.class.getCanonicalName() + ": " + name + " needs " + data.getSource() + "!");
                 } else {
-                    ifInputValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    ifInputValues.put(portKeys[i], state.dataValues.get(data.getSource()));
                 }
             }
         }
@@ -112,28 +123,12 @@ public class IfStartNode extends Node {
         }
 
         /* Pass data to the according branch and execute */
-        node.passResult(ifInputValues);
-        if (getLoopCounter() != -1) {
-            node.setLoopCounter(loopCounter);
-            node.setMaxLoopCounter(maxLoopCounter);
-            node.setConcurrencyLimit(concurrencyLimit);
-            node.setStartTime(startTime);
+        node.passResult(frame, ifInputValues);
+        if (frame.getSimulation() != null) {
+            node.setStartTime(frame, state.startTime);
         }
 
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            if (node instanceof IfStartNode) {
-                ((IfStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof ParallelStartNode) {
-                ((ParallelStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof SwitchStartNode) {
-                ((SwitchStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof SimulationNode) {
-                ((SimulationNode) node).setAmountParallelFunctions(isAfterParallelForNode + 1);
-            }
-        }
-
-        node.call();
+        node.call(frame);
 
         return true;
     }
@@ -179,14 +174,18 @@ public class IfStartNode extends Node {
 
     /**
      * Sets the passed result as dataValues.
+     *
+     * @param frame the frame of the execution.
+     * @param input the passed values.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        NodeState state = getState(frame);
+        synchronized (state) {
 
             /* Check if actual input data list is already created */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
+            if (state.dataValues == null) {
+                state.dataValues = new HashMap<>();
             }
 
             /* Check if there is input specified in the workflow file */
@@ -195,7 +194,7 @@ public class IfStartNode extends Node {
 
                     /* Add specified inputs to the actual inputs list */
                     if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                        state.dataValues.put(data.getSource(), input.get(data.getSource()));
                     }
                 }
             }
@@ -243,11 +242,11 @@ public class IfStartNode extends Node {
     /**
      * Get the result of the if-start construct.
      *
+     * @param frame the frame of the execution.
      * @return null because the if-start does not generate a result.
      */
     @Override
-    public Map<String, Object> getResult() {
+    public Map<String, Object> getResult(ExecutionFrame frame) {
         return null;
     }
-
 }
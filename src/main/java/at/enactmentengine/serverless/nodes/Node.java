@@ -1,17 +1,24 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 /**
- * Abstract class which defines basic properties and functions for all nodes.
+ * Abstract class which defines basic properties and functions for all nodes. Nodes only describe the structure of a
+ * workflow and can be shared by concurrent executions, all values of an execution are kept in an
+ * {@link ExecutionFrame}.
  *
  * @author markusmoosbrugger, jakobnoeckl
  * adapted by @author stefanpedratscher
  */
-public abstract class Node implements Callable<Boolean>, Cloneable {
+public abstract class Node {
 
     /**
      * All parent nodes of the current node.
@@ -34,29 +41,14 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
     protected String type;
 
     /**
-     * The input values of the node.
-     */
-    protected Map<String, Object> dataValues;
-
-    /**
-     * The number of execution in a parallelFor loop.
-     */
-    protected int loopCounter = -1;
-
-    /**
-     * The end of a parallelFor loop.
-     */
-    protected int maxLoopCounter = -1;
-
-    /**
-     * The concurrency limit of a parallelFor loop.
+     * The parallelFor loop whose body contains the node ({@code null} if the node is not within a loop).
      */
-    protected int concurrencyLimit = -1;
+    private ParallelForStartNode loop;
 
     /**
-     * The starting time for a function within a parallelFor used in simulation.
+     * The index of the state of the node within the frame of its scope.
      */
-    protected long startTime = 0;
+    private int slot = -1;
 
     /**
      * Default constructor for a node.
@@ -72,12 +64,55 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
         children = new ArrayList<>();
     }
 
+    /**
+     * Executes the node within the given execution.
+     *
+     * @param frame the frame of the execution.
+     *
+     * @return boolean representing success of the node execution.
+     *
+     * @throws Exception on failure.
+     */
+    public abstract Boolean call(ExecutionFrame frame) throws Exception;
+
     /**
      * Pass results to the next node(s).
      *
-     * @param map data which should be passed.
+     * @param frame the frame of the execution.
+     * @param map   data which should be passed.
+     */
+    public abstract void passResult(ExecutionFrame frame, Map<String, Object> map);
+
+    /**
+     * Get the result of the node within the given execution.
+     *
+     * @param frame the frame of the execution.
+     *
+     * @return the result of the node.
+     */
+    public abstract Map<String, Object> getResult(ExecutionFrame frame);
+
+    /**
+     * Creates the state of the node for a new execution.
+     *
+     * @return the empty state.
      */
-    public abstract void passResult(Map<String, Object> map);
+    protected NodeState newState() {
+        return new NodeState();
+    }
+
+    /**
+     * Returns the state of the node within the given execution.
+     *
+     * @param frame the frame of the execution.
+     * @param <S>   the state type of the node.
+     *
+     * @return the state of the node.
+     */
+    @SuppressWarnings("unchecked")
+    protected <S extends NodeState> S getState(ExecutionFrame frame) {
+        return (S) frame.getState(this);
+    }
 
     /**
      * Add another child to the children's node list.
@@ -97,6 +132,74 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
         parents.add(node);
     }
 
+    /**
+     * Assigns the node to the scope of a loop when the workflow is compiled.
+     *
+     * @param loop the loop whose body contains the node ({@code null} if the node is not within a loop).
+     * @param slot the index of the state of the node within the frame of the scope.
+     */
+    void assignSlot(ParallelForStartNode loop, int slot) {
+        this.loop = loop;
+        this.slot = slot;
+    }
+
+    /**
+     * Resolves the keys of the data ports of the node when the workflow is compiled, so they are not built again
+     * whenever a value is passed.
+     */
+    void resolvePorts() {
+    }
+
+    /**
+     * Estimates the time needed to execute the node itself when the nodes of the workflow are ranked.
+     *
+     * @return the estimated duration in milliseconds.
+     */
+    long estimateDuration() {
+        return 0;
+    }
+
+    /**
+     * Estimates the duration of a function by the average round trip time of its deployment in the metadata.
+     *
+     * @param properties the properties of the function.
+     *
+     * @return the average round trip time in milliseconds or 1 if it is not known.
+     */
+    long estimateFunctionDuration(List<PropertyConstraint> properties) {
+        try {
+            FunctionDeployment deployment = MetadataStore.get().getFunctionIdEntry(Utils.getResourceLink(properties, this));
+            if (deployment != null && deployment.getAvgRTT() != null && deployment.getAvgRTT() > 0) {
+                return Math.round(deployment.getAvgRTT());
+            }
+        } catch (Exception e) {
+            /* Functions without metadata count as one step of the path */
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the keys ({@code node/port}) of the given data ports. The keys are built once when the workflow is
+     * compiled instead of for every passed value.
+     *
+     * @param node     the name of the node (or workflow) owning the ports.
+     * @param ports    the data ports.
+     * @param portName returns the name of a data port.
+     * @param <T>      the type of the data ports.
+     *
+     * @return the key of every port (in the order of the ports).
+     */
+    static <T> String[] portKeys(String node, List<T> ports, Function<T, String> portName) {
+        if (ports == null) {
+            return new String[0];
+        }
+        String[] keys = new String[ports.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = node + "/" + portName.apply(ports.get(i));
+        }
+        return keys;
+    }
+
     /** Getter and Setter */
 
     public String getName() {
@@ -111,67 +214,57 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
         return children;
     }
 
-    public abstract Map<String, Object> getResult();
-
-    public Map<String, Object> getDataValues() {
-        return dataValues;
+    public ParallelForStartNode getLoop() {
+        return loop;
     }
 
-    public void setDataValues(Map<String, Object> dataValues) {
-        this.dataValues = dataValues;
+    public int getSlot() {
+        return slot;
     }
 
-    public int getLoopCounter() {
-        return loopCounter;
+    /**
+     * Returns the estimated time from the start of the node to the end of the workflow (the length of the remaining
+     * critical path) within the given execution.
+     *
+     * @param frame the frame of the execution.
+     *
+     * @return the rank of the node in milliseconds (0 if the nodes of the execution are not ranked).
+     */
+    public long getRank(ExecutionFrame frame) {
+        return frame.getRank(this);
     }
 
-    public void setLoopCounter(int loopCounter) {
-        this.loopCounter = loopCounter;
+    public Map<String, Object> getDataValues(ExecutionFrame frame) {
+        return getState(frame).dataValues;
     }
 
-    public int getMaxLoopCounter() {return maxLoopCounter;}
-
-    public void setMaxLoopCounter(int maxLoopCounter) {this.maxLoopCounter = maxLoopCounter;}
-
-    public int getConcurrencyLimit() {
-        return concurrencyLimit;
+    public int getLoopCounter(ExecutionFrame frame) {
+        return frame.forNode(this).getLoopCounter();
     }
 
-    public void setConcurrencyLimit(int concurrencyLimit) {
-        this.concurrencyLimit = concurrencyLimit;
+    public int getMaxLoopCounter(ExecutionFrame frame) {
+        return frame.forNode(this).getMaxLoopCounter();
     }
 
-    public long getStartTime() {
-        return startTime;
+    public int getConcurrencyLimit(ExecutionFrame frame) {
+        return frame.forNode(this).getConcurrencyLimit();
     }
 
-    public synchronized void setStartTime(long startTime) {
-        if (this instanceof ParallelForEndNode) {
-            ((ParallelForEndNode) this).addAllFinishTimes(startTime);
-        }
-        if (this.startTime == 0) {
-            this.startTime = startTime;
-        } else if (startTime > this.startTime) {
-            this.startTime = startTime;
+    public long getStartTime(ExecutionFrame frame) {
+        NodeState state = getState(frame);
+        synchronized (state) {
+            return state.startTime;
         }
     }
 
-    /**
-     * Clone the whole node.
-     *
-     * @param endNode end node.
-     *
-     * @return cloned node.
-     *
-     * @throws CloneNotSupportedException on failure.
-     */
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-        Node node = (Node) super.clone();
-        node.children = new ArrayList<>();
-        for (Node childrenNode : children) {
-            node.children.add(childrenNode.clone(endNode));
-
+    public void setStartTime(ExecutionFrame frame, long startTime) {
+        NodeState state = getState(frame);
+        synchronized (state) {
+            if (state.startTime == 0) {
+                state.startTime = startTime;
+            } else if (startTime > state.startTime) {
+                state.startTime = startTime;
+            }
         }
-        return node;
     }
 }
@@ -0,0 +1,20 @@
+package at.enactmentengine.serverless.nodes;
+
+import java.util.Map;
+
+/**
+ * The state of a node within a single execution (or a single iteration of a parallelFor loop). Nodes which need
+ * additional state extend this class and create it in {@link Node#newState()}.
+ */
+public class NodeState {
+
+    /**
+     * The input values of the node.
+     */
+    Map<String, Object> dataValues;
+
+    /**
+     * The starting time for a function within a parallelFor used in simulation.
+     */
+    long startTime = 0;
+}
@@ -1,5 +1,7 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.object.CollectionView;
+import at.enactmentengine.serverless.payload.PayloadStore;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
@@ -8,7 +10,6 @@ import org.apache.commons.lang3.NotImplementedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,25 +28,14 @@ public class ParallelEndNode extends Node {
      */
     static final Logger logger = LoggerFactory.getLogger(ParallelEndNode.class);
 
-    /**
-     * Keeps track of the number of finished parents.
-     */
-    private int finishedParents = 0;
-
     /**
      * The output of the parallel specified in the workflow file.
      */
     private List<DataOuts> output;
-
     /**
-     * The result of the parallel construct.
+     * The keys of the outputs (resolved when the workflow is compiled).
      */
-    private Map<String, Object> parallelResult = new HashMap<>();
-
-    /**
-     * Clone of the current node.
-     */
-    private Node currentCopy;
+    private String[] portKeys;
 
     /**
      * Default constructor for a parallel-end node.
@@ -59,16 +49,27 @@ public class ParallelEndNode extends Node {
         this.output = output;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, output, DataOuts::getName);
+    }
+
     /**
      * Counts the number of invocations and resumes with passing the results to the
      * children if all parents have finished.
+     *
+     * @param frame the frame of the execution.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        State state = getState(frame);
 
         /* Check if all functions in the parallel node are finished */
-        synchronized (this) {
-            if (++finishedParents != parents.size()) {
+        synchronized (state) {
+            if (++state.finishedParents != parents.size()) {
                 return false;
             }
         }
@@ -78,20 +79,21 @@ public class ParallelEndNode extends Node {
 
         /* Check if there is an output specified */
         if (output != null) {
-            for (DataOuts data : output) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataOuts data = output.get(i);
 
                 /* Define the output key */
                 // TODO should we remove name?
-                String key = name + "/" + data.getName();
+                String key = portKeys[i];
 
                 /* Check if the result contains the specified source */
-                if (parallelResult.containsKey(data.getSource())) {
-                    outputValues.put(key, parallelResult.get(data.getSource()));
+                if (state.parallelResult.containsKey(data.getSource())) {
+                    outputValues.put(key, state.parallelResult.get(data.getSource()));
                     continue;
                 }
 
                 /* Check for a collection result */
-                outputValues.putAll(checkCollection(data, key));
+                outputValues.putAll(checkCollection(state.parallelResult, data, key));
             }
             logger.info("Executing {} ParallelEndNodeOld with output: {}", name,  LoggerUtil.clearCredentials(outputValues));
 
@@ -99,14 +101,11 @@ public class ParallelEndNode extends Node {
 
         /* Pass the results to all children */
         for (Node node : children) {
-            node.passResult(outputValues);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
+            node.passResult(frame, outputValues);
+            if (frame.getSimulation() != null) {
+                node.setStartTime(frame, state.startTime);
             }
-            node.call();
+            node.call(frame);
         }
 
         return true;
@@ -117,11 +116,12 @@ public class ParallelEndNode extends Node {
      * <p>
      * TODO can this be merged with the other function?
      *
-     * @param dataOuts output specified in the workflow file.
-     * @param key      on which the data should be added.
+     * @param parallelResult the result of the parallel construct.
+     * @param dataOuts       output specified in the workflow file.
+     * @param key            on which the data should be added.
      * @return the output values of the optional collection.
      */
-    private Map<String, Object> checkCollection(DataOuts dataOuts, String key) {
+    private Map<String, Object> checkCollection(Map<String, Object> parallelResult, DataOuts dataOuts, String key) {
 
         Map<String, Object> outputValues = new HashMap<>();
 
@@ -154,11 +154,13 @@ public class ParallelEndNode extends Node {
     /**
      * Retrieves the results from the different parents and set them as result.
      *
+     * @param frame the frame of the execution.
      * @param input which should be added o the results.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        State state = getState(frame);
+        synchronized (state) {
 
             /* Check if there is an output specified */
             if (output == null) {
@@ -170,13 +172,13 @@ public class ParallelEndNode extends Node {
 
                 /* Check if the input is specified in the output of the workflow file */
                 if (input.containsKey(data.getSource())) {
-                    parallelResult.put(data.getSource(), input.get(data.getSource()));
+                    state.parallelResult.put(data.getSource(), input.get(data.getSource()));
                 }
 
                 /* Add input data to the results if they are specified in the output */
                 for (Entry<String, Object> inputElement : input.entrySet()) {
                     if (data.getSource() != null && data.getSource().contains(inputElement.getKey())) {
-                        parallelResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                        state.parallelResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
                     }
                 }
             }
@@ -186,40 +188,18 @@ public class ParallelEndNode extends Node {
     /**
      * Returns the result.
      *
+     * @param frame the frame of the execution.
+     *
      * @return the result of the parallel node.
      */
     @Override
-    public Map<String, Object> getResult() {
-        return parallelResult;
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).parallelResult;
     }
 
-    /**
-     * Clones this node and its children. Cloning is needed for ParallelFor
-     * branches.
-     *
-     * @param endNode end node.
-     * @return cloned node.
-     * @throws CloneNotSupportedException on failure.
-     */
     @Override
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-
-        /* Check if already a clone */
-        if (endNode == currentCopy) {
-            return endNode;
-        }
-
-        /* Clone the node */
-        ParallelEndNode node = (ParallelEndNode) super.clone();
-        node.children = new ArrayList<>();
-        node.parallelResult = new HashMap<>();
-
-        for (Node childrenNode : children) {
-            node.children.add(childrenNode.clone(endNode));
-        }
-        currentCopy = node;
-        return node;
-
+    protected NodeState newState() {
+        return new State();
     }
 
     /**
@@ -245,7 +225,7 @@ public class ParallelEndNode extends Node {
                     /* Combine the results from the executed branches into one collection */
                     JsonArray arr = new JsonArray(data.values().size());
                     for (Object value : data.values()) {
-                        arr.addAll((JsonArray) value);
+                        arr.addAll(CollectionView.toJsonArray(PayloadStore.resolve(value)));
                     }
                     result = arr;
                 } else if ("*".equals(constraint.getValue())){
@@ -256,7 +236,7 @@ public class ParallelEndNode extends Node {
                     for(String sourceEntry : sourceArray){
                         for (Entry<String, Object> inputElement : data.entrySet()) {
                             if (sourceEntry.contains(inputElement.getKey())) {
-                                arr.addAll((JsonArray) inputElement.getValue());
+                                arr.addAll(CollectionView.toJsonArray(PayloadStore.resolve(inputElement.getValue())));
                             }
                         }
                     }
@@ -273,4 +253,20 @@ public class ParallelEndNode extends Node {
         }
         return result;
     }
+
+    /**
+     * State of a parallel-end node within a single execution.
+     */
+    static class State extends NodeState {
+
+        /**
+         * Keeps track of the number of finished parents.
+         */
+        private int finishedParents = 0;
+
+        /**
+         * The result of the parallel construct.
+         */
+        private final Map<String, Object> parallelResult = new HashMap<>();
+    }
 }
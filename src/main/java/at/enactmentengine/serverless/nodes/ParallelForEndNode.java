@@ -1,17 +1,18 @@
 package at.enactmentengine.serverless.nodes;
 
-import at.enactmentengine.serverless.simulation.SimulationParameters;
+import at.enactmentengine.serverless.object.DataType;
+import at.enactmentengine.serverless.payload.PayloadStore;
+import at.enactmentengine.serverless.simulation.SimulationKernel;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.util.Event;
-import at.uibk.dps.util.Type;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Control node which manages the tasks at the end of a parallel for loop.
@@ -26,25 +27,14 @@ public class ParallelForEndNode extends Node {
      */
     static final Logger logger = LoggerFactory.getLogger(ParallelForEndNode.class);
 
-    /**
-     * Keeps track of the number of finished parents.
-     */
-    private int finishedParents = 0;
-
     /**
      * Output of the parallel-for-end node defined in the workflow file.
      */
     private List<DataOuts> output;
-
-    /**
-     * The result of the parallel-for node.
-     */
-    private Map<String, Object> parallelForResult = new HashMap<>();
-
     /**
-     * The number of parents (number of functions in the parallelFor).
+     * The keys of the outputs (resolved when the workflow is compiled).
      */
-    private int numberOfParents;
+    private String[] portKeys;
 
     /**
      * If simulation is selected.
@@ -52,9 +42,9 @@ public class ParallelForEndNode extends Node {
     private boolean simulate;
 
     /**
-     * Keeps count of all finish times of the functions that have the current node as child.
+     * The start node of the parallel-for.
      */
-    private List<Long> allFinishTimes = Collections.synchronizedList(new ArrayList<>());
+    private ParallelForStartNode startNode;
 
     /**
      * Default constructor for a parallel-for-end node
@@ -70,151 +60,193 @@ public class ParallelForEndNode extends Node {
     }
 
     /**
-     * Counts the number of invocations and resumes with passing the results to the
-     * children if all parents have finished.
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, output, DataOuts::getName);
+    }
+
+    /**
+     * Counts the number of finished iterations and resumes with passing the results to the
+     * children if all iterations have finished. The results of the iterations are assembled once, in the order of
+     * the iterations.
+     *
+     * @param frame the frame of the execution (or of the finished iteration).
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+
+        /* Continue in the scope of the loop, not in the one of the finished iteration */
+        frame = frame.forNode(this);
+        State state = getState(frame);
 
         /* Check if all functions in the parallel-for are finished */
-        synchronized (this) {
-            if (++finishedParents != numberOfParents) {
-                SimulationParameters.setIterationFinishTimes(allFinishTimes);
-                return false;
-            }
+        if (state.finishedParents.incrementAndGet() != state.numberOfParents) {
+            return false;
         }
+        state.parallelForResult = assembleResult(state);
 
         /* Prepare the output of the node */
         Map<String, Object> outputValues = new HashMap<>();
 
         /* Check if there is an output specified in the workflow file */
         if (output != null) {
-            for (DataOuts data : output) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataOuts data = output.get(i);
 
                 /* Define the output key */
                 // TODO should we remove name?
-                String key = name + "/" + data.getName();
+                String key = portKeys[i];
 
                 /* Check if the result contains the specified source */
-                if (parallelForResult.containsKey(data.getSource())) {
-                    outputValues.put(key, parallelForResult.get(data.getSource()));
+                if (state.parallelForResult.containsKey(data.getSource())) {
+                    outputValues.put(key, state.parallelForResult.get(data.getSource()));
                 } else if ("collection".equals(data.getType())) {
-                    outputValues.put(key, parallelForResult);
+                    outputValues.put(key, state.parallelForResult);
                 }
             }
         }
 
         logger.info("Executing {} ParallelForEndNodeOld with output: {}", name, LoggerUtil.clearCredentials(outputValues));
         if (simulate) {
-            SimulationParameters.reset();
-            MongoDBAccess.saveLog(Event.PARALLEL_FOR_END, null, null, null, null, null,
-                    0L, true, -1, -1, startTime, Type.SIM);
+            frame.getSimulation().saveLog(Event.PARALLEL_FOR_END, null, null, null, null, null,
+                    0L, true, -1, -1, state.startTime);
         }
 
         /* Pass results to every child */
         for (Node node : children) {
-            node.passResult(outputValues);
-            node.call();
+            node.passResult(frame, outputValues);
+            if (simulate) {
+                node.setStartTime(frame, state.startTime);
+            }
+            node.call(frame);
         }
 
         return true;
     }
 
     /**
-     * Retrieves the results from the different parents and set them as result.
+     * Retrieves the results from the different parents and stores them in the slot of the iteration they belong to.
+     * Iterations write to different slots, so no lock is needed.
      *
+     * @param frame the frame of the finished iteration.
      * @param input which should be passed.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
 
-            /* Check if an output is specified */
-            if (output != null) {
+        /* Check if an output is specified */
+        if (output == null) {
+            return;
+        }
 
-                /* Iterate over output and handle the results */
-                for (DataOuts data : output) {
-                    if (input.containsKey(data.getSource())) {
-                        handlePassResults(data, input);
-                    }
-                }
+        /* Collect the specified outputs of the iteration */
+        Map<String, Object> values = new HashMap<>();
+        for (DataOuts data : output) {
+            if (input.containsKey(data.getSource())) {
+                values.put(data.getSource(), input.get(data.getSource()));
             }
         }
+        if (values.isEmpty()) {
+            return;
+        }
+
+        ExecutionFrame iteration = frame.iterationOf(startNode);
+        State state = getState(frame);
+        state.iterationResults.accumulateAndGet(iteration.getLoopCounter(), values, (previous, current) -> {
+            if (previous == null) {
+                return current;
+            }
+            Map<String, Object> merged = new HashMap<>(previous);
+            merged.putAll(current);
+            return merged;
+        });
     }
 
     /**
-     * Handle the passing of the results.
+     * Assembles the result of the parallel-for from the results of all iterations. Collections contain the values
+     * in the order of the iterations, other outputs the value of the last iteration providing it.
      *
-     * @param dataOuts output specified in the workflow file.
-     * @param input which should be passed.
+     * @param state the state of the node within the execution.
+     *
+     * @return the result of the parallel-for node.
      */
-    private void handlePassResults(DataOuts dataOuts, Map<String, Object> input) {
-
-        /* Check for collection type */
-        if ("collection".equals(dataOuts.getType())) {
-
-            JsonArray resultArray;
-
-            /* Use existing or create a new array */
-            if (parallelForResult.containsKey(dataOuts.getSource())) {
-                resultArray = (JsonArray) parallelForResult.get(dataOuts.getSource());
-            } else {
-                resultArray = new JsonArray();
+    private Map<String, Object> assembleResult(State state) {
+        Map<String, Object> parallelForResult = new HashMap<>();
+        if (output == null) {
+            return parallelForResult;
+        }
+        for (DataOuts data : output) {
+            String source = data.getSource();
+            boolean collection = "collection".equals(data.getType());
+            JsonArray resultArray = new JsonArray();
+            for (int i = 0; i < state.iterationResults.length(); i++) {
+                Map<String, Object> values = state.iterationResults.get(i);
+                if (values == null || !values.containsKey(source)) {
+                    continue;
+                }
+                Object value = values.get(source);
+                if (collection) {
+                    resultArray.add(DataType.toJson(PayloadStore.resolve(value)));
+                } else {
+                    parallelForResult.put(source, value);
+                }
+            }
+            if (collection && resultArray.size() > 0) {
+                parallelForResult.put(source, resultArray);
             }
-
-            /* Add the new output to the result collection */
-            resultArray.add(new Gson().toJsonTree(input.get(dataOuts.getSource())));
-            parallelForResult.put(dataOuts.getSource(), resultArray);
-        } else {
-            parallelForResult.put(dataOuts.getSource(), input.get(dataOuts.getSource()));
         }
+        return parallelForResult;
     }
 
-
-
     /**
      * /Returns the result.
      *
+     * @param frame the frame of the execution.
+     *
      * @return result.
      */
     @Override
-    public Map<String, Object> getResult() {
-        return parallelForResult;
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).parallelForResult;
     }
 
     /**
-     * Sets the number of children. These number is needed for the synchronization.
+     * Sets the number of iterations. These number is needed for the synchronization.
      *
-     * @param number of children
+     * @param frame  the frame of the execution.
+     * @param number of iterations
      */
-    public void setNumberOfParents(int number) {
-        numberOfParents = number;
+    public void setNumberOfParents(ExecutionFrame frame, int number) {
+        State state = getState(frame);
+        state.iterationResults = new AtomicReferenceArray<>(number);
+        state.numberOfParents = number;
     }
 
     /**
-     * Stops the cloning mechanism at this node because it's the end of the
-     * parallelFor branch that was cloned.
+     * Reports the finish time of an iteration to the simulation kernel of the loop in addition to updating the start
+     * time.
      *
-     * @param endNode end node.
-     *
-     * @return cloned node.
-     * @throws CloneNotSupportedException on failure.
+     * @param frame     the frame of the execution (or of the finished iteration).
+     * @param startTime the finish time of the iteration.
      */
     @Override
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-        if (endNode == this) {
-            return this;
+    public void setStartTime(ExecutionFrame frame, long startTime) {
+        ExecutionFrame iteration = frame.iterationOf(startNode);
+        SimulationKernel kernel = startNode.getSimulationKernel(frame);
+        if (iteration != null && kernel != null) {
+            kernel.finish(iteration.getLoopCounter(), startTime);
         }
-        return super.clone(endNode);
+        super.setStartTime(frame, startTime);
     }
 
-    /** Getter and Setter */
-
-    public Map<String, Object> getParallelForResult() {
-        return getResult();
+    @Override
+    protected NodeState newState() {
+        return new State();
     }
 
-    public void setParallelForResult(Map<String, Object> parallelForResult) {this.parallelForResult = parallelForResult;}
+    /** Getter and Setter */
 
     public List<DataOuts> getOutput() {
         return output;
@@ -224,11 +256,41 @@ public class ParallelForEndNode extends Node {
         this.output = output;
     }
 
-    public List<Long> getAllFinishTimes() {
-        return allFinishTimes;
+    public ParallelForStartNode getStartNode() {
+        return startNode;
     }
 
-    public synchronized void addAllFinishTimes(Long time) {
-        allFinishTimes.add(time);
+    void setStartNode(ParallelForStartNode startNode) {
+        this.startNode = startNode;
+    }
+
+    public boolean isSimulate() {
+        return simulate;
+    }
+
+    /**
+     * State of a parallel-for-end node within a single execution.
+     */
+    static class State extends NodeState {
+
+        /**
+         * Keeps track of the number of finished parents.
+         */
+        private final AtomicInteger finishedParents = new AtomicInteger();
+
+        /**
+         * The results of the iterations, indexed by the loop counter.
+         */
+        private volatile AtomicReferenceArray<Map<String, Object>> iterationResults = new AtomicReferenceArray<>(0);
+
+        /**
+         * The result of the parallel-for node (assembled after all iterations are finished).
+         */
+        private volatile Map<String, Object> parallelForResult = new HashMap<>();
+
+        /**
+         * The number of parents (number of iterations of the parallelFor).
+         */
+        private volatile int numberOfParents;
     }
 }
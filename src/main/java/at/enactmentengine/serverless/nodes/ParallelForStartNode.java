@@ -1,12 +1,17 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.object.CollectionView;
+import at.enactmentengine.serverless.object.DataType;
 import at.enactmentengine.serverless.parser.ElementIndex;
+import at.enactmentengine.serverless.payload.PayloadStore;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
+import at.enactmentengine.serverless.simulation.SimulationContext;
+import at.enactmentengine.serverless.simulation.SimulationKernel;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.LoopCounter;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import com.github.fge.jsonschema.core.tree.JsonTree;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.internal.LinkedTreeMap;
 import org.apache.commons.lang3.NotImplementedException;
@@ -14,12 +19,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Set;
 
 /**
  * Control node which manages the tasks at the start of a parallel for loop.
@@ -45,9 +50,9 @@ public class ParallelForStartNode extends Node {
      */
     private List<DataIns> dataIns;
     /**
-     * The actual values of the counter variables.
+     * The keys of the inputs passed to the children (resolved when the workflow is compiled).
      */
-    private Map<String, Object> counterValues;
+    private String[] portKeys;
     /**
      * The start value of the loop counter.
      */
@@ -68,6 +73,14 @@ public class ParallelForStartNode extends Node {
      * The maximum number of concurrent function executions.
      */
     private int maxNumberThreads = 1000;
+    /**
+     * The end node of the parallel-for.
+     */
+    private ParallelForEndNode endNode;
+    /**
+     * The number of nodes within the body of the parallel-for.
+     */
+    private int bodySize;
 
     /**
      * Default constructor for the parallel-for-start node.
@@ -89,6 +102,14 @@ public class ParallelForStartNode extends Node {
         checkConstraints(this.constraints);
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, dataIns, DataIns::getName);
+    }
+
     /**
      * Check the constraints of the parallel-for-start node.
      *
@@ -148,18 +169,20 @@ public class ParallelForStartNode extends Node {
     /**
      * Saves the passed result as dataValues.
      *
+     * @param frame the frame of the execution.
      * @param input values to pass.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        State state = getState(frame);
+        synchronized (state) {
 
             /* Prepare data value holders, if not already done */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
+            if (state.dataValues == null) {
+                state.dataValues = new HashMap<>();
             }
-            if (counterValues == null) {
-                counterValues = new HashMap<>();
+            if (state.counterValues == null) {
+                state.counterValues = new HashMap<>();
             }
 
             /* Check if there is an input specified */
@@ -168,7 +191,7 @@ public class ParallelForStartNode extends Node {
                 /* Iterate over inputs and add corresponding values to the data values */
                 for (DataIns data : dataIns) {
                     if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                        state.dataValues.put(data.getSource(), input.get(data.getSource()));
                     }
                 }
             }
@@ -176,22 +199,27 @@ public class ParallelForStartNode extends Node {
             /* Iterate over counter variables and check if the input contains the values */
             for (String counterValue : counterVariableNames) {
                 if (input.containsKey(counterValue)) {
-                    counterValues.put(counterValue, input.get(counterValue));
+                    state.counterValues.put(counterValue, input.get(counterValue));
                 }
             }
         }
     }
 
     /**
-     * Checks the input values, adds specific number of children depending on the input values and creates a thread pool
-     * for execution of the children.
+     * Checks the input values, determines the number of iterations depending on the input values and streams the
+     * iterations of the loop body through the scheduler of the workflow. All iterations share the nodes of
+     * the body, each of them gets its own frame and input values. Both are only created when the iteration is
+     * started, so the memory used by the loop scales with the active iterations.
+     *
+     * @param frame the frame of the execution.
      *
      * @return True on success, False otherwise
      *
      * @throws Exception on failure
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        State state = getState(frame);
 
         /* Prepare the output values */
         final Map<String, Object> outValues = new HashMap<>();
@@ -200,77 +228,123 @@ public class ParallelForStartNode extends Node {
         if (dataIns != null) {
 
             /* Iterate over the input data and handle input values */
-            for (DataIns data : dataIns) {
-                if (!dataValues.containsKey(data.getSource())) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataIns data = dataIns.get(i);
+                if (!state.dataValues.containsKey(data.getSource())) {
                     throw new MissingInputDataException(ParallelForStartNode.class.getCanonicalName() + ": " + name
                             + " needs " + data.getSource() + "!");
                 } else {
-                    outValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    outValues.put(portKeys[i], state.dataValues.get(data.getSource()));
                 }
             }
         }
 
         logger.info("Executing {} ParallelForStartNodeOld", name);
 
-        /* Create all children functions (all functions inside the parallel-for) */
-        addChildren();
+        /* Determine the number of iterations (all functions inside the parallel-for) */
+        int iterations = countIterations(state);
+        endNode.setNumberOfParents(frame, iterations);
 
-        /* Create a fixed thread-pool managing the parallel executions */
-        ExecutorService exec = Executors
-                .newFixedThreadPool(children.size() > maxNumberThreads ? maxNumberThreads : children.size());
-        List<Future<Boolean>> futures = new ArrayList<>();
-        List<Map<String, Object>> outValuesForChildren = transferOutVals(children.size(), outValues);
+        WorkflowScheduler scheduler = WorkflowScheduler.current();
+        List<DistributedInput> distributedInputs = transferOutVals(state.dataValues, iterations, outValues);
 
         int customConcurrencyLimit = maxNumberThreads == 1000 ? -1 : maxNumberThreads;
-
-        /* Iterate over all children */
-        for (int i = 0; i < children.size(); i++) {
-
-            Node node = children.get(i);
-            node.setLoopCounter(i);
-            node.setMaxLoopCounter(counterEnd - 1);
-            node.setConcurrencyLimit(customConcurrencyLimit);
-            node.setStartTime(startTime);
-            // if another construct is following directly afterwards, set the field to 0 (needed if concurrency limit is exceeded)
-            if (node instanceof IfStartNode) {
-                ((IfStartNode) node).isAfterParallelForNode = 0;
-            } else if (node instanceof ParallelStartNode) {
-                ((ParallelStartNode) node).isAfterParallelForNode = 0;
-            } else if (node instanceof SwitchStartNode) {
-                ((SwitchStartNode) node).isAfterParallelForNode = 0;
+        int maxLoopCounter = state.counterEnd - 1;
+        long startTime = getStartTime(frame);
+
+        /* A simulated loop assigns the virtual start times of its iterations with its own kernel */
+        SimulationKernel kernel = endNode.isSimulate() ? new SimulationKernel(simulationSlots(frame.getSimulation(), customConcurrencyLimit)) : null;
+        state.kernel = kernel;
+
+        /*
+         * Stream the iterations through the scheduler of the workflow. Only up to the concurrency of the loop are in
+         * progress at the same time, the next one is started as soon as one of them is finished. The iterations are
+         * joined by the end node, so the start node does not wait for them and failures of the iterations are
+         * reported to the workflow. The slot of a simulated iteration is released as soon as everything started
+         * within the iteration is finished (or failed), not when its first node returns.
+         */
+        scheduler.stream(iterations, maxNumberThreads, getRank(frame), loopCounter -> () -> {
+
+            /* The input of the iteration is only created once it is started */
+            Map<String, Object> input = iterationInput(distributedInputs, loopCounter);
+            ExecutionFrame iteration = frame.newIteration(this, loopCounter, maxLoopCounter, customConcurrencyLimit);
+            if (kernel == null) {
+                return runIteration(iteration, input, startTime);
             }
 
-            /* Pass results to the children (if there is an output value left) */
-            if (i < outValuesForChildren.size()) {
-                node.passResult(outValuesForChildren.get(i));
-            }
+            /* A simulated iteration is continued as soon as it gets one of the slots of the loop */
+            scheduler.whenComplete(kernel.start(loopCounter, startTime),
+                    slotStart -> runIteration(iteration, input, slotStart), getRank(frame));
+            return true;
+        }, kernel != null ? kernel::release : null);
 
-            /* Execute the child node */
-            futures.add(exec.submit(node));
-        }
+        return true;
+    }
 
-        /* Wait for all children to finish */
-        for (Future<Boolean> future : futures) {
-            future.get();
-        }
+    /**
+     * Runs a single iteration of the loop body.
+     *
+     * @param iteration the frame of the iteration.
+     * @param input     the input values of the iteration ({@code null} if there is no value left for it).
+     * @param startTime the starting time of the iteration used in simulation (0 if it is not known yet).
+     *
+     * @return True on success, False otherwise
+     *
+     * @throws Exception on failure
+     */
+    private Boolean runIteration(ExecutionFrame iteration, Map<String, Object> input, long startTime) throws Exception {
+        Node node = children.get(0);
+        node.setStartTime(iteration, startTime);
 
-        /* Terminate executor */
-        exec.shutdown();
+        /* Pass results to the iteration (if there is an output value left) */
+        if (input != null) {
+            node.passResult(iteration, input);
+        }
+        return node.call(iteration);
+    }
 
-        return true;
+    /**
+     * Determines how many iterations of a simulated loop may run at the same time. This is the concurrency limit of
+     * the loop or the lowest maximum concurrency of the providers of the simulated functions in the body.
+     *
+     * @param simulation       the simulation run of the loop.
+     * @param concurrencyLimit the concurrency limit of the loop (-1 if there is none).
+     *
+     * @return the number of concurrent iterations ({@code -1} if there is no limit).
+     *
+     * @throws Exception if the maximum concurrency of a provider cannot be read.
+     */
+    private int simulationSlots(SimulationContext simulation, int concurrencyLimit) throws Exception {
+        int slots = concurrencyLimit == -1 ? Integer.MAX_VALUE : concurrencyLimit;
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Node> pending = new ArrayList<>(children);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            if (node == endNode || !visited.add(node)) {
+                continue;
+            }
+            if (node instanceof SimulationNode) {
+                slots = Math.min(slots, ((SimulationNode) node).getMaxConcurrency(simulation));
+            }
+            pending.addAll(node.getChildren());
+        }
+        return slots == Integer.MAX_VALUE ? -1 : slots;
     }
 
     /**
-     * Adds a specific number of children depending on the values counterStart, counterEnd and counterStepSize.
+     * Determines the number of iterations depending on the values counterStart, counterEnd and counterStepSize.
+     *
+     * @param state the state of the node within the current execution.
      *
-     * @throws MissingInputDataException  on missing input.
-     * @throws CloneNotSupportedException on unsupported clone.
+     * @return the number of iterations.
+     *
+     * @throws MissingInputDataException on missing input.
      */
-    private void addChildren() throws MissingInputDataException, CloneNotSupportedException {
+    private int countIterations(State state) throws MissingInputDataException {
 
         /* Iterate over counter variables and check if there is the according value */
         for (String counterKeyName : counterVariableNames) {
-            if (counterKeyName != null && !counterValues.containsKey(counterKeyName)) {
+            if (counterKeyName != null && !state.counterValues.containsKey(counterKeyName)) {
                 throw new MissingInputDataException(
                         ParallelForStartNode.class.getCanonicalName() + ": " + name + " needs " + counterKeyName + "!");
             }
@@ -279,32 +353,47 @@ public class ParallelForStartNode extends Node {
         // TODO could counterStart, counterEnd and counterStepSize be of type NUMBER?
 
         /* Parse actual value of the defined variables */
+        int start = counterStart;
+        int end = counterEnd;
+        int stepSize = counterStepSize;
         if (counterVariableNames[0] != null) {
-            counterStart = Integer.parseInt((String) counterValues.get(counterVariableNames[0]));
+            start = Integer.parseInt((String) state.counterValues.get(counterVariableNames[0]));
         }
         if (counterVariableNames[1] != null) {
-            counterEnd = ((int) Double.parseDouble(counterValues.get(counterVariableNames[1]).toString()));
+            end = ((int) Double.parseDouble(state.counterValues.get(counterVariableNames[1]).toString()));
         }
         if (counterVariableNames[2] != null) {
-            counterStepSize = Integer.parseInt((String) counterValues.get(counterVariableNames[2]));
+            stepSize = Integer.parseInt((String) state.counterValues.get(counterVariableNames[2]));
         }
+        state.counterEnd = end;
 
         logger.info("Counter values for " + ParallelForStartNode.class.getCanonicalName() + " : " +
-                "counterStart: " + counterStart + ", counterEnd: " + counterEnd + ", stepSize: " + counterStepSize + "");
-
-        /* Search the end node of the parallel-for */
-        ParallelForEndNode endNode = findParallelForEndNode(children.get(0), 0);
+                "counterStart: " + start + ", counterEnd: " + end + ", stepSize: " + stepSize + "");
 
-        /* Add children to the list of children */
-        for (int i = counterStart; i < counterEnd - 1; i += counterStepSize) {
-            Node node = children.get(0).clone(endNode);
-            children.add(node);
+        /* The loop body is executed once for the start value and once for every further step */
+        int iterations = 1;
+        for (int i = start; i < end - 1; i += stepSize) {
+            iterations++;
         }
+        return iterations;
+    }
 
+    /**
+     * Links the matching end node of the parallel-for when the workflow is compiled.
+     */
+    void linkEndNode() {
+        endNode = findParallelForEndNode(this, 0);
         assert endNode != null;
+        endNode.setStartNode(this);
+    }
 
-        /* Set the number all children in the parallel-for */
-        endNode.setNumberOfParents(children.size());
+    /**
+     * Assigns a slot within the frame of an iteration when the workflow is compiled.
+     *
+     * @return the index of the slot.
+     */
+    int nextSlot() {
+        return bodySize++;
     }
 
     /**
@@ -341,77 +430,55 @@ public class ParallelForStartNode extends Node {
     }
 
     /**
-     * Transfers the output values depending on the specified dataFlow type.
+     * Determines how the output values are distributed across the iterations depending on the specified dataFlow
+     * type. The values of an iteration are only created when the iteration is started (see
+     * {@link #iterationInput(List, int)}), so the memory used does not depend on the number of iterations.
      *
+     * @param dataValues The actual input values.
      * @param children  The number of children.
      * @param outValues The output values.
      *
-     * @return the transferred output values.
+     * @return the distributed inputs.
      */
-    private ArrayList<Map<String, Object>> transferOutVals(int children, Map<String, Object> outValues) {
+    private List<DistributedInput> transferOutVals(Map<String, Object> dataValues, int children, Map<String, Object> outValues) {
 
-        ArrayList<Map<String, Object>> values = new ArrayList<>();
+        List<DistributedInput> values = new ArrayList<>();
 
         /* Check if there is an input defined */
         if (dataIns != null) {
 
             /* Iterate over the input data defined in the workflow file */
-            for (DataIns data : dataIns) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataIns data = dataIns.get(i);
 
                 /* Check of there are constraints defined */
                 if (data.getConstraints() != null) {
 
                     /* Check if the actual input is an array */
-                    if (dataValues.get(data.getSource()) instanceof ArrayList || dataValues.get(data.getSource()) instanceof JsonArray) {
+                    Object collection = PayloadStore.resolve(dataValues.get(data.getSource()));
+                    if (collection instanceof CollectionView || collection instanceof JsonArray || collection instanceof ArrayList) {
 
-                        /* Convert the data to an array */
-                        JsonArray dataElements = new Gson().toJsonTree(dataValues.get(data.getSource())).getAsJsonArray();
-
-                        /* Check if a distribution is specified */
-                        List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-                        checkDistributedElements(distributedElements, data, values);
+                        /* Distribute views on the collection, the elements themselves are not copied */
+                        values.add(distributeElements(toView(collection), data, portKeys[i], children));
                     } else {
 
-                        // TODO can the following be simplified and generalized e.g. also for bool etc.?
-                        if (dataValues.get(data.getSource()) instanceof Double) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Double) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof Integer) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Integer) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof Boolean) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Boolean) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof String) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((String) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof LinkedTreeMap) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add(new Gson().toJson(dataValues.get(data.getSource())));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
+                        /* A single value is distributed as collection with one element */
+                        Object value = PayloadStore.resolve(dataValues.get(data.getSource()));
+                        JsonArray dataElements = new JsonArray();
+                        if (value instanceof LinkedTreeMap) {
+                            dataElements.add(DataType.toJsonString(value));
+                        } else if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+                            dataElements.add(DataType.toJson(value));
                         } else {
-                            throw new NotImplementedException("Not implemented: " + dataValues.get(data.getSource()).getClass());
+                            throw new NotImplementedException("Not implemented: " + value.getClass());
                         }
+                        values.add(distributeElements(CollectionView.of(dataElements), data, portKeys[i], children));
                     }
                 } else {
 
                     /* Check if data should be passed */
                     if (data.getPassing() != null && data.getPassing()) {
-                        passData(outValues, data, children, values);
+                        passData(outValues, data, portKeys[i], children, values);
                     }
                 }
             }
@@ -420,119 +487,77 @@ public class ParallelForStartNode extends Node {
     }
 
     /**
-     * Pass the data to the next successor.
+     * Creates the input values of an iteration.
      *
-     * @param outValues   output values.
-     * @param data        input data specified in the workflow file.
-     * @param numChildren number of children.
-     * @param values      where the data should be added.
+     * @param values      the distributed inputs.
+     * @param loopCounter the number of the iteration.
+     *
+     * @return the input values or {@code null} if there is no value left for the iteration.
      */
-    private void passData(Map<String, Object> outValues, DataIns data, int numChildren, ArrayList<Map<String, Object>> values) {
-
-        /* Check if the output contains the specified key */
-        if (outValues.containsKey(name + "/" + data.getName())) {
-
-            /* Iterate over all children */
-            for (int i = 0; i < numChildren; i++) {
-
-                /* Check if there is data for the specified child */
-                if (values.size() > i) {
-                    values.get(i).put(data.getName(), outValues.get(name + "/" + data.getName()));
-                } else {
-                    Map<String, Object> tmp = new HashMap<>();
-                    tmp.put(data.getName(), outValues.get(name + "/" + data.getName()));
-                    values.add(i, tmp);
+    private static Map<String, Object> iterationInput(List<DistributedInput> values, int loopCounter) {
+        Map<String, Object> input = null;
+        for (DistributedInput value : values) {
+            if (loopCounter < value.iterations) {
+                if (input == null) {
+                    input = new HashMap<>();
                 }
+                input.put(value.key, value.get(loopCounter));
             }
-        } else {
-            logger.error("Cannot Pass data {}. No such matching value could be found", data.getName());
         }
+        return input;
     }
 
     /**
-     * Check for the distribution of data elements.
+     * Returns a view on the given collection. Json arrays and views are used as they are, other collections are
+     * converted to a json array first.
+     *
+     * @param collection the collection.
      *
-     * @param distributedElements input list of distributed elements.
-     * @param data                the dataIns specified in the workflow file.
-     * @param values              result which are transferred.
+     * @return the view on the collection.
      */
-    private void checkDistributedElements(List<JsonArray> distributedElements, DataIns data, ArrayList<Map<String, Object>> values) {
-
-        /* Iterate over all distributed elements */
-        for (int i = 0; i < distributedElements.size(); i++) {
-
-            Object block = distributedElements.get(i);
-            if (distributedElements.get(i).size() == 1) {
-
-                /* Extract a single value */
-                JsonArray arr = distributedElements.get(i);
-                if("number".equals(data.getType())){
-                    block = arr.get(0).getAsInt();
-                } else if("bool".equals(data.getType())){
-                    block = arr.get(0).getAsBoolean();
-                } else {
-                    block = arr.get(0).getAsString();
-                }
-            }
-
-            // TODO check if this should be dynamic
-            /* Define the key which should be used */
-            String key = name + "/" + data.getName();
-
-            /* Check if there are enough values */
-            if (values.size() > i) {
-
-                /* Use the child map we already created for another DataIns port */
-                values.get(i).put(key, block);
-            } else {
-
-                /* Create a new map if there are not enough elements */
-                Map<String, Object> map = new HashMap<>();
-                map.put(key, block);
-                // TODO check why i as key?
-                values.add(i, map);
-            }
+    private CollectionView toView(Object collection) {
+        if (collection instanceof CollectionView) {
+            return (CollectionView) collection;
+        } else if (collection instanceof JsonArray) {
+            return CollectionView.of((JsonArray) collection);
         }
+        return CollectionView.of(DataType.toJson(collection).getAsJsonArray());
     }
 
     /**
-     * Distributes the given elements in BLOCK mode. The collection is split into blocks of the given size.
-     *
-     * @param elements  The data elements to distribute.
-     * @param blockSize The block size of each block.
+     * Pass the data to the next successor.
      *
-     * @return The data blocks in a list.
+     * @param outValues   output values.
+     * @param data        input data specified in the workflow file.
+     * @param key         the key of the input data.
+     * @param numChildren number of children.
+     * @param values      where the data should be added.
      */
-    private List<JsonArray> distributeOutValsBlock(JsonArray elements, int blockSize) {
-        List<JsonArray> blocks = new ArrayList<>();
-        JsonArray currentBlock = new JsonArray();
-
-        /* Iterate over the whole array and distribute the elements to the blocks */
-        for (int i = 0; i < elements.size(); i++) {
-
-            currentBlock.add(elements.get(i));
+    private void passData(Map<String, Object> outValues, DataIns data, String key, int numChildren, List<DistributedInput> values) {
 
-            /* Complete the current block if it is full or we ran out of elements */
-            if (currentBlock.size() >= blockSize || i == (elements.size() - 1)) {
-                blocks.add(currentBlock);
-                currentBlock = new JsonArray();
-            }
+        /* Check if the output contains the specified key, it is passed to all children */
+        if (outValues.containsKey(key)) {
+            values.add(new DistributedInput(data.getName(), null, outValues.get(key), 0, numChildren));
+        } else {
+            logger.error("Cannot Pass data {}. No such matching value could be found", data.getName());
         }
-
-        return blocks;
     }
 
     /**
-     * Distributes the given data elements across loop iterations taking into account the given constraints.
+     * Distributes the given data elements across loop iterations taking into account the constraints of the data
+     * input. The iterations get views on the elements, so the costs depend neither on the number of iterations nor
+     * on the number of elements.
      *
      * @param dataElements the data elements to distribute
-     * @param constraints  the constraints to consider
+     * @param data         the dataIns specified in the workflow file
+     * @param key          the key of the dataIns
      * @param children     the number of children (iterations)
      *
-     * @return a list containing the distributed elements
+     * @return the distributed elements
      */
-    protected List<JsonArray> distributeElements(JsonArray dataElements, List<PropertyConstraint> constraints,
-                                                 int children) {
+    private DistributedInput distributeElements(CollectionView dataElements, DataIns data, String key, int children) {
+        List<PropertyConstraint> constraints = data.getConstraints();
+
         /* Check for unknown constraints */
         for (PropertyConstraint constraint : constraints) {
             if ("element-index".equals(constraint.getName()) || "distribution".equals(constraint.getName())) {
@@ -547,26 +572,23 @@ public class ParallelForStartNode extends Node {
 
             /* Create a subset of the collection using the indices specified in the element-index constraint */
             List<Integer> indices = ElementIndex.parseIndices(elementIndexConstraint.getValue());
-            JsonArray subset = new JsonArray(indices.size());
-            for (Integer i : indices) {
-                subset.add(dataElements.get(i));
-            }
-            dataElements = subset;
+            dataElements = dataElements.select(indices);
         }
 
         /* Check for the distribute constraint */
-        List<JsonArray> distributedElements;
         PropertyConstraint distributionConstraint = getPropertyConstraintByName(constraints, "distribution");
         if (distributionConstraint != null) {
 
             /* Check for a block distribution */
             if (distributionConstraint.getValue().contains("BLOCK")) {
 
-                /* Get the defined block size */
-                int blockSize = Integer.parseInt(distributionConstraint.getValue().replaceAll("[^0-9?!.]", ""));
-
-                /* Distribute the elements */
-                distributedElements = distributeOutValsBlock(dataElements, blockSize);
+                /*
+                 * Get the defined block size, the last block contains the remaining elements. A block contains at
+                 * least one element (also for BLOCK(0)).
+                 */
+                int blockSize = Math.max(1, Integer.parseInt(distributionConstraint.getValue().replaceAll("[^0-9?!.]", "")));
+                int blocks = (dataElements.size() + blockSize - 1) / blockSize;
+                return new DistributedInput(key, data.getType(), dataElements, blockSize, blocks);
             } else if (distributionConstraint.getValue().contains("REPLICATE")) {
 
                 /* Determine the number of times the data should be replicated */
@@ -576,26 +598,15 @@ public class ParallelForStartNode extends Node {
                 } else {
                     replicaSize = Integer.parseInt(distributionConstraint.getValue().replaceAll("[^0-9?!.]", ""));
                 }
-
-                /* Create an array of that specific size */
-                distributedElements = new ArrayList<>();
-                for (int i = 0; i < replicaSize; i++) {
-                    distributedElements.add(dataElements);
-                }
+                return new DistributedInput(key, data.getType(), dataElements, 0, replicaSize);
             } else {
                 throw new NotImplementedException("Distribution type for " + distributionConstraint.getValue()
                         + " not implemented.");
             }
-        } else {
-
-            /* Provide the same elements to each child if no distribution constraint is specified */
-            distributedElements = new ArrayList<>();
-            for (int i = 0; i < children; i++) {
-                distributedElements.add(dataElements);
-            }
         }
 
-        return distributedElements;
+        /* Provide the same elements to each child if no distribution constraint is specified */
+        return new DistributedInput(key, data.getType(), dataElements, 0, children);
     }
 
     /**
@@ -620,10 +631,19 @@ public class ParallelForStartNode extends Node {
      */
 
     @Override
-    public Map<String, Object> getResult() {
+    public Map<String, Object> getResult(ExecutionFrame frame) {
         return null;
     }
 
+    @Override
+    protected NodeState newState() {
+        return new State();
+    }
+
+    public int getBodySize() {
+        return bodySize;
+    }
+
     public List<DataIns> getDataIns() {
         return dataIns;
     }
@@ -631,4 +651,97 @@ public class ParallelForStartNode extends Node {
     public void setDataIns(List<DataIns> dataIns) {
         this.dataIns = dataIns;
     }
+
+    public SimulationKernel getSimulationKernel(ExecutionFrame frame) {
+        return ((State) getState(frame)).kernel;
+    }
+
+    /**
+     * A data input distributed across the iterations of the loop.
+     */
+    private static final class DistributedInput {
+
+        /**
+         * The key of the value within the input of an iteration.
+         */
+        private final String key;
+
+        /**
+         * The data type of the distributed elements ({@code null} if the value is passed as it is).
+         */
+        private final String type;
+
+        /**
+         * The distributed elements or the passed value.
+         */
+        private final Object value;
+
+        /**
+         * The number of elements per iteration (0 if every iteration gets the whole value).
+         */
+        private final int blockSize;
+
+        /**
+         * The number of iterations getting a value.
+         */
+        private final int iterations;
+
+        DistributedInput(String key, String type, Object value, int blockSize, int iterations) {
+            this.key = key;
+            this.type = type;
+            this.value = value;
+            this.blockSize = blockSize;
+            this.iterations = iterations;
+        }
+
+        /**
+         * Returns the value of an iteration. A single distributed element is passed as value instead of a collection.
+         *
+         * @param loopCounter the number of the iteration.
+         *
+         * @return the value of the iteration.
+         */
+        Object get(int loopCounter) {
+            if (!(value instanceof CollectionView)) {
+                return value;
+            }
+            CollectionView elements = (CollectionView) value;
+            if (blockSize > 0) {
+                int from = loopCounter * blockSize;
+                elements = elements.subList(from, Math.min(from + blockSize, elements.size()));
+            }
+            if (elements.size() != 1) {
+                return elements;
+            }
+
+            /* Extract a single value */
+            if ("number".equals(type)) {
+                return elements.get(0).getAsInt();
+            } else if ("bool".equals(type)) {
+                return elements.get(0).getAsBoolean();
+            }
+            return elements.get(0).getAsString();
+        }
+    }
+
+    /**
+     * State of a parallel-for-start node within a single execution.
+     */
+    static class State extends NodeState {
+
+        /**
+         * The actual values of the counter variables.
+         */
+        private Map<String, Object> counterValues;
+
+        /**
+         * The actual end value of the loop counter.
+         */
+        private int counterEnd;
+
+        /**
+         * The simulation kernel of the loop ({@code null} if the loop is not simulated).
+         */
+        private volatile SimulationKernel kernel;
+    }
 }
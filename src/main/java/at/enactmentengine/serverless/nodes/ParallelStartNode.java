@@ -1,17 +1,14 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * Control node which manages the tasks at the start of a parallel loop.
@@ -25,19 +22,14 @@ public class ParallelStartNode extends Node {
      * Logger for the parallel-start node.
      */
     static final Logger logger = LoggerFactory.getLogger(ParallelStartNode.class);
-    /**
-     * The maximum number of threads running in parallel
-     */
-    private static final int MAX_NUMBER_THREADS = 1000;
-
-    /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
-     */
-    public long isAfterParallelForNode = -1;
     /**
      * The input defined within the workflow file.
      */
     private List<DataIns> definedInput;
+    /**
+     * The keys of the inputs passed to the children (resolved when the workflow is compiled).
+     */
+    private String[] portKeys;
 
     /**
      * Default constructor for the parallel-start node.
@@ -52,11 +44,22 @@ public class ParallelStartNode extends Node {
     }
 
     /**
-     * Checks the dataValues and creates a thread pool for the execution of the
-     * children.
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, definedInput, DataIns::getName);
+    }
+
+    /**
+     * Checks the dataValues and submits the children to the scheduler of the
+     * workflow.
+     *
+     * @param frame the frame of the execution.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        NodeState state = getState(frame);
 
         final Map<String, Object> outValues = new HashMap<>();
 
@@ -64,75 +67,51 @@ public class ParallelStartNode extends Node {
         if (definedInput != null) {
 
             /* Iterate over the possible inputs and look for defined ones */
-            for (DataIns data : definedInput) {
-                if (!dataValues.containsKey(data.getSource())) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataIns data = definedInput.get(i);
+                if (!state.dataValues.containsKey(data.getSource())) {
                     throw new MissingInputDataException(ParallelStartNode.class.getCanonicalName() + ": " + name
                             + " needs " + data.getSource() + "!");
                 } else {
-                    outValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    outValues.put(portKeys[i], state.dataValues.get(data.getSource()));
                 }
             }
         }
 
         logger.info("Executing {} ParallelStartNodeOld", name);
 
-        /* Create an executor service to manage parallel running threads */
-        ExecutorService exec = Executors
-                .newFixedThreadPool(children.size() > MAX_NUMBER_THREADS ? MAX_NUMBER_THREADS : children.size());
+        /* Use the scheduler of the workflow to run the children in parallel */
+        WorkflowScheduler scheduler = WorkflowScheduler.current();
 
-        long simNodes = 0;
-        /* Pass data to all children and execute them */
-        List<Future<Boolean>> futures = new ArrayList<>();
+        /*
+         * Pass data to all children and execute them. The branches are joined by the end node, so the start node
+         * does not wait for them and failures of the branches are reported to the workflow.
+         */
         for (Node node : children) {
-            if (node instanceof SimulationNode) {
-                simNodes++;
-            }
-            node.passResult(outValues);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
-            }
-            futures.add(exec.submit(node));
-        }
-
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            for (Node node : children) {
-                if (node instanceof IfStartNode) {
-                    ((IfStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof ParallelStartNode) {
-                    ((ParallelStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof SwitchStartNode) {
-                    ((SwitchStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof SimulationNode) {
-                    ((SimulationNode) node).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                }
+            node.passResult(frame, outValues);
+            if (frame.getSimulation() != null) {
+                node.setStartTime(frame, state.startTime);
             }
+            scheduler.submit(() -> node.call(frame), node.getRank(frame));
         }
 
-        /* Wait for all children to finish */
-        for (Future<Boolean> future : futures) {
-            future.get();
-        }
-        exec.shutdown();
-
         return true;
     }
 
     /**
      *  Saves the passed result as dataValues.
      *
+     * @param frame the frame of the execution.
      * @param input to be passed
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        NodeState state = getState(frame);
+        synchronized (state) {
 
             /* Check if the map containing the actual values is already defined */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
+            if (state.dataValues == null) {
+                state.dataValues = new HashMap<>();
             }
 
             /* Check if there is an input defined */
@@ -141,7 +120,7 @@ public class ParallelStartNode extends Node {
                 /* Iterate over the defined input and look for a match with the actual value */
                 for (DataIns data : definedInput) {
                     if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                        state.dataValues.put(data.getSource(), input.get(data.getSource()));
                     }
                 }
             }
@@ -151,70 +130,12 @@ public class ParallelStartNode extends Node {
     /**
      * Return the result of the parallel-start node.
      *
-     * @return null because a start node does not return anything.
-     */
-    @Override
-    public Map<String, Object> getResult() {
-        return null;
-    }
-
-    /**
-     * Clones this node and its children.
+     * @param frame the frame of the execution.
      *
-     * @param endNode end node.
-     *
-     * @return cloned node.
-     * @throws CloneNotSupportedException on failure.
+     * @return null because a start node does not return anything.
      */
     @Override
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-        Node node = (Node) super.clone();
-
-        /* Find children nodes */
-        node.children = new ArrayList<>();
-        for (int i = 0; i < children.size(); i++) {
-            Node currNode = children.get(i).clone(endNode);
-            node.children.add(currNode);
-            if (i == 0) {
-                endNode = findParallelEndNode(currNode, 0);
-            }
-        }
-
-        return node;
-    }
-
-    /**
-     * Finds the matching parallel-end node recursively.
-     *
-     * @param currentNode the start node to search for.
-     * @param depth of the parallel nesting
-     *
-     * @return found parallel-end node.
-     */
-    private Node findParallelEndNode(Node currentNode, int depth) {
-
-        /* Iterate over all children */
-        for (Node child : currentNode.getChildren()) {
-
-            /* Check if end node is found */
-            if (child instanceof ParallelEndNode) {
-
-                /* Check if dept is correct */
-                if (depth == 0) {
-                    return child;
-                } else {
-                    return findParallelEndNode(child, depth - 1);
-                }
-            } else if (child instanceof ParallelStartNode) {
-
-                /* Another nested parallel node detected */
-                return findParallelEndNode(child, depth + 1);
-            } else {
-
-                /* Another (compound or base) function detected */
-                return findParallelEndNode(child, depth);
-            }
-        }
+    public Map<String, Object> getResult(ExecutionFrame frame) {
         return null;
     }
 }
@@ -5,6 +5,7 @@ import at.enactmentengine.serverless.object.PairResult;
 import at.enactmentengine.serverless.object.QuadrupleResult;
 import at.enactmentengine.serverless.object.Utils;
 import at.enactmentengine.serverless.simulation.ServiceSimulationModel;
+import at.enactmentengine.serverless.simulation.SimulationContext;
 import at.enactmentengine.serverless.simulation.SimulationModel;
 import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
@@ -16,7 +17,6 @@ import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import at.uibk.dps.cronjob.ManualUpdate;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.exception.InvokationFailureException;
 import at.uibk.dps.exception.LatestFinishingTimeException;
 import at.uibk.dps.exception.LatestStartingTimeException;
@@ -24,7 +24,6 @@ import at.uibk.dps.exception.MaxRunningTimeException;
 import at.uibk.dps.function.Function;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Provider;
-import at.uibk.dps.util.Type;
 import com.google.gson.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class which handles the simulation of a function.
@@ -48,7 +48,7 @@ public class SimulationNode extends Node {
     /**
      * The number of executed functions.
      */
-    private static int counter = 0;
+    private static final AtomicInteger counter = new AtomicInteger();
     /**
      * The deployment of the Atomic Function.
      */
@@ -61,14 +61,6 @@ public class SimulationNode extends Node {
      * The properties of the simulation node.
      */
     private final List<PropertyConstraint> properties;
-    /**
-     * The id of the current function.
-     */
-    private int id;
-    /**
-     * The execution id of the workflow (needed to log the execution).
-     */
-    private int executionId;
     /**
      * Output of the simulation node.
      */
@@ -80,27 +72,17 @@ public class SimulationNode extends Node {
     private List<DataIns> input;
 
     /**
-     * The result of the simulation node.
+     * The keys of the inputs (resolved when the workflow is compiled).
      */
-    private Map<String, Object> result;
+    private String[] inputKeys;
 
     /**
-     * String containing some info that is used for logging.
+     * The keys of the outputs (resolved when the workflow is compiled).
      */
-    private String simInfo;
-
-    /**
-     * Counts the amount of functions that are executed in parallel in a parallel section.
-     */
-    private long amountParallelFunctions = -1;
+    private String[] outputKeys;
 
     private List<String> serviceStrings;
 
-    /**
-     * String containing the times of the simulated services.
-     */
-    private String serviceOutput;
-
     /**
      * Signals whether a session overhead should be added.
      */
@@ -116,18 +98,16 @@ public class SimulationNode extends Node {
      * @param constraints        of the base function.
      * @param input              to the base function.
      * @param output             of the base function.
-     * @param executionId        for the logging of the simulation.
      * @param useSessionOverhead if a session overhead should be added
      */
     public SimulationNode(String name, String type, String deployment, List<PropertyConstraint> properties, List<PropertyConstraint> constraints,
-                          List<DataIns> input, List<DataOutsAtomic> output, int executionId, boolean useSessionOverhead) {
+                          List<DataIns> input, List<DataOutsAtomic> output, boolean useSessionOverhead) {
         super(name, type);
         this.deployment = deployment;
         this.output = output;
         this.properties = properties;
         this.constraints = constraints;
         this.input = input;
-        this.executionId = executionId;
         if (output == null) {
             this.output = new ArrayList<>();
         }
@@ -135,6 +115,23 @@ public class SimulationNode extends Node {
         this.useSessionOverhead = useSessionOverhead;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        inputKeys = portKeys(name, input, DataIns::getName);
+        outputKeys = portKeys(name, output, DataOutsAtomic::getName);
+    }
+
+    /**
+     * Estimates the duration of the function by the average round trip time of its deployment.
+     */
+    @Override
+    long estimateDuration() {
+        return estimateFunctionDuration(properties);
+    }
+
     /**
      * Extracts the memory size, region, provider and function name of the deployment string.
      *
@@ -165,15 +162,17 @@ public class SimulationNode extends Node {
     /**
      * Sets the dataValues and passes the result to all children.
      *
+     * @param frame the frame of the execution.
      * @param input to the child functions.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        NodeState state = getState(frame);
+        synchronized (state) {
             try {
-                dataValues = input;
+                state.dataValues = input;
                 for (Node node : children) {
-                    node.passResult(input);
+                    node.passResult(frame, input);
                 }
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
@@ -184,27 +183,34 @@ public class SimulationNode extends Node {
     /**
      * Get the result of a simulation node.
      *
+     * @param frame the frame of the execution.
      * @return result of the base function.
      */
     @Override
-    public Map<String, Object> getResult() {
-        return result;
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).result;
     }
 
     /**
      * Checks the inputs, invokes function and passes results to children.
      *
+     * @param frame the frame of the execution.
      * @return boolean representing success of the node execution.
      *
      * @throws Exception on failure.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        State state = getState(frame);
+        state.simulation = frame.getSimulation();
+        ExecutionFrame scope = frame.forNode(this);
+        state.seed = SimulationContext.seed(scope.getSeed(), getSlot());
+        state.draws = 0;
+        state.loopCounter = scope.getLoopCounter();
+        state.maxLoopCounter = scope.getMaxLoopCounter();
 
         /* The identifier for the current function */
-        synchronized (this) {
-            id = counter++;
-        }
+        state.id = counter.getAndIncrement();
 
         /* Read the resource link of the base function */
         String resourceLink = Utils.getResourceLink(properties, this);
@@ -212,12 +218,12 @@ public class SimulationNode extends Node {
         String region = Utils.detectRegion(resourceLink);
         Provider deploymentProvider = null;
         String deploymentRegion;
-        simInfo = " for provider '" + provider.toString() + "' in region '" + region + "'";
+        state.simInfo = " for provider '" + provider.toString() + "' in region '" + region + "'";
         if (deployment != null) {
             List<String> elements = extractValuesFromDeployment(deployment);
             deploymentRegion = elements.get(1);
             deploymentProvider = Provider.valueOf(elements.get(2));
-            simInfo = " for provider '" + deploymentProvider + "' in region '" + deploymentRegion + "'";
+            state.simInfo = " for provider '" + deploymentProvider + "' in region '" + deploymentRegion + "'";
         }
         // Check that the provider is either AWS, Google or IBM
         if ((provider != Provider.AWS && provider != Provider.GOOGLE && provider != Provider.IBM) ||
@@ -231,46 +237,33 @@ public class SimulationNode extends Node {
         }
         // if the function is within a parallelFor, add the loopId to the logs
         String loopId = "";
-        if (inLoop()) {
-            loopId = ", loopId=" + loopCounter;
+        if (inLoop(state)) {
+            loopId = ", loopId=" + state.loopCounter;
         }
-        simInfo += ", id=" + id + loopId;
-        logger.info("Simulating function " + name + " at resource: " + resourceLink + simInfo);
+        state.simInfo += ", id=" + state.id + loopId;
+        logger.info("Simulating function " + name + " at resource: " + resourceLink + state.simInfo);
 
         /* Parse function with optional constraints and properties */
-        Function functionToInvoke = Utils.parseFTConstraints(resourceLink, null, constraints, type, name, loopCounter);
+        Function functionToInvoke = Utils.parseFTConstraints(resourceLink, null, constraints, type, name, state.loopCounter);
 
         // parseFTConstraints returns null if there are no constraints set
         // since it will be executed without FT, only the resourceLink is needed
         if (functionToInvoke == null) {
-            functionToInvoke = new Function(resourceLink, name, type, loopCounter, null);
+            functionToInvoke = new Function(resourceLink, name, type, state.loopCounter, null);
         }
         functionToInvoke.setDeployment(deployment);
 
         /* Simulate function */
-        QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simResult = simulateFunction(functionToInvoke);
+        QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simResult = simulateFunction(state, functionToInvoke);
 
         // set the result of the simulation as the result of the SimulationNode
-        result = simResult.getOutput();
-
-        if (this.input != null) {
-            for (DataIns in : this.input) {
-                if (in.getPassing() != null && in.getPassing()) {
-                    this.output.add(new DataOutsAtomic(in.getName(), in.getType()));
-                }
-            }
-        }
+        state.result = simResult.getOutput();
 
         /* Pass the output to the next node */
         for (Node node : children) {
-            node.passResult(result);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime + simResult.getRTT());
-            }
-            node.call();
+            node.passResult(frame, state.result);
+            node.setStartTime(frame, state.startTime + simResult.getRTT());
+            node.call(frame);
         }
 
         return true;
@@ -279,6 +272,7 @@ public class SimulationNode extends Node {
     /**
      * Simulates the base function.
      *
+     * @param state the state of the node within the execution
      * @param functionToSimulate the base function which should be simulated.
      *
      * @return a QuadrupleResult containing the round trip time, cost, output and success of the simulated function
@@ -298,7 +292,7 @@ public class SimulationNode extends Node {
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      * @throws AlternativeStrategyException         if simulating the alternative strategy fails
      */
-    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFunction(Function functionToSimulate)
+    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFunction(State state, Function functionToSimulate)
             throws NoDatabaseEntryForIdException, NotYetInvokedException, InvokationFailureException, LatestFinishingTimeException,
             LatestStartingTimeException, MaxRunningTimeException, SQLException, RegionDetectionException, MissingResourceLinkException,
             MissingComputationalWorkException, MissingSimulationParametersException, AlternativeStrategyException {
@@ -309,24 +303,24 @@ public class SimulationNode extends Node {
         if (functionToSimulate.hasConstraintSet() || functionToSimulate.hasFTSet()) {
             // simulate with FT
             logger.info("Simulating function with fault tolerance...");
-            result = simulateFunctionFT(functionToSimulate);
+            result = simulateFunctionFT(state, functionToSimulate);
 
         } else {
-            startTime = startTime == 0 ? getStartingTime() : startTime;
-            result = getSimulationResult(resourceLink, functionToSimulate.getDeployment());
+            state.startTime = state.startTime == 0 ? getStartingTime(state) : state.startTime;
+            result = getSimulationResult(state, resourceLink, functionToSimulate.getDeployment());
             Event event = null;
             if (result.isSuccess()) {
                 if (useSessionOverhead) {
-                    result.setRTT(result.getRTT() + MetadataStore.get().getProviderEntry(Provider.AWS).getSessionOverheadms());
+                    result.setRTT(result.getRTT() + state.simulation.getMetadata().getProviderEntry(Provider.AWS).getSessionOverheadms());
                 }
                 event = Event.FUNCTION_END;
-                logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), simInfo);
+                logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), state.simInfo);
             } else {
                 event = Event.FUNCTION_FAILED;
-                logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
+                logger.info("Simulating function {} failed{}.", resourceLink, state.simInfo);
             }
-            MongoDBAccess.saveLog(event, resourceLink, functionToSimulate.getDeployment(), getName(), functionToSimulate.getType(), this.serviceOutput,
-                    result.getRTT(), result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+            state.simulation.saveLog(event, resourceLink, functionToSimulate.getDeployment(), getName(), functionToSimulate.getType(), state.serviceOutput,
+                    result.getRTT(), result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
         }
 
         return result;
@@ -335,6 +329,7 @@ public class SimulationNode extends Node {
     /**
      * Simulates a function with FT.
      *
+     * @param state the state of the node within the execution
      * @param function to simulate
      *
      * @return a QuadrupleResult containing the round trip time, cost, output and success of the simulated function
@@ -354,7 +349,7 @@ public class SimulationNode extends Node {
      * @throws AlternativeStrategyException         if simulating the alternative strategy fails
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFunctionFT(Function function)
+    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFunctionFT(State state, Function function)
             throws LatestStartingTimeException, InvokationFailureException, LatestFinishingTimeException, MaxRunningTimeException,
             NoDatabaseEntryForIdException, NotYetInvokedException, SQLException, RegionDetectionException, MissingResourceLinkException,
             MissingComputationalWorkException, AlternativeStrategyException, MissingSimulationParametersException {
@@ -362,14 +357,14 @@ public class SimulationNode extends Node {
 
         if (function != null) {
             if (function.hasConstraintSet()) {
-                Timestamp timeAtStart = new Timestamp(startTime == 0 ? getStartingTime() : startTime);
+                Timestamp timeAtStart = new Timestamp(state.startTime == 0 ? getStartingTime(state) : state.startTime);
                 if (function.getConstraints().hasLatestStartingTime()) {
                     if (timeAtStart.after(function.getConstraints().getLatestStartingTime())) {
                         throw new LatestStartingTimeException("latestStartingTime constraint missed!");
                     }
                     if (!function.getConstraints().hasLatestFinishingTime()
                             && !function.getConstraints().hasMaxRunningTime()) {
-                        quadrupleResult = simulateFT(function);
+                        quadrupleResult = simulateFT(state, function);
 
                         if (!quadrupleResult.isSuccess()) {
                             throw new InvokationFailureException("Invocation has failed");
@@ -379,7 +374,7 @@ public class SimulationNode extends Node {
                     }
                 }
 
-                quadrupleResult = simulateFT(function);
+                quadrupleResult = simulateFT(state, function);
 
                 if (quadrupleResult.isSuccess()) {
                     // check maxRunningTime
@@ -403,7 +398,7 @@ public class SimulationNode extends Node {
                 }
             } else {
                 // no constraints
-                quadrupleResult = simulateFT(function);
+                quadrupleResult = simulateFT(state, function);
                 if (!quadrupleResult.isSuccess()) {
                     throw new InvokationFailureException("Invocation has failed");
                 } else {
@@ -419,6 +414,7 @@ public class SimulationNode extends Node {
     /**
      * Helper method to simulate a function with FT.
      *
+     * @param state the state of the node within the execution
      * @param function to simulate
      *
      * @return a QuadrupleResult containing the round trip time, cost, output and success of the simulated function
@@ -433,38 +429,38 @@ public class SimulationNode extends Node {
      * @throws AlternativeStrategyException         if simulating the alternative strategy fails
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFT(Function function)
+    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFT(State state, Function function)
             throws NoDatabaseEntryForIdException, NotYetInvokedException, SQLException, RegionDetectionException,
             MissingResourceLinkException, MissingComputationalWorkException, AlternativeStrategyException, MissingSimulationParametersException {
-        startTime = startTime == 0 ? getStartingTime() : startTime;
+        state.startTime = state.startTime == 0 ? getStartingTime(state) : state.startTime;
         String resourceLink = function.getUrl();
-        QuadrupleResult<Long, Double, Map<String, Object>, Boolean> result = getSimulationResult(resourceLink, function.getDeployment());
+        QuadrupleResult<Long, Double, Map<String, Object>, Boolean> result = getSimulationResult(state, resourceLink, function.getDeployment());
 
         if (!result.isSuccess()) {
-            logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
-            MongoDBAccess.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                    result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+            logger.info("Simulating function {} failed{}.", resourceLink, state.simInfo);
+            state.simulation.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
+                    result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
             if (function.hasFTSet()) {
                 logger.info("##############  First invocation has failed, retrying " + function.getFTSettings().getRetries() +
                         " times.  ##############");
                 for (int i = 0; i < function.getFTSettings().getRetries(); i++) {
                     // increment the starting time by the previous RTT
-                    startTime += result.getRTT();
-                    result = getSimulationResult(resourceLink, function.getDeployment());
+                    state.startTime += result.getRTT();
+                    result = getSimulationResult(state, resourceLink, function.getDeployment());
                     if (result.isSuccess()) {
-                        logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), simInfo);
-                        MongoDBAccess.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                                result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                        logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), state.simInfo);
+                        state.simulation.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
+                                result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
                         return result;
                     }
-                    logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
-                    MongoDBAccess.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                            result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                    logger.info("Simulating function {} failed{}.", resourceLink, state.simInfo);
+                    state.simulation.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
+                            result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
                 }
                 // Failed after all retries. Check for alternative Strategy
                 if (function.getFTSettings().hasAlternativeStartegy()) {
                     // AlternativeStrategy has correct Result
-                    return simulateAlternativeStrategy(function);
+                    return simulateAlternativeStrategy(state, function);
                 } else {
                     // no alternativeStrategy set so failure
                     return new QuadrupleResult<>(null, null, null, false);
@@ -474,15 +470,16 @@ public class SimulationNode extends Node {
                 return result;
             }
         }
-        logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), simInfo);
-        MongoDBAccess.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+        logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), state.simInfo);
+        state.simulation.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
+                result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
         return result;
     }
 
     /**
      * Simulates the alternativeStrategy of a given function.
      *
+     * @param state the state of the node within the execution
      * @param function to simulate the alternativeStrategy
      *
      * @return a QuadrupleResult containing the round trip time, cost, output and success of the simulated function
@@ -497,7 +494,7 @@ public class SimulationNode extends Node {
      *                                              filled
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateAlternativeStrategy(Function function)
+    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateAlternativeStrategy(State state, Function function)
             throws NoDatabaseEntryForIdException, NotYetInvokedException, AlternativeStrategyException, SQLException,
             RegionDetectionException, MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
 
@@ -508,12 +505,12 @@ public class SimulationNode extends Node {
                 HashMap<String, QuadrupleResult<Long, Double, Map<String, Object>, Boolean>> tempResults = new HashMap<>();
                 List<String> tempDeployments = new ArrayList<>();
                 QuadrupleResult<Long, Double, Map<String, Object>, Boolean> result;
-                startTime = startTime == 0 ? getStartingTime() : startTime;
+                state.startTime = state.startTime == 0 ? getStartingTime(state) : state.startTime;
                 int j = 0;
                 logger.info("##############  Trying Alternative Plan " + i + "  ##############");
                 for (Function alternativeFunction : alternativePlan) {
                     logger.info("##############  Trying Alternative Function " + j + "  ##############");
-                    result = getSimulationResult(alternativeFunction.getUrl(), alternativeFunction.getDeployment());
+                    result = getSimulationResult(state, alternativeFunction.getUrl(), alternativeFunction.getDeployment());
                     tempResults.put(alternativeFunction.getUrl(), result);
                     tempDeployments.add(alternativeFunction.getDeployment());
                     j++;
@@ -538,8 +535,8 @@ public class SimulationNode extends Node {
                 List<String> elements;
                 String alternateInfo;
                 String loopId = "";
-                if (inLoop()) {
-                    loopId = ", loopId=" + loopCounter;
+                if (inLoop(state)) {
+                    loopId = ", loopId=" + state.loopCounter;
                 }
                 j = 0;
                 // check if at least one function simulated successfully
@@ -547,38 +544,38 @@ public class SimulationNode extends Node {
                     // go through the executed functions to log that they were "canceled"
                     for (Map.Entry<String, QuadrupleResult<Long, Double, Map<String, Object>, Boolean>> set : tempResults.entrySet()) {
                         elements = extractValuesFromDeployment(tempDeployments.get(j));
-                        alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + id + loopId;
+                        alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + state.id + loopId;
 
                         if (!set.getKey().equals(url) && (set.getValue().getRTT() >= result.getRTT())) {
                             // they were "canceled" after the fastest function finished, therefore the RTT of the
                             // result is the RTT of the canceled function
                             logger.info("Canceled simulation of function {} after {}ms{}.", set.getKey(), result.getRTT(), alternateInfo);
-                            MongoDBAccess.saveLog(Event.FUNCTION_CANCELED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                    result.getRTT(), result.getCost(), false, loopCounter, maxLoopCounter, startTime, Type.SIM);
+                            state.simulation.saveLog(Event.FUNCTION_CANCELED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
+                                    result.getRTT(), result.getCost(), false, state.loopCounter, state.maxLoopCounter, state.startTime);
                         } else if (!set.getValue().isSuccess()) {
                             // if a function was unsuccessful AND it ran shorter than the fastest successful one
                             logger.info("Simulating function {} failed{}.", set.getKey(), alternateInfo);
-                            MongoDBAccess.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                    set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                            state.simulation.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
+                                    set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
                         }
                         j++;
                     }
                     elements = extractValuesFromDeployment(depl);
-                    alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + id + loopId;
+                    alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + state.id + loopId;
                     // log the fastest successful function
                     logger.info("Simulating function {} took {}ms{}.", url, result.getRTT(), alternateInfo);
-                    MongoDBAccess.saveLog(Event.FUNCTION_END, url, depl, getName(), function.getType(), null, result.getRTT(),
-                            result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                    state.simulation.saveLog(Event.FUNCTION_END, url, depl, getName(), function.getType(), null, result.getRTT(),
+                            result.getCost(), result.isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
                     return result;
                 } else {
                     // no function was successful, log their failures
                     for (Map.Entry<String, QuadrupleResult<Long, Double, Map<String, Object>, Boolean>> set : tempResults.entrySet()) {
                         elements = extractValuesFromDeployment(tempDeployments.get(j));
-                        alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + id + loopId;
+                        alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + state.id + loopId;
 
                         logger.info("Simulating function {} failed{}.", set.getKey(), alternateInfo);
-                        MongoDBAccess.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                        state.simulation.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
+                                set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), state.loopCounter, state.maxLoopCounter, state.startTime);
                         j++;
                     }
                 }
@@ -619,6 +616,7 @@ public class SimulationNode extends Node {
     /**
      * Calculates the RTT of a given function.
      *
+     * @param state the state of the node within the execution
      * @param entry            the entry from the database
      * @param success          if the simulation is success or not
      * @param deploymentString the deployment string of the function
@@ -631,7 +629,7 @@ public class SimulationNode extends Node {
      *                                              filled
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private PairResult<Long, Double> calculateRoundTripTime(FunctionDeployment entry, Boolean success, String deploymentString) throws SQLException,
+    private PairResult<Long, Double> calculateRoundTripTime(State state, FunctionDeployment entry, Boolean success, String deploymentString) throws SQLException,
             RegionDetectionException, MissingComputationalWorkException, MissingSimulationParametersException {
         PairResult<Long, Double> result = null;
         List<String> elements;
@@ -646,9 +644,9 @@ public class SimulationNode extends Node {
             memory = Integer.parseInt(elements.get(0));
             region = elements.get(1);
             provider = Provider.valueOf(elements.get(2));
-            providerEntry = MetadataStore.get().getProviderEntry(provider);
+            providerEntry = state.simulation.getMetadata().getProviderEntry(provider);
         } else {
-            providerEntry = MetadataStore.get().getProviderEntry(Utils.detectProvider(entry.getKmsArn()));
+            providerEntry = state.simulation.getMetadata().getProviderEntry(Utils.detectProvider(entry.getKmsArn()));
         }
         concurrencyOverhead = providerEntry.getConcurrencyOverheadMs();
 
@@ -656,9 +654,9 @@ public class SimulationNode extends Node {
         // simulate in the same region and with the same memory
         if (deploymentString == null || deploymentsAreTheSame(entry, memory, provider, region)) {
             // simply read from the values from the DB without calculating them again
-            result = extractRttAndCost(success, concurrencyOverhead, entry);
+            result = extractRttAndCost(state, success, concurrencyOverhead, entry);
         } else {
-            List<FunctionDeployment> similarDeployments = MetadataStore.get().getDeploymentsWithImplementationId(
+            List<FunctionDeployment> similarDeployments = state.simulation.getMetadata().getDeploymentsWithImplementationId(
                     entry.getFunctionImplementationId());
             // indicates if a similar deployment was found
             boolean similar = false;
@@ -666,7 +664,7 @@ public class SimulationNode extends Node {
             if (similarDeployments != null && !similarDeployments.isEmpty()) {
                 Long sameRegionAndMemory = null;
                 Long sameMemory = null;
-                Region regionEntry = MetadataStore.get().getRegionEntry(region, provider);
+                Region regionEntry = state.simulation.getMetadata().getRegionEntry(region, provider);
 
                 for (FunctionDeployment similarDeployment : similarDeployments) {
                     similar = true;
@@ -684,15 +682,15 @@ public class SimulationNode extends Node {
 
                 FunctionDeployment similarResult;
                 if (sameRegionAndMemory != null) {
-                    similarResult = MetadataStore.get().getDeploymentById(sameRegionAndMemory);
-                    result = extractRttAndCost(success, concurrencyOverhead, similarResult);
+                    similarResult = state.simulation.getMetadata().getDeploymentById(sameRegionAndMemory);
+                    result = extractRttAndCost(state, success, concurrencyOverhead, similarResult);
                 } else if (sameMemory != null) {
                     // always prefer the given entry if they have the same memory size
                     if (memory == entry.getMemorySize()) {
                         sameMemory = entry.getId();
                     }
-                    similarResult = MetadataStore.get().getDeploymentById(sameMemory);
-                    SimulationModel model = new SimulationModel(similarResult, provider, region, memory, loopCounter);
+                    similarResult = state.simulation.getMetadata().getDeploymentById(sameMemory);
+                    SimulationModel model = new SimulationModel(state.simulation, nextSeed(state), similarResult, provider, region, memory, state.loopCounter);
                     result = model.simulateRoundTripTime(success);
                 } else {
                     similar = false;
@@ -701,7 +699,7 @@ public class SimulationNode extends Node {
 
             if (!similar) {
                 // simulate
-                SimulationModel model = new SimulationModel(entry, provider, region, memory, loopCounter);
+                SimulationModel model = new SimulationModel(state.simulation, nextSeed(state), entry, provider, region, memory, state.loopCounter);
                 result = model.simulateRoundTripTime(success);
             }
         }
@@ -711,13 +709,13 @@ public class SimulationNode extends Node {
             jFaaS.utils.PairResult<String, Long> simResult = null;
 
             if (region == null) {
-                simResult = ServiceSimulationModel.calculateTotalRttForUsedServices(entry.getRegionId().intValue(), serviceStrings);
+                simResult = ServiceSimulationModel.calculateTotalRttForUsedServices(state.simulation.getMetadata(), entry.getRegionId().intValue(), serviceStrings);
             } else {
-                simResult = ServiceSimulationModel.calculateTotalRttForUsedServices(entry.getRegionId().intValue(), region, serviceStrings);
+                simResult = ServiceSimulationModel.calculateTotalRttForUsedServices(state.simulation.getMetadata(), entry.getRegionId().intValue(), region, serviceStrings);
             }
 
             result.setRtt(result.getRtt() + simResult.getRTT());
-            this.serviceOutput = simResult.getResult();
+            state.serviceOutput = simResult.getResult();
         }
 
         return result;
@@ -726,6 +724,7 @@ public class SimulationNode extends Node {
     /**
      * Extracts the rtt and cost of the given entry.
      *
+     * @param state the state of the node within the execution
      * @param success             if the simulation is successful
      * @param concurrencyOverhead of the provider of the function
      * @param entry               to extract the values
@@ -734,7 +733,7 @@ public class SimulationNode extends Node {
      *
      * @throws SQLException if an error occurs when reading fields from a database entry
      */
-    private PairResult<Long, Double> extractRttAndCost(Boolean success, int concurrencyOverhead, FunctionDeployment entry) throws SQLException {
+    private PairResult<Long, Double> extractRttAndCost(State state, Boolean success, int concurrencyOverhead, FunctionDeployment entry) throws SQLException {
         long rtt = entry.getAvgRTT().longValue();
         double cost = entry.getAvgCost();
         int averageLoopCounter = entry.getAvgLoopCounter();
@@ -742,12 +741,12 @@ public class SimulationNode extends Node {
         if (concurrencyOverhead != 0 && averageLoopCounter != 0) {
             rtt -= (long) concurrencyOverhead * averageLoopCounter;
         }
-        if (loopCounter != -1 && concurrencyOverhead != 0) {
-            rtt += (long) loopCounter * concurrencyOverhead;
+        if (state.loopCounter != -1 && concurrencyOverhead != 0) {
+            rtt += (long) state.loopCounter * concurrencyOverhead;
         }
 
-        rtt = SimulationModel.applyDistribution(rtt, success);
-        SimulationParameters.workflowCost += cost;
+        rtt = SimulationModel.applyDistribution(rtt, success, state.simulation, nextSeed(state));
+        state.simulation.addCost(cost);
         return new PairResult<>(rtt, cost);
     }
 
@@ -759,24 +758,24 @@ public class SimulationNode extends Node {
      */
     private Map<String, Object> getFunctionOutput() {
         HashMap<String, Object> outputs = new HashMap<>();
-        for (DataOutsAtomic out : new ArrayList<>(output)) {
+        for (int i = 0; i < outputKeys.length; i++) {
+            DataOutsAtomic out = output.get(i);
             if (out.getProperties() != null && !out.getProperties().isEmpty()) {
                 for (PropertyConstraint constraint : out.getProperties()) {
                     if (constraint.getName().equals("simValue")) {
-                        parseOutputValues(out, constraint, outputs, false);
+                        parseOutputValues(out, outputKeys[i], constraint, outputs, false);
                     }
                 }
             } else {
                 // if no properties are set, fill with default values
-                parseOutputValues(out, null, outputs, true);
+                parseOutputValues(out, outputKeys[i], null, outputs, true);
             }
         }
 
-        if (this.input != null) {
-            for (DataIns in : new ArrayList<>(this.input)) {
-                if (in.getPassing() != null && in.getPassing()) {
-                    parseOutputValues(new DataOutsAtomic(in.getName(), in.getType()), null, outputs, true);
-                }
+        for (int i = 0; i < inputKeys.length; i++) {
+            DataIns in = input.get(i);
+            if (in.getPassing() != null && in.getPassing()) {
+                parseOutputValues(new DataOutsAtomic(in.getName(), in.getType()), inputKeys[i], null, outputs, true);
             }
         }
 
@@ -788,11 +787,12 @@ public class SimulationNode extends Node {
      * Number: 1, String: "", Collection: [], Boolean: False
      *
      * @param out        the DataOutsAtomic
+     * @param key        the key of the output
      * @param constraint the constraint of a DataOutsAtomic
      * @param outputs    the map to put the results
      * @param useDefault if it is set, a default value is used for the output
      */
-    private void parseOutputValues(DataOutsAtomic out, PropertyConstraint constraint, HashMap<String, Object> outputs, boolean useDefault) {
+    private void parseOutputValues(DataOutsAtomic out, String key, PropertyConstraint constraint, HashMap<String, Object> outputs, boolean useDefault) {
         String numStr = null;
         if (!useDefault) {
             numStr = constraint.getValue();
@@ -811,28 +811,28 @@ public class SimulationNode extends Node {
                 } else {
                     throw new NumberFormatException("Given value is not a number.");
                 }
-                outputs.put(name + "/" + out.getName(), num);
+                outputs.put(key, num);
                 break;
             case "string":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), "");
+                    outputs.put(key, "");
                 } else {
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString(constraint.getValue()));
+                    outputs.put(key, JsonParser.parseString(constraint.getValue()));
                 }
                 break;
             case "collection":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString("[]").getAsJsonArray());
+                    outputs.put(key, JsonParser.parseString("[]").getAsJsonArray());
                 } else {
                     // array stays array to later decide which type
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString(numStr).getAsJsonArray());
+                    outputs.put(key, JsonParser.parseString(numStr).getAsJsonArray());
                 }
                 break;
             case "bool":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), Boolean.FALSE);
+                    outputs.put(key, Boolean.FALSE);
                 } else {
-                    outputs.put(name + "/" + out.getName(), Boolean.valueOf(constraint.getValue()));
+                    outputs.put(key, Boolean.valueOf(constraint.getValue()));
                 }
                 break;
             default:
@@ -842,23 +842,23 @@ public class SimulationNode extends Node {
     }
 
     /**
-     * Simulates whether the function returns as expected or yields an error. If the parameter IGNORE_FT in
-     * {@link SimulationParameters} is true, it always returns true.
+     * Simulates whether the function returns as expected or yields an error. If the parameter ignoreFT in the
+     * {@link SimulationParameters} of the run is true, it always returns true.
      *
+     * @param state the state of the node within the execution
      * @param entry the entry from the database
      *
      * @return true if function simulation is successful, false otherwise
      *
      * @throws SQLException if an error occurs when reading fields from a database entry
      */
-    private Boolean simulateOutcome(FunctionDeployment entry) throws SQLException {
-        if (SimulationParameters.IGNORE_FT) {
+    private Boolean simulateOutcome(State state, FunctionDeployment entry) throws SQLException {
+        if (state.simulation.getParameters().isIgnoreFT()) {
             return true;
         }
         double successRate = entry.getSuccessRate();
         // get a random double between 0 and 1
-        Random random = new Random();
-        double randomValue = random.nextDouble();
+        double randomValue = SimulationContext.uniform(state.seed, state.draws++);
 
         // if the random value is smaller than the success rate, the invocation was successful
         return randomValue < successRate;
@@ -867,6 +867,7 @@ public class SimulationNode extends Node {
     /**
      * Returns the RTT, output and success of the simulation of a function.
      *
+     * @param state the state of the node within the execution
      * @param resourceLink     the url of the function to simulate
      * @param deploymentString the deployment string for the function
      *
@@ -880,23 +881,24 @@ public class SimulationNode extends Node {
      *                                              filled
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> getSimulationResult(String resourceLink, String deploymentString)
+    private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> getSimulationResult(State state, String resourceLink, String deploymentString)
             throws NoDatabaseEntryForIdException, NotYetInvokedException, SQLException, RegionDetectionException,
             MissingComputationalWorkException, MissingSimulationParametersException {
-        FunctionDeployment fd = MetadataStore.get().getFunctionIdEntry(resourceLink);
+        FunctionDeployment fd = state.simulation.getMetadata().getFunctionIdEntry(resourceLink);
 
         if (fd == null) {
             throw new DatabaseException("No function deployment was found for resource link: " + resourceLink);
         }
 
         if (fd.getInvocations() == 0) {
-            if (!MetadataStore.USE_JSON_METADATA) {
+            if (!state.simulation.getMetadata().usesJsonMetadata()) {
                 logger.info("Refreshing database to check for an invocation for '" + resourceLink + "'. This could take a moment.");
                 ManualUpdate.main(null);
-                fd = MetadataStore.get().getFunctionIdEntry(resourceLink);
+                MetadataStore.refreshed();
+                fd = state.simulation.getMetadata().getFunctionIdEntry(resourceLink);
             }
             if (fd.getInvocations() == 0) {
-                FunctionImplementation fi = MetadataStore.get().getImplementationById(fd.getFunctionImplementationId());
+                FunctionImplementation fi = state.simulation.getMetadata().getImplementationById(fd.getFunctionImplementationId());
                 if (fi.getComputationWork() == 0) {
                     throw new NotYetInvokedException("The function with id '" + resourceLink + "' has not been executed yet and " +
                             "no computation work is given for the function implementation. Either execute the function at least " +
@@ -905,75 +907,122 @@ public class SimulationNode extends Node {
             }
         }
 
-        Boolean success = simulateOutcome(fd);
-        PairResult<Long, Double> result = calculateRoundTripTime(fd, success, deploymentString);
+        Boolean success = simulateOutcome(state, fd);
+        PairResult<Long, Double> result = calculateRoundTripTime(state, fd, success, deploymentString);
         return new QuadrupleResult<>(result.getRtt(), result.getCost(), getFunctionOutput(), success);
     }
 
     /**
      * Checks if the current node is within a parallelFor.
      *
+     * @param state the state of the node within the execution
+     *
      * @return true if it is within a parallelFor, false otherwise
      */
-    private boolean inLoop() {
-        return loopCounter != -1;
+    private boolean inLoop(State state) {
+        return state.loopCounter != -1;
     }
 
     /**
-     * Returns the starting time of a function depending on the already executed functions of the workflow.
+     * Returns the starting time of a function which was not reached by any predecessor, which is the start of the
+     * simulated workflow. All other functions start at the latest finish time of their predecessors (see
+     * {@link Node#setStartTime}).
+     *
+     * @param state the state of the node within the execution
      *
      * @return the start time in milliseconds
+     */
+    private long getStartingTime(State state) {
+        return state.simulation.getStart();
+    }
+
+    /**
+     * Returns the maximum concurrency of the provider of the function.
+     *
+     * @param simulation the simulation run of the function
+     *
+     * @return the maximum number of concurrent invocations
      *
      * @throws MissingResourceLinkException if no resource link is given
      * @throws SQLException                 if an error occurs when reading fields from a database entry
      */
-    private long getStartingTime() throws MissingResourceLinkException, SQLException {
-        long start;
+    int getMaxConcurrency(SimulationContext simulation) throws MissingResourceLinkException, SQLException {
+        Provider provider = Utils.detectProvider(Utils.getResourceLink(properties, this));
+        return simulation.getMetadata().getProviderEntry(provider).getMaxConcurrency();
+    }
 
-        if (loopCounter == -1) {
-            start = MongoDBAccess.getLastEndDateOverall();
-        } else {
-            String resourceLink = Utils.getResourceLink(properties, this);
-            Provider provider = Utils.detectProvider(resourceLink);
-            at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-            int maxConcurrency = providerEntry.getMaxConcurrency();
-            if (loopCounter > maxConcurrency - 1 || (concurrencyLimit != -1 && loopCounter > concurrencyLimit - 1)) {
-                start = -1;
-                while (start == -1) {
-                    start = SimulationParameters.getStartTime(amountParallelFunctions, loopCounter, null);
-                    if (startTime != 0) {
-                        start = startTime;
-                    }
-                    // wait to give other threads to opportunity to access the synchronized method
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-            } else {
-                start = MongoDBAccess.getLastEndDateOutOfLoop();
-            }
-        }
-        if (start == 0) {
-            start = System.currentTimeMillis();
-        }
-        return start;
+    public boolean hasSessionOverhead() {
+        return useSessionOverhead;
     }
 
-    public long getAmountParallelFunctions() {
-        return amountParallelFunctions;
+    public void setUseSessionOverhead(boolean useSessionOverhead) {
+        this.useSessionOverhead = useSessionOverhead;
     }
 
-    public synchronized void setAmountParallelFunctions(long amountParallelFunctions) {
-        this.amountParallelFunctions = amountParallelFunctions;
+    /**
+     * Derives the seed of the next random draw of the node (e.g. for a distribution or a simulation model).
+     *
+     * @param state the state of the node within the execution
+     *
+     * @return the seed of the draw
+     */
+    private static long nextSeed(State state) {
+        return SimulationContext.seed(state.seed, state.draws++);
     }
 
-    public boolean hasSessionOverhead() {
-        return useSessionOverhead;
+    @Override
+    protected NodeState newState() {
+        return new State();
     }
 
-    public void setUseSessionOverhead(boolean useSessionOverhead) {
-        this.useSessionOverhead = useSessionOverhead;
+    /**
+     * State of a simulation node within a single execution.
+     */
+    static class State extends NodeState {
+
+        /**
+         * The id of the current function.
+         */
+        private int id;
+
+        /**
+         * The number of the iteration if the node is within a parallelFor.
+         */
+        private int loopCounter = -1;
+
+        /**
+         * The end of the enclosing parallelFor.
+         */
+        private int maxLoopCounter = -1;
+
+        /**
+         * The result of the simulation node.
+         */
+        private volatile Map<String, Object> result;
+
+        /**
+         * String containing some info that is used for logging.
+         */
+        private String simInfo;
+
+        /**
+         * String containing the times of the simulated services.
+         */
+        private String serviceOutput;
+
+        /**
+         * The simulation run the node belongs to.
+         */
+        private SimulationContext simulation;
+
+        /**
+         * The seed of the random numbers of the node, derived from the seed of the run and the position of the node.
+         */
+        private long seed;
+
+        /**
+         * The number of random numbers drawn so far.
+         */
+        private long draws;
     }
 }
@@ -26,11 +26,10 @@ public class SwitchEndNode extends Node {
      * Output defined in the workflow file.
      */
     private List<DataOuts> dataOuts;
-
     /**
-     * Actual result of the switch construct.
+     * The keys of the outputs (resolved when the workflow is compiled).
      */
-    private Map<String, Object> switchResult = new HashMap<>();
+    private String[] portKeys;
 
 
     /**
@@ -44,12 +43,21 @@ public class SwitchEndNode extends Node {
         this.dataOuts = dataOuts;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, dataOuts, DataOuts::getName);
+    }
+
     /**
      * Passes the results to the children if one parent has finished. No
      * synchronization needed because always just one switch case can be executed.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        State state = getState(frame);
 
         logger.info("Executing {} SwitchEndNodeOld", name);
         Map<String, Object> outputValues = new HashMap<>();
@@ -58,30 +66,29 @@ public class SwitchEndNode extends Node {
         if(dataOuts != null){
 
             /* Iterate over the possible outputs and look for defined ones */
-            for (DataOuts data : dataOuts) {
-                for (Entry<String, Object> inputElement : switchResult.entrySet()) {
-                    outputValues.put(name + "/" + data.getName(), inputElement.getValue());
+            for (int i = 0; i < portKeys.length; i++) {
+                DataOuts data = dataOuts.get(i);
+                for (Entry<String, Object> inputElement : state.switchResult.entrySet()) {
+                    outputValues.put(portKeys[i], inputElement.getValue());
                 }
             }
         }
 
         if (outputValues.size() == 0 && dataOuts != null) {
-            for (DataOuts data : dataOuts) {
+            for (int i = 0; i < portKeys.length; i++) {
+                DataOuts data = dataOuts.get(i);
                 if (data.getSource().contains("NULL")) {
-                    outputValues.put(name + "/" + data.getName(), "NULL");
+                    outputValues.put(portKeys[i], "NULL");
                 }
 
             }
         }
         for (Node node : children) {
-            node.passResult(outputValues);
-            if (getLoopCounter() != -1) {
-                node.setLoopCounter(loopCounter);
-                node.setMaxLoopCounter(maxLoopCounter);
-                node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
+            node.passResult(frame, outputValues);
+            if (frame.getSimulation() != null) {
+                node.setStartTime(frame, state.startTime);
             }
-            node.call();
+            node.call(frame);
         }
         return true;
     }
@@ -90,13 +97,14 @@ public class SwitchEndNode extends Node {
      * Sets the passed result for the switch element.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        State state = getState(frame);
+        synchronized (state) {
             if(dataOuts != null){
                 for (DataOuts data : dataOuts) {
                     for (Entry<String, Object> inputElement : input.entrySet()) {
                         if (data.getSource().contains(inputElement.getKey())) {
-                            switchResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                            state.switchResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
                         }
                     }
                 }
@@ -107,29 +115,26 @@ public class SwitchEndNode extends Node {
     }
 
     /**
-     * Clones this node and its children. Cloning is needed for ParallelFor
-     * branches.
-     *
-     * @param endNode end node.
-     * @return cloned node.
-     * @throws CloneNotSupportedException on failure.
+     * Returns the result.
      */
     @Override
-    public Node clone(Node endNode) throws CloneNotSupportedException {
-
-        /* Clone the node */
-        SwitchEndNode node = (SwitchEndNode) super.clone();
-        node.switchResult = new HashMap<>();
+    public Map<String, Object> getResult(ExecutionFrame frame) {
+        return ((State) getState(frame)).switchResult;
+    }
 
-        return node;
+    @Override
+    protected NodeState newState() {
+        return new State();
     }
 
     /**
-     * Returns the result.
+     * State of a switch-end node within a single execution.
      */
-    @Override
-    public Map<String, Object> getResult() {
-        return switchResult;
-    }
+    static class State extends NodeState {
 
+        /**
+         * Actual result of the switch construct.
+         */
+        private final Map<String, Object> switchResult = new HashMap<>();
+    }
 }
@@ -2,6 +2,7 @@ package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
 import at.enactmentengine.serverless.exception.NoSwitchCaseFulfilledException;
+import at.enactmentengine.serverless.payload.PayloadStore;
 import at.uibk.dps.afcl.functions.objects.Case;
 import at.uibk.dps.afcl.functions.objects.DataEval;
 import at.uibk.dps.afcl.functions.objects.DataIns;
@@ -19,11 +20,11 @@ import java.util.Map;
  */
 public class SwitchStartNode extends Node {
     static final Logger logger = LoggerFactory.getLogger(SwitchStartNode.class);
+    private List<DataIns> dataIns;
     /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
+     * The keys of the inputs passed to the children (resolved when the workflow is compiled).
      */
-    public long isAfterParallelForNode = -1;
-    private List<DataIns> dataIns;
+    private String[] portKeys;
     private List<Case> cases;
     private DataEval dataEval;
 
@@ -34,91 +35,61 @@ public class SwitchStartNode extends Node {
         this.cases = cases;
     }
 
+    /**
+     * Resolves the keys of the data ports when the workflow is compiled.
+     */
+    @Override
+    void resolvePorts() {
+        portKeys = portKeys(name, dataIns, DataIns::getName);
+    }
+
     /**
      * Checks the dataValues and parses the switch condition. Depending on the input
      * values a different switch case is executed.
      */
     @Override
-    public Boolean call() throws Exception {
+    public Boolean call(ExecutionFrame frame) throws Exception {
+        NodeState state = getState(frame);
         final Map<String, Object> switchInputValues = new HashMap<>();
-        for (DataIns data : dataIns) {
-            if (!dataValues.containsKey(data.getSource())) {
+        for (int i = 0; i < portKeys.length; i++) {
+            DataIns data = dataIns.get(i);
+            if (!state.dataValues.containsKey(data.getSource())) {
                 throw new MissingInputDataException(
                         SwitchStartNode.class.getCanonicalName() + ": " + name + " needs " + data.getSource() + "!");
             } else {
-                switchInputValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                switchInputValues.put(portKeys[i], state.dataValues.get(data.getSource()));
             }
         }
-        if (!dataValues.containsKey(dataEval.getSource())) {
+        if (!state.dataValues.containsKey(dataEval.getSource())) {
             throw new MissingInputDataException(
                     SwitchStartNode.class.getCanonicalName() + ": " + name + " needs " + dataEval.getSource() + "!");
         }
 
         logger.info("Executing {} SwitchStartNodeOld", name);
 
-        long simNodes = 0;
-        Object switchValue = parseSwitchCondition();
+        Object switchValue = parseSwitchCondition(state);
         // goes through all cases and executes a case if the switch value matches this
         // case
         for (int i = 0; i < cases.size(); i++) {
             if (caseMatches(cases.get(i).getValue(), switchValue)) {
                 logger.info("Switch case {} fulfilled with value {}", cases.get(i).getValue(), switchValue);
-                children.get(i).passResult(switchInputValues);
-                if (children.get(i) instanceof SimulationNode) {
-                    simNodes++;
+                children.get(i).passResult(frame, switchInputValues);
+                if (frame.getSimulation() != null) {
+                    children.get(i).setStartTime(frame, state.startTime);
                 }
-                if (getLoopCounter() != -1) {
-                    children.get(i).setLoopCounter(loopCounter);
-                    children.get(i).setMaxLoopCounter(maxLoopCounter);
-                    children.get(i).setConcurrencyLimit(concurrencyLimit);
-                    children.get(i).setStartTime(startTime);
-                }
-                children.get(i).call();
+                children.get(i).call(frame);
                 return true;
             } else if (children.size() > cases.size()) {
-                if (children.get(i) instanceof SimulationNode) {
-                    simNodes++;
-                }
                 logger.info("Switch default case is executed.");
-                children.get(children.size() - 1).passResult(switchInputValues);
-                if (getLoopCounter() != -1) {
-                    children.get(children.size() - 1).setLoopCounter(loopCounter);
-                    children.get(children.size() - 1).setMaxLoopCounter(maxLoopCounter);
-                    children.get(children.size() - 1).setConcurrencyLimit(concurrencyLimit);
-                    children.get(children.size() - 1).setStartTime(startTime);
+                children.get(children.size() - 1).passResult(frame, switchInputValues);
+                if (frame.getSimulation() != null) {
+                    children.get(children.size() - 1).setStartTime(frame, state.startTime);
                 }
-                children.get(children.size() - 1).call();
+                children.get(children.size() - 1).call(frame);
                 return true;
             }
         }
 
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            for (int i = 0; i < cases.size(); i++) {
-                if (caseMatches(cases.get(i).getValue(), switchValue)) {
-                    if (children.get(i) instanceof IfStartNode) {
-                        ((IfStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof ParallelStartNode) {
-                        ((ParallelStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof SwitchStartNode) {
-                        ((SwitchStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof SimulationNode) {
-                        ((SimulationNode) children.get(i)).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                    }
-                } else if (children.size() > cases.size()) {
-                    if (children.get(children.size() - 1) instanceof IfStartNode) {
-                        ((IfStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof ParallelStartNode) {
-                        ((ParallelStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof SwitchStartNode) {
-                        ((SwitchStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof SimulationNode) {
-                        ((SimulationNode) children.get(i)).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                    }
-                }
-            }
-        }
-
         throw new NoSwitchCaseFulfilledException(
                 "No matching switch case found for value " + switchValue + " in node " + name);
     }
@@ -146,14 +117,15 @@ public class SwitchStartNode extends Node {
     /**
      * Parses the input value for the switch condition.
      *
+     * @param state the state of the node within the execution.
      * @return A string or an integer with the value.
      */
-    private Object parseSwitchCondition() {
+    private Object parseSwitchCondition(NodeState state) {
         switch (dataEval.getType()) {
             case "string":
-                return dataValues.get(dataEval.getSource());
+                return PayloadStore.resolve(state.dataValues.get(dataEval.getSource()));
             case "number":
-                return dataValues.get(dataEval.getSource());
+                return state.dataValues.get(dataEval.getSource());
             default:
                 logger.info("Unknown type for condition data type {}", dataEval.getType());
         }
@@ -165,26 +137,26 @@ public class SwitchStartNode extends Node {
      * Sets the passed result as data values.
      */
     @Override
-    public void passResult(Map<String, Object> input) {
-        synchronized (this) {
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
+    public void passResult(ExecutionFrame frame, Map<String, Object> input) {
+        NodeState state = getState(frame);
+        synchronized (state) {
+            if (state.dataValues == null) {
+                state.dataValues = new HashMap<>();
             }
             for (DataIns data : dataIns) {
                 if (input.containsKey(data.getSource())) {
-                    dataValues.put(data.getSource(), input.get(data.getSource()));
+                    state.dataValues.put(data.getSource(), input.get(data.getSource()));
                 }
             }
             if (input.containsKey(dataEval.getSource())) {
-                dataValues.put(dataEval.getSource(), input.get(dataEval.getSource()));
+                state.dataValues.put(dataEval.getSource(), input.get(dataEval.getSource()));
             }
         }
 
     }
 
     @Override
-    public Map<String, Object> getResult() {
+    public Map<String, Object> getResult(ExecutionFrame frame) {
         return null;
     }
-
 }
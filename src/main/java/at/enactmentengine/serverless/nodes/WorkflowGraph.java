@@ -0,0 +1,187 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.object.ListPair;
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, immutable node graph of a workflow. While compiling, every node is assigned a slot within its scope
+ * (the workflow or the body of the enclosing parallelFor loop), which is used to look up the state of the node in an
+ * {@link ExecutionFrame}. A graph is shared by all executions of the workflow.
+ * <p>
+ * If {@link EngineScheduler#CRITICAL_PATH} is set, the nodes are additionally ranked by the estimated time from their
+ * start to the end of the workflow (see {@link #rankNodes()}), so nodes on the critical path can be preferred when the
+ * workflow has to wait for free slots. The ranks are passed to every execution instead of being stored in the nodes.
+ * They are computed on first use and kept until the metadata is refreshed, so executions of cached plans do not look
+ * up the metadata again.
+ */
+public class WorkflowGraph {
+
+    /**
+     * Start node of the workflow.
+     */
+    private final Node startNode;
+
+    /**
+     * End node of the workflow.
+     */
+    private final Node endNode;
+
+    /**
+     * The name of the workflow.
+     */
+    private final String workflowName;
+
+    /**
+     * The expected workflow input (written in the .yaml file).
+     */
+    private final List<DataIns> definedInput;
+
+    /**
+     * The keys of the expected workflow input (in the order of the defined input).
+     */
+    private final String[] inputKeys;
+
+    /**
+     * The number of nodes which are not within a parallelFor loop.
+     */
+    private int size;
+
+    /**
+     * The ranks of the nodes ({@code null} until the nodes are ranked for the first time).
+     */
+    private volatile Ranks ranks;
+
+    /**
+     * Default constructor to compile a workflow graph.
+     *
+     * @param workflowName name of the workflow.
+     * @param workflow     node list pair of workflow elements.
+     * @param definedInput expected workflow inputs.
+     */
+    public WorkflowGraph(String workflowName, ListPair<Node, Node> workflow, List<DataIns> definedInput) {
+        this.startNode = workflow.getStart();
+        this.endNode = workflow.getEnd();
+        this.workflowName = workflowName;
+        this.definedInput = definedInput;
+        this.inputKeys = Node.portKeys(workflowName, definedInput, DataIns::getName);
+        assignSlots(startNode, null);
+    }
+
+    /**
+     * Assigns the slots of the given node and all of its successors.
+     *
+     * @param node the node to assign.
+     * @param loop the loop whose body contains the node ({@code null} if the node is not within a loop).
+     */
+    private void assignSlots(Node node, ParallelForStartNode loop) {
+
+        /* Nodes with multiple parents are only assigned once */
+        if (node.getSlot() != -1) {
+            return;
+        }
+
+        /* The end of a loop belongs to the same scope as its start */
+        if (node instanceof ParallelForEndNode) {
+            loop = ((ParallelForEndNode) node).getStartNode().getLoop();
+        }
+        node.assignSlot(loop, loop == null ? size++ : loop.nextSlot());
+        node.resolvePorts();
+
+        /* The body of a loop gets its own scope */
+        if (node instanceof ParallelForStartNode) {
+            loop = (ParallelForStartNode) node;
+            loop.linkEndNode();
+        }
+        for (Node child : node.getChildren()) {
+            assignSlots(child, loop);
+        }
+    }
+
+    /**
+     * Ranks all nodes of the workflow by the estimated time from their start to the end of the workflow. The ranks
+     * are computed again if the metadata was refreshed since they were computed last.
+     *
+     * @return the rank of every node in milliseconds.
+     */
+    Map<Node, Long> rankNodes() {
+        long version = MetadataStore.getVersion();
+        Ranks current = ranks;
+        if (current == null || current.version != version) {
+            Map<Node, Long> computed = new IdentityHashMap<>();
+            rank(startNode, computed);
+            current = new Ranks(version, Collections.unmodifiableMap(computed));
+            ranks = current;
+        }
+        return current.ranks;
+    }
+
+    /**
+     * Ranks the given node and all of its successors. The rank of a node is its own estimated duration plus the
+     * highest rank of its children.
+     *
+     * @param node  the node to rank.
+     * @param ranks the already ranked nodes.
+     *
+     * @return the rank of the node.
+     */
+    private static long rank(Node node, Map<Node, Long> ranks) {
+        Long known = ranks.get(node);
+        if (known != null) {
+            return known;
+        }
+        long remaining = 0;
+        for (Node child : node.getChildren()) {
+            remaining = Math.max(remaining, rank(child, ranks));
+        }
+        long rank = node.estimateDuration() + remaining;
+        ranks.put(node, rank);
+        return rank;
+    }
+
+    /** Getter */
+
+    public Node getStartNode() {
+        return startNode;
+    }
+
+    public Node getEndNode() {
+        return endNode;
+    }
+
+    public String getWorkflowName() {
+        return workflowName;
+    }
+
+    public List<DataIns> getDefinedInput() {
+        return definedInput;
+    }
+
+    public String[] getInputKeys() {
+        return inputKeys;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Ranks of the nodes computed with a version of the metadata.
+     */
+    private static final class Ranks {
+
+        private final long version;
+        private final Map<Node, Long> ranks;
+
+        Ranks(long version, Map<Node, Long> ranks) {
+            this.version = version;
+            this.ranks = ranks;
+        }
+    }
+}
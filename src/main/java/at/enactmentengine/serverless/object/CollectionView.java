@@ -0,0 +1,138 @@
+package at.enactmentengine.serverless.object;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view on the elements of a collection. A view either covers a range of the backing array or selects
+ * elements of it by index, so the collection can be distributed to the iterations of a parallelFor without copying
+ * its elements. Since a view is a list, it is serialized like a json array.
+ */
+public class CollectionView extends AbstractList<JsonElement> implements RandomAccess {
+
+    /**
+     * The backing array containing the elements.
+     */
+    private final JsonArray elements;
+
+    /**
+     * The indices of the selected elements within the backing array ({@code null} for a range).
+     */
+    private final int[] indices;
+
+    /**
+     * The start of the range (or within the selected indices).
+     */
+    private final int offset;
+
+    /**
+     * The number of elements of the view.
+     */
+    private final int size;
+
+    private CollectionView(JsonArray elements, int[] indices, int offset, int size) {
+        this.elements = elements;
+        this.indices = indices;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Creates a view on all elements of the given array.
+     *
+     * @param elements the backing array.
+     *
+     * @return the view.
+     */
+    public static CollectionView of(JsonArray elements) {
+        return new CollectionView(elements, null, 0, elements.size());
+    }
+
+    /**
+     * Creates a view selecting the elements with the given indices of this view.
+     *
+     * @param selection the indices of the elements.
+     *
+     * @return the view.
+     *
+     * @throws IndexOutOfBoundsException if an index is not within this view.
+     */
+    public CollectionView select(List<Integer> selection) {
+        int[] selected = new int[selection.size()];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = backingIndex(selection.get(i));
+        }
+        return new CollectionView(elements, selected, 0, selected.length);
+    }
+
+    /**
+     * Returns the elements of this view for the given range.
+     *
+     * @param fromIndex the first element of the range (inclusive).
+     * @param toIndex   the end of the range (exclusive).
+     *
+     * @return the view on the range.
+     */
+    @Override
+    public CollectionView subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") of " + size + " elements");
+        }
+        return new CollectionView(elements, indices, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    @Override
+    public JsonElement get(int index) {
+        return elements.get(backingIndex(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the elements of the view to a new json array.
+     *
+     * @return the json array.
+     */
+    public JsonArray toJsonArray() {
+        JsonArray array = new JsonArray(size);
+        for (int i = 0; i < size; i++) {
+            array.add(get(i));
+        }
+        return array;
+    }
+
+    /**
+     * Returns the given collection as json array. Views are copied, arrays are returned as they are.
+     *
+     * @param collection the collection ({@link JsonArray} or {@link CollectionView}).
+     *
+     * @return the json array.
+     */
+    public static JsonArray toJsonArray(Object collection) {
+        if (collection instanceof CollectionView) {
+            return ((CollectionView) collection).toJsonArray();
+        }
+        return (JsonArray) collection;
+    }
+
+    /**
+     * Maps an index of the view to the index in the backing array.
+     *
+     * @param index the index within the view.
+     *
+     * @return the index within the backing array.
+     */
+    private int backingIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size + " elements");
+        }
+        return indices != null ? indices[offset + index] : offset + index;
+    }
+}
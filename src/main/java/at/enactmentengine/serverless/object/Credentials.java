@@ -0,0 +1,228 @@
+package at.enactmentengine.serverless.object;
+
+import at.uibk.dps.AWSAccount;
+import at.uibk.dps.AzureAccount;
+import at.uibk.dps.FaultToleranceEngine;
+import at.uibk.dps.GoogleFunctionAccount;
+import at.uibk.dps.IBMAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide registry of the provider credentials read from {@link Utils#PATH_TO_CREDENTIALS}. The file is checked
+ * for modifications at most once per {@link #CHECK_INTERVAL} and only read again if it was modified, so reading the
+ * current credentials takes neither a lock nor a file system access. Fault tolerance engines created with the
+ * credentials are reused by later invocations, every engine is only used by one invocation at a time.
+ */
+public final class Credentials {
+
+    /**
+     * Logger for the credentials.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(Credentials.class);
+
+    /**
+     * The time in milliseconds after which the credentials file is checked for modifications again.
+     */
+    public static long CHECK_INTERVAL = 5000;
+
+    /**
+     * The maximum number of idle fault tolerance engines kept for later invocations.
+     */
+    public static int MAX_IDLE_ENGINES = 64;
+
+    /**
+     * The credentials read last.
+     */
+    private static volatile Credentials current;
+
+    /**
+     * The path of the file the credentials were read from.
+     */
+    private final String path;
+
+    /**
+     * The modification time of the file when the credentials were read ({@code -1} if it could not be read).
+     */
+    private final long lastModified;
+
+    /**
+     * The time the file was last checked for modifications.
+     */
+    private volatile long checkedAt;
+
+    /**
+     * The AWS account.
+     */
+    private final AWSAccount awsAccount;
+
+    /**
+     * The IBM account.
+     */
+    private final IBMAccount ibmAccount;
+
+    /**
+     * The Azure account.
+     */
+    private final AzureAccount azureAccount;
+
+    /**
+     * The Google account.
+     */
+    private final GoogleFunctionAccount googleAccount;
+
+    /**
+     * Fault tolerance engines which are currently not used.
+     */
+    private final ConcurrentLinkedQueue<FaultToleranceEngine> idleEngines = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of idle engines.
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Reads the credentials from the given file.
+     *
+     * @param path         the path of the credentials file.
+     * @param lastModified the modification time of the file.
+     */
+    private Credentials(String path, long lastModified) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.checkedAt = System.currentTimeMillis();
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+        awsAccount = new AWSAccount(properties.getProperty("aws_access_key_id"),
+                properties.getProperty("aws_secret_access_key"), properties.getProperty("aws_session_token"));
+        ibmAccount = new IBMAccount(properties.getProperty("ibm_api_key"));
+        azureAccount = new AzureAccount(properties.getProperty("azure_key"));
+        googleAccount = new GoogleFunctionAccount(properties.getProperty("google_sa_key"));
+    }
+
+    /**
+     * Returns the current credentials. The credentials file is read on the first call and whenever it was modified
+     * since it was read last.
+     *
+     * @return the credentials.
+     */
+    public static Credentials get() {
+        Credentials credentials = current;
+        String path = Utils.PATH_TO_CREDENTIALS;
+        if (credentials != null && credentials.isUpToDate(path, System.currentTimeMillis())) {
+            return credentials;
+        }
+        return reload(path);
+    }
+
+    /**
+     * Checks the credentials file for modifications and reads it again if it was modified.
+     *
+     * @param path the path of the credentials file.
+     *
+     * @return the current credentials.
+     */
+    private static synchronized Credentials reload(String path) {
+        Credentials credentials = current;
+        long now = System.currentTimeMillis();
+
+        /* Another thread may have checked the file in the meantime */
+        if (credentials != null && credentials.isUpToDate(path, now)) {
+            return credentials;
+        }
+        long lastModified = lastModified(Paths.get(path));
+        if (credentials == null || !credentials.path.equals(path) || credentials.lastModified != lastModified) {
+            credentials = new Credentials(path, lastModified);
+            current = credentials;
+        }
+        credentials.checkedAt = now;
+        return credentials;
+    }
+
+    /**
+     * Checks whether the credentials were read from the given file and the file was checked recently.
+     *
+     * @param path the path of the credentials file.
+     * @param now  the current time.
+     *
+     * @return true if the file does not have to be checked, false otherwise.
+     */
+    private boolean isUpToDate(String path, long now) {
+        return this.path.equals(path) && now - checkedAt < CHECK_INTERVAL;
+    }
+
+    /**
+     * Takes a fault tolerance engine for a single invocation. The engine has to be handed back with
+     * {@link #release(FaultToleranceEngine)} when the invocation is finished.
+     *
+     * @return an engine which is not used by another invocation.
+     */
+    public FaultToleranceEngine acquireEngine() {
+        FaultToleranceEngine engine = idleEngines.poll();
+        if (engine != null) {
+            idleCount.decrementAndGet();
+            return engine;
+        }
+        return new FaultToleranceEngine(googleAccount, azureAccount, awsAccount, ibmAccount);
+    }
+
+    /**
+     * Hands back an engine taken with {@link #acquireEngine()}, so it can be used by later invocations. At most
+     * {@link #MAX_IDLE_ENGINES} engines are kept, further engines are dropped.
+     *
+     * @param engine the engine.
+     */
+    public void release(FaultToleranceEngine engine) {
+        if (idleCount.incrementAndGet() <= MAX_IDLE_ENGINES) {
+            idleEngines.offer(engine);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the modification time of a file.
+     *
+     * @param file the file.
+     *
+     * @return the modification time or {@code -1} if the file does not exist.
+     */
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /** Getter */
+
+    public AWSAccount getAwsAccount() {
+        return awsAccount;
+    }
+
+    public IBMAccount getIbmAccount() {
+        return ibmAccount;
+    }
+
+    public AzureAccount getAzureAccount() {
+        return azureAccount;
+    }
+
+    public GoogleFunctionAccount getGoogleAccount() {
+        return googleAccount;
+    }
+}
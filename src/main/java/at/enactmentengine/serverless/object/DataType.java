@@ -0,0 +1,173 @@
+package at.enactmentengine.serverless.object;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The data types of the workflow language. Every type defines once how its values are represented while they are
+ * passed between the nodes of a workflow:
+ * <ul>
+ *     <li>number: {@link Double}</li>
+ *     <li>string: {@link String}</li>
+ *     <li>bool: {@link Boolean}</li>
+ *     <li>collection: {@link com.google.gson.JsonArray} or {@link CollectionView} (never converted)</li>
+ *     <li>object: {@link JsonElement} (never converted)</li>
+ * </ul>
+ * A json {@code null} is kept as it is for every type.
+ */
+public enum DataType {
+
+    NUMBER("number") {
+        @Override
+        Object convert(JsonElement element) {
+            return element.getAsDouble();
+        }
+
+        @Override
+        Object parse(String value) {
+            return Double.parseDouble(value);
+        }
+    },
+
+    STRING("string") {
+        @Override
+        Object convert(JsonElement element) {
+            return element.getAsString();
+        }
+
+        @Override
+        Object parse(String value) {
+            return value;
+        }
+    },
+
+    BOOL("bool") {
+        @Override
+        Object convert(JsonElement element) {
+            return element.getAsBoolean();
+        }
+
+        @Override
+        Object parse(String value) {
+            return Boolean.parseBoolean(value);
+        }
+    },
+
+    COLLECTION("collection") {
+        @Override
+        Object convert(JsonElement element) {
+            // array stays array to later decide which type
+            return element.getAsJsonArray();
+        }
+    },
+
+    OBJECT("object") {
+        @Override
+        Object convert(JsonElement element) {
+            return element;
+        }
+    };
+
+    /**
+     * Shared converter for values without a json representation (thread-safe).
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The name of the type in the workflow file.
+     */
+    private final String name;
+
+    DataType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the type with the given name.
+     *
+     * @param name the name of the type in the workflow file.
+     *
+     * @return the type or {@code null} if the type is not supported.
+     */
+    public static DataType of(String name) {
+        for (DataType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a json value (e.g. the output of a function) to the representation of this type.
+     *
+     * @param element the json value.
+     *
+     * @return the converted value.
+     *
+     * @throws IllegalStateException if the json value does not match the type.
+     */
+    public Object fromJson(JsonElement element) {
+        if (element.isJsonNull()) {
+            return element;
+        }
+        return convert(element);
+    }
+
+    /**
+     * Converts a constant value of the workflow file to the representation of this type.
+     *
+     * @param value the constant value.
+     *
+     * @return the converted value.
+     *
+     * @throws UnsupportedOperationException if there are no constant values of this type.
+     */
+    public Object fromConstant(String value) {
+        return parse(value);
+    }
+
+    /**
+     * Converts a value passed between nodes to a json value.
+     *
+     * @param value the value.
+     *
+     * @return the json value.
+     */
+    public static JsonElement toJson(Object value) {
+        if (value instanceof JsonElement) {
+            return (JsonElement) value;
+        } else if (value instanceof Number) {
+            return new JsonPrimitive((Number) value);
+        } else if (value instanceof Boolean) {
+            return new JsonPrimitive((Boolean) value);
+        } else if (value instanceof String) {
+            return new JsonPrimitive((String) value);
+        }
+        return GSON.toJsonTree(value);
+    }
+
+    /**
+     * Serializes a value passed between nodes to a json string.
+     *
+     * @param value the value.
+     *
+     * @return the json string.
+     */
+    public static String toJsonString(Object value) {
+        return GSON.toJson(value);
+    }
+
+    abstract Object convert(JsonElement element);
+
+    Object parse(String value) {
+        throw new UnsupportedOperationException("Constant values of type " + name + " are not supported.");
+    }
+
+    /** Getter */
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,215 @@
+package at.enactmentengine.serverless.object;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The output values of a function invocation. The stringified result is read once as a stream: only the values of
+ * the declared outputs are materialized, all other values are skipped. Error markers are detected within the same
+ * pass.
+ */
+public class FunctionResult {
+
+    /**
+     * The values of the declared outputs found in the result.
+     */
+    private final Map<String, JsonElement> values;
+
+    /**
+     * Whether the result contains an error.
+     */
+    private final boolean error;
+
+    private FunctionResult(Map<String, JsonElement> values, boolean error) {
+        this.values = values;
+        this.error = error;
+    }
+
+    /**
+     * Parses the stringified result of a function. If the result is no json object, the whole result is used as value
+     * of every declared output.
+     *
+     * @param result      stringified result of the function.
+     * @param outputNames the names of the declared outputs.
+     *
+     * @return the output values of the function.
+     */
+    public static FunctionResult parse(String result, Collection<String> outputNames) {
+        try {
+            JsonReader reader = new JsonReader(new StringReader(result));
+            reader.setLenient(true);
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                Parser parser = new Parser(outputNames);
+                parser.readResult(reader);
+                if (reader.peek() == JsonToken.END_DOCUMENT) {
+                    return new FunctionResult(parser.values, parser.error);
+                }
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            /* No valid json object, handled below */
+        }
+
+        /* If there is no JSON object as return value, the result is the value of every output */
+        Map<String, JsonElement> values = new HashMap<>();
+        for (String name : outputNames) {
+            values.put(name, new JsonPrimitive(result));
+        }
+        return new FunctionResult(values, result.contains("error:") || result.contains("\"error\":"));
+    }
+
+    /**
+     * Returns the value of a declared output.
+     *
+     * @param name the name of the output.
+     *
+     * @return the value or {@code null} if the result does not contain the output.
+     */
+    public JsonElement get(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Reads the members of a result object.
+     */
+    private static class Parser {
+
+        /**
+         * The names of the declared outputs.
+         */
+        private final Collection<String> outputNames;
+
+        /**
+         * The values of the declared outputs read so far.
+         */
+        private final Map<String, JsonElement> values = new HashMap<>();
+
+        /**
+         * Whether an error marker was read so far.
+         */
+        private boolean error;
+
+        private Parser(Collection<String> outputNames) {
+            this.outputNames = outputNames;
+        }
+
+        /**
+         * Reads the top-level object and keeps the values of the declared outputs.
+         *
+         * @param reader positioned at the start of the object.
+         *
+         * @throws IOException on malformed json.
+         */
+        private void readResult(JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = readName(reader);
+                boolean declared = outputNames.contains(name);
+                JsonElement value = readValue(reader, declared);
+                if (declared) {
+                    values.put(name, value);
+                }
+            }
+            reader.endObject();
+        }
+
+        /**
+         * Reads the next value and checks it for error markers.
+         *
+         * @param reader positioned at the value.
+         * @param keep   whether the value should be materialized.
+         *
+         * @return the value or {@code null} if it is not kept.
+         *
+         * @throws IOException on malformed json.
+         */
+        private JsonElement readValue(JsonReader reader, boolean keep) throws IOException {
+            switch (reader.peek()) {
+                case BEGIN_ARRAY:
+                    JsonArray array = keep ? new JsonArray() : null;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        JsonElement element = readValue(reader, keep);
+                        if (keep) {
+                            array.add(element);
+                        }
+                    }
+                    reader.endArray();
+                    return array;
+                case BEGIN_OBJECT:
+                    JsonObject object = keep ? new JsonObject() : null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = readName(reader);
+                        JsonElement element = readValue(reader, keep);
+                        if (keep) {
+                            object.add(name, element);
+                        }
+                    }
+                    reader.endObject();
+                    return object;
+                case STRING:
+                    String string = reader.nextString();
+                    checkError(string);
+                    return keep ? new JsonPrimitive(string) : null;
+                case NUMBER:
+                    String number = reader.nextString();
+                    return keep ? new JsonPrimitive(new LazilyParsedNumber(number)) : null;
+                case BOOLEAN:
+                    boolean bool = reader.nextBoolean();
+                    return keep ? new JsonPrimitive(bool) : null;
+                case NULL:
+                    reader.nextNull();
+                    return keep ? JsonNull.INSTANCE : null;
+                default:
+                    throw new IllegalStateException("Unexpected token " + reader.peek());
+            }
+        }
+
+        /**
+         * Reads the name of the next member and checks it for error markers.
+         *
+         * @param reader positioned at the name.
+         *
+         * @return the name.
+         *
+         * @throws IOException on malformed json.
+         */
+        private String readName(JsonReader reader) throws IOException {
+            String name = reader.nextName();
+            if ("error".equals(name)) {
+                error = true;
+            }
+            checkError(name);
+            return name;
+        }
+
+        /**
+         * Checks a string for the error marker.
+         *
+         * @param string the string.
+         */
+        private void checkError(String string) {
+            if (!error && string.contains("error:")) {
+                error = true;
+            }
+        }
+    }
+
+    /** Getter */
+
+    public boolean isError() {
+        return error;
+    }
+}
@@ -4,15 +4,12 @@ import at.enactmentengine.serverless.exception.MissingResourceLinkException;
 import at.enactmentengine.serverless.exception.RegionDetectionException;
 import at.enactmentengine.serverless.nodes.Node;
 import at.uibk.dps.afcl.functions.objects.DataIns;
-import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import at.uibk.dps.function.AlternativeStrategy;
 import at.uibk.dps.function.ConstraintSettings;
 import at.uibk.dps.function.FaultToleranceSettings;
 import at.uibk.dps.function.Function;
 import at.uibk.dps.util.Provider;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -299,29 +296,6 @@ public class Utils {
     }
     */
 
-    /**
-     * Convert the stringified json to a json object representing the function output.
-     *
-     * @param resultString stringified json.
-     * @param data         outputs of the base function.
-     *
-     * @return json object representing the base function output.
-     */
-    public static JsonObject generateJson(String resultString, DataOutsAtomic data) {
-        JsonObject jso;
-        try {
-
-            /* Parse the json string to a json object */
-            jso = new Gson().fromJson(resultString, JsonObject.class);
-        } catch (com.google.gson.JsonSyntaxException e) {
-
-            /* If there is no JSON object as return value, create one */
-            jso = new JsonObject();
-            jso.addProperty(data.getName(), resultString);
-        }
-        return jso;
-    }
-
     /**
      * Retrieve a property/constraint from a list by name
      *
@@ -348,21 +322,13 @@ public class Utils {
      * @return value of the specified DataIns cast to its type.
      */
     public static Object castDataValue(DataIns data) {
+        DataType type = DataType.of(data.getType());
         Object value;
-        switch (data.getType()) {
-            case "number":
-                value = Double.parseDouble(data.getValue());
-                break;
-            case "bool":
-                value = Boolean.parseBoolean(data.getValue());
-                break;
-            case "string":
-                value = data.getValue();
-                break;
-            default:
-                logger.error("Type \"{}\" is not supported for constant datains." , data.getType());
-                value = data.getValue();
-                break;
+        if (type == DataType.NUMBER || type == DataType.BOOL || type == DataType.STRING) {
+            value = type.fromConstant(data.getValue());
+        } else {
+            logger.error("Type \"{}\" is not supported for constant datains." , data.getType());
+            value = data.getValue();
         }
         return value;
     }
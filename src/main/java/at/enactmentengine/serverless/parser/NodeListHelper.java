@@ -33,8 +33,6 @@ class NodeListHelper {
      */
     private boolean usedAwsSessionOverhead;
 
-    int executionId;
-
     /**
      * Default constructor for NodeList helper
      */
@@ -81,12 +79,12 @@ class NodeListHelper {
             }
 
             SimulationNode simulationNode = new SimulationNode(tmp.getName(), tmp.getType(), tmp.getDeployment(),
-                    tmp.getProperties(), tmp.getConstraints(), tmp.getDataIns(), tmp.getDataOuts(), executionId, useSessionOverhead);
+                    tmp.getProperties(), tmp.getConstraints(), tmp.getDataIns(), tmp.getDataOuts(), useSessionOverhead);
             return new ListPair<>(simulationNode, simulationNode);
         } else if (function instanceof AtomicFunction) {
             AtomicFunction tmp = (AtomicFunction) function;
             FunctionNode functionNode = new FunctionNode(tmp.getName(), tmp.getType(), tmp.getDeployment(),
-                    tmp.getProperties(), tmp.getConstraints(), tmp.getDataIns(), tmp.getDataOuts(), executionId);
+                    tmp.getProperties(), tmp.getConstraints(), tmp.getDataIns(), tmp.getDataOuts());
             return new ListPair<>(functionNode, functionNode);
         } else if (function instanceof IfThenElse) {
             return toNodeListIf((IfThenElse) function);
@@ -0,0 +1,87 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
+import at.enactmentengine.serverless.nodes.WorkflowGraph;
+import at.uibk.dps.afcl.Workflow;
+
+/**
+ * Precompiled plan of a workflow. The plan holds the already parsed workflow description and the compiled node graphs,
+ * which are never modified, so they can be shared by all executions of the same workflow. For every execution, a
+ * separate executable workflow is instantiated from the plan.
+ */
+public class WorkflowPlan {
+
+    /**
+     * The hash of the workflow file the plan was compiled from.
+     */
+    private final String hash;
+
+    /**
+     * The parsed workflow description.
+     */
+    private final Workflow workflow;
+
+    /**
+     * The compiled graph to execute the workflow (compiled on first use).
+     */
+    private WorkflowGraph executionGraph;
+
+    /**
+     * The compiled graph to simulate the workflow (compiled on first use).
+     */
+    private WorkflowGraph simulationGraph;
+
+    /**
+     * Default constructor for a workflow plan.
+     *
+     * @param hash     the hash of the workflow file.
+     * @param workflow the parsed workflow description.
+     */
+    WorkflowPlan(String hash, Workflow workflow) {
+        this.hash = hash;
+        this.workflow = workflow;
+    }
+
+    /**
+     * Creates a new executable workflow for a single execution.
+     *
+     * @param executionId the unique identifier for each execution.
+     * @param simulate    whether to simulate or execute.
+     *
+     * @return the executable workflow.
+     */
+    public ExecutableWorkflow instantiate(int executionId, boolean simulate) {
+        WorkflowGraph graph = getGraph(simulate);
+        return graph != null ? new ExecutableWorkflow(graph, executionId) : null;
+    }
+
+    /**
+     * Returns the compiled graph of the workflow and compiles it if it is used for the first time.
+     *
+     * @param simulate whether to simulate or execute.
+     *
+     * @return the compiled graph.
+     */
+    public synchronized WorkflowGraph getGraph(boolean simulate) {
+        if (simulate) {
+            if (simulationGraph == null) {
+                simulationGraph = new YAMLParser().compileWorkflow(workflow, true);
+            }
+            return simulationGraph;
+        }
+        if (executionGraph == null) {
+            executionGraph = new YAMLParser().compileWorkflow(workflow, false);
+        }
+        return executionGraph;
+    }
+
+    /** Getter */
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getWorkflowName() {
+        return workflow.getName();
+    }
+}
@@ -0,0 +1,188 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.Workflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of precompiled workflow plans. Plans are identified by the hash of the content of the workflow file, so a
+ * workflow which is executed again is not parsed a second time. If the cache is full, the least recently used plan is
+ * evicted.
+ */
+public class WorkflowPlanCache {
+
+    /**
+     * Logger for the workflow plan cache.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowPlanCache.class);
+
+    /**
+     * Flag that determines whether parsed workflows are cached.
+     */
+    public static boolean ENABLED = true;
+
+    /**
+     * The maximum number of cached plans (has to be set before the first usage).
+     */
+    public static int CAPACITY = 64;
+
+    /**
+     * The single instance of the cache.
+     */
+    private static WorkflowPlanCache INSTANCE;
+
+    /**
+     * The cached plans in the order of their last usage.
+     */
+    private final Map<String, WorkflowPlan> plans;
+
+    /**
+     * The number of requests which were answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * The number of requests which required parsing the workflow.
+     */
+    private long misses;
+
+    /**
+     * Returns the engine-wide plan cache and creates it on the first call.
+     *
+     * @return the workflow plan cache.
+     */
+    public static synchronized WorkflowPlanCache get() {
+        if (WorkflowPlanCache.INSTANCE == null) {
+            WorkflowPlanCache.INSTANCE = new WorkflowPlanCache(CAPACITY);
+        }
+        return WorkflowPlanCache.INSTANCE;
+    }
+
+    /**
+     * Constructor for a workflow plan cache.
+     *
+     * @param capacity the maximum number of cached plans.
+     */
+    WorkflowPlanCache(int capacity) {
+        plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WorkflowPlan> eldest) {
+                if (size() > capacity) {
+                    logger.info("Evicted plan of workflow \"{}\" from the plan cache.", eldest.getValue().getWorkflowName());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the plan of the given workflow file and parses the file if no plan is cached.
+     *
+     * @param content  the content of the workflow file.
+     * @param language the language of the file.
+     *
+     * @return the workflow plan or null if the file does not contain a workflow.
+     *
+     * @throws IOException if the file could not be parsed.
+     */
+    public WorkflowPlan getPlan(byte[] content, Language language) throws IOException {
+        return getPlan(hash(content, language), () -> YAMLParser.readWorkflow(content, language));
+    }
+
+    /**
+     * Returns the plan with the given hash and reads the workflow if no plan is cached.
+     *
+     * @param hash   the hash of the workflow file.
+     * @param reader reads the workflow on a cache miss.
+     *
+     * @return the workflow plan or null if no workflow was read.
+     *
+     * @throws IOException if the workflow could not be read.
+     */
+    WorkflowPlan getPlan(String hash, WorkflowReader reader) throws IOException {
+        if (ENABLED) {
+            synchronized (this) {
+                WorkflowPlan plan = plans.get(hash);
+                if (plan != null) {
+                    hits++;
+                    return plan;
+                }
+                misses++;
+            }
+        }
+
+        /* Parse the workflow outside of the lock, so other workflows are not delayed */
+        Workflow workflow = reader.read();
+        if (workflow == null) {
+            return null;
+        }
+        WorkflowPlan plan = new WorkflowPlan(hash, workflow);
+        if (!ENABLED) {
+            return plan;
+        }
+
+        /* Keep the plan of a concurrent miss if there is one, so all executions share the same plan */
+        synchronized (this) {
+            WorkflowPlan cached = plans.putIfAbsent(hash, plan);
+            return cached != null ? cached : plan;
+        }
+    }
+
+    /**
+     * Calculates the hash identifying the plan of a workflow file.
+     *
+     * @param content  the content of the workflow file.
+     * @param language the language of the file.
+     *
+     * @return the hex encoded SHA-256 hash.
+     */
+    public static String hash(byte[] content, Language language) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(language.name().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform has to support SHA-256 */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Removes all cached plans.
+     */
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    /** Getter */
+
+    public synchronized int getSize() {
+        return plans.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reads a workflow on a cache miss.
+     */
+    @FunctionalInterface
+    interface WorkflowReader {
+        Workflow read() throws IOException;
+    }
+}
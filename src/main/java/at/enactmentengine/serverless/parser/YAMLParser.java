@@ -2,6 +2,7 @@ package at.enactmentengine.serverless.parser;
 
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.nodes.Node;
+import at.enactmentengine.serverless.nodes.WorkflowGraph;
 import at.enactmentengine.serverless.object.ListPair;
 import at.uibk.dps.afcl.utils.Utils;
 import org.apache.commons.lang3.NotImplementedException;
@@ -9,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Class for parsing YAML files into an executable workflow.
@@ -45,24 +47,14 @@ public class YAMLParser {
      */
     public ExecutableWorkflow parseExecutableWorkflow(byte[] filename, Language language, int executionId, boolean simulate) {
 
-        // Parse yaml file
-        at.uibk.dps.afcl.Workflow workflow = null;
-
-        if (language == Language.YAML) {
-            try {
-                workflow = Utils.readYAMLNoValidation(filename);
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-                return null;
-            }
-        } else if (language == Language.JSON) {
+        if (language == Language.JSON) {
             throw new NotImplementedException("JSON file currently not supported.");
-        } else {
+        } else if (language != Language.YAML) {
             throw new NotImplementedException("Workflow language currently not supported.");
         }
 
-
-        return getExecutableWorkflow(workflow, executionId, simulate);
+        // Get the precompiled plan or parse the yaml file
+        return instantiate(filename, language, executionId, simulate);
     }
 
     /**
@@ -74,23 +66,55 @@ public class YAMLParser {
      */
     public ExecutableWorkflow parseExecutableWorkflowByStringContent(String content, Language language, int executionId) {
 
-        // Parse yaml file
-        at.uibk.dps.afcl.Workflow workflow = null;
-
         if (language == Language.YAML) {
             throw new NotImplementedException("YAML content currently not supported.");
-        } else if (language == Language.JSON) {
-            try {
-                workflow = Utils.readJSONStringNoValidation(content);
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-                return null;
-            }
-        } else {
+        } else if (language != Language.JSON) {
             throw new NotImplementedException("Workflow language currently not supported.");
         }
 
-        return getExecutableWorkflow(workflow, executionId, false);
+        // Get the precompiled plan or parse the json string
+        return instantiate(content.getBytes(StandardCharsets.UTF_8), language, executionId, false);
+    }
+
+    /**
+     * Instantiates an executable workflow from the cached plan of the given file. The file is only parsed if there
+     * is no plan for it yet.
+     *
+     * @param content     the content of the workflow file.
+     * @param language    the language of the file.
+     * @param executionId the unique identifier for each execution.
+     * @param simulate    whether to simulate or execute.
+     *
+     * @return Instance of class Executable workflow.
+     */
+    private ExecutableWorkflow instantiate(byte[] content, Language language, int executionId, boolean simulate) {
+        WorkflowPlan plan;
+        try {
+            plan = WorkflowPlanCache.get().getPlan(content, language);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return null;
+        }
+        return plan != null ? plan.instantiate(executionId, simulate) : null;
+    }
+
+    /**
+     * Reads the workflow description of the given file.
+     *
+     * @param content  the content of the workflow file.
+     * @param language the language of the file.
+     *
+     * @return the parsed workflow.
+     *
+     * @throws IOException if the file could not be parsed.
+     */
+    static at.uibk.dps.afcl.Workflow readWorkflow(byte[] content, Language language) throws IOException {
+        if (language == Language.YAML) {
+            return Utils.readYAMLNoValidation(content);
+        } else if (language == Language.JSON) {
+            return Utils.readJSONStringNoValidation(new String(content, StandardCharsets.UTF_8));
+        }
+        throw new NotImplementedException("Workflow language currently not supported.");
     }
 
     /**
@@ -103,11 +127,23 @@ public class YAMLParser {
      * @return executable workflow
      */
     public ExecutableWorkflow getExecutableWorkflow(at.uibk.dps.afcl.Workflow workflow, int executionId, boolean simulate) {
+        WorkflowGraph graph = compileWorkflow(workflow, simulate);
+        return graph != null ? new ExecutableWorkflow(graph, executionId) : null;
+    }
+
+    /**
+     * Compiles the node graph of a workflow, which can be shared by multiple executions.
+     *
+     * @param workflow to convert.
+     * @param simulate whether to simulate or execute.
+     *
+     * @return the compiled graph
+     */
+    public WorkflowGraph compileWorkflow(at.uibk.dps.afcl.Workflow workflow, boolean simulate) {
 
-        ExecutableWorkflow executableWorkflow = null;
+        WorkflowGraph graph = null;
         if (workflow != null) {
             NodeListHelper nodeListHelper = new NodeListHelper(simulate);
-            nodeListHelper.executionId = executionId;
 
             // Create node pairs from workflow functions
             ListPair<Node, Node> workflowPair = new ListPair<>();
@@ -122,12 +158,12 @@ public class YAMLParser {
             }
             workflowPair.setEnd(currentEnd);
 
-            // Create executable workflow from node pairs
-            executableWorkflow = new ExecutableWorkflow(workflow.getName(), workflowPair, workflow.getDataIns());
+            // Create the workflow graph from node pairs
+            graph = new WorkflowGraph(workflow.getName(), workflowPair, workflow.getDataIns());
 
             logger.info("Workflow was converted to an executable workflow.");
         }
 
-        return executableWorkflow;
+        return graph;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package at.enactmentengine.serverless.payload;
+
+import java.io.IOException;
+
+/**
+ * Storage for large values which are not kept in memory while they are passed between the nodes of a workflow.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the given content.
+     *
+     * @param content the content to store.
+     *
+     * @return the key to read the content.
+     *
+     * @throws IOException if the content could not be stored.
+     */
+    String put(String content) throws IOException;
+
+    /**
+     * Reads stored content.
+     *
+     * @param key the key returned when the content was stored.
+     *
+     * @return the content.
+     *
+     * @throws IOException if the content could not be read.
+     */
+    String get(String key) throws IOException;
+
+    /**
+     * Deletes stored content. Failures are only logged, since the content is not needed anymore.
+     *
+     * @param key the key returned when the content was stored.
+     */
+    void delete(String key);
+}
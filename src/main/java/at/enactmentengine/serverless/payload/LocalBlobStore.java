@@ -0,0 +1,66 @@
+package at.enactmentengine.serverless.payload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stores large values as files within a local directory.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    /**
+     * Logger for the local blob store.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(LocalBlobStore.class);
+
+    /**
+     * The directory containing the files.
+     */
+    private final Path directory;
+
+    /**
+     * Creates a store within the given directory.
+     *
+     * @param directory the directory (created if it does not exist).
+     *
+     * @throws IOException if the directory could not be created.
+     */
+    public LocalBlobStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Creates a store within a new temporary directory.
+     *
+     * @throws IOException if the directory could not be created.
+     */
+    public LocalBlobStore() throws IOException {
+        this(Files.createTempDirectory("enactment-engine-payloads"));
+    }
+
+    @Override
+    public String put(String content) throws IOException {
+        Path file = Files.createTempFile(directory, "payload-", ".json");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.getFileName().toString();
+    }
+
+    @Override
+    public String get(String key) throws IOException {
+        return new String(Files.readAllBytes(directory.resolve(key)), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(directory.resolve(key));
+        } catch (IOException e) {
+            logger.warn("Could not delete payload {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package at.enactmentengine.serverless.payload;
+
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Handle of a large value which was moved to a {@link BlobStore}. Nodes pass the handle instead of the value, the
+ * value is only read again where it is actually needed (e.g. as input of a function). The stored value is deleted
+ * once the handle is not referenced anymore.
+ */
+public final class PayloadRef {
+
+    /**
+     * The store containing the value.
+     */
+    private final BlobStore store;
+
+    /**
+     * The key of the value within the store.
+     */
+    private final String key;
+
+    /**
+     * The length of the stored value.
+     */
+    private final int length;
+
+    /**
+     * Whether the value is stored as json ({@code false} for a string value).
+     */
+    private final boolean json;
+
+    PayloadRef(BlobStore store, String key, int length, boolean json) {
+        this.store = store;
+        this.key = key;
+        this.length = length;
+        this.json = json;
+    }
+
+    /**
+     * Reads the value from the store.
+     *
+     * @return the value (a {@link com.google.gson.JsonElement} or a {@link String}).
+     *
+     * @throws UncheckedIOException if the value could not be read.
+     */
+    public Object materialize() {
+        String content;
+        try {
+            content = store.get(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read payload " + key, e);
+        }
+        return json ? new JsonParser().parse(content) : content;
+    }
+
+    @Override
+    public String toString() {
+        return "payload[" + key + ", " + length + " characters]";
+    }
+
+    /** Getter */
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,153 @@
+package at.enactmentengine.serverless.payload;
+
+import at.enactmentengine.serverless.object.CollectionView;
+import at.enactmentengine.serverless.object.DataType;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Moves large values out of memory while they are passed between the nodes of a workflow. Values above
+ * {@link #THRESHOLD} are written once to a {@link BlobStore} and replaced by a {@link PayloadRef}, so copying,
+ * logging and passing the output of a node does not touch the value itself.
+ */
+public final class PayloadStore {
+
+    /**
+     * Logger for the payload store.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PayloadStore.class);
+
+    /**
+     * Flag that determines whether large values are offloaded.
+     */
+    public static boolean ENABLED = false;
+
+    /**
+     * The length (in characters) above which a value is offloaded.
+     */
+    public static int THRESHOLD = 100000;
+
+    /**
+     * The S3 bucket to store the values in ({@code null} to use the local file system, has to be set before the first
+     * usage).
+     */
+    public static String S3_BUCKET = null;
+
+    /**
+     * The local directory to store the values in ({@code null} to use a temporary directory, has to be set before the
+     * first usage).
+     */
+    public static String DIRECTORY = null;
+
+    /**
+     * The single instance of the store.
+     */
+    private static PayloadStore INSTANCE;
+
+    /**
+     * Deletes the stored values when their handles are not referenced anymore.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The store containing the values.
+     */
+    private final BlobStore blobs;
+
+    private PayloadStore(BlobStore blobs) {
+        this.blobs = blobs;
+    }
+
+    /**
+     * Returns the payload store and creates it on the first call.
+     *
+     * @return the payload store.
+     *
+     * @throws IOException if the local directory could not be created.
+     */
+    public static synchronized PayloadStore get() throws IOException {
+        if (PayloadStore.INSTANCE == null) {
+            BlobStore blobs;
+            if (S3_BUCKET != null) {
+                blobs = new S3BlobStore(S3_BUCKET, "payloads/");
+            } else if (DIRECTORY != null) {
+                blobs = new LocalBlobStore(Paths.get(DIRECTORY));
+            } else {
+                blobs = new LocalBlobStore();
+            }
+            PayloadStore.INSTANCE = new PayloadStore(blobs);
+        }
+        return PayloadStore.INSTANCE;
+    }
+
+    /**
+     * Uses the given blob store for all values offloaded from now on.
+     *
+     * @param blobs the blob store.
+     */
+    public static synchronized void use(BlobStore blobs) {
+        PayloadStore.INSTANCE = new PayloadStore(blobs);
+    }
+
+    /**
+     * Replaces the large values of the given map by handles. Only strings and json values (except numbers and
+     * booleans) are offloaded.
+     *
+     * @param values the values to check (modified in place).
+     */
+    public void offload(Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            boolean json = value instanceof JsonElement || value instanceof CollectionView;
+            if (!(json || value instanceof String)
+                    || (value instanceof JsonPrimitive && !((JsonPrimitive) value).isString())) {
+                continue;
+            }
+            String content = json ? DataType.toJsonString(value) : (String) value;
+            if (content.length() <= THRESHOLD) {
+                continue;
+            }
+            try {
+                String key = blobs.put(content);
+                PayloadRef ref = new PayloadRef(blobs, key, content.length(), json);
+                BlobStore store = blobs;
+                CLEANER.register(ref, () -> store.delete(key));
+                entry.setValue(ref);
+            } catch (IOException e) {
+                /* The value is simply kept in memory */
+                logger.warn("Could not offload {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the actual value of a value which may have been offloaded.
+     *
+     * @param value the value or its handle.
+     *
+     * @return the value.
+     */
+    public static Object resolve(Object value) {
+        return value instanceof PayloadRef ? ((PayloadRef) value).materialize() : value;
+    }
+
+    /**
+     * Replaces all handles of the given map by their actual values.
+     *
+     * @param values the values to resolve (modified in place).
+     */
+    public static void resolveAll(Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof PayloadRef) {
+                entry.setValue(((PayloadRef) entry.getValue()).materialize());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package at.enactmentengine.serverless.payload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Stores large values as objects within an S3 bucket. The client uses the default credentials and region of the
+ * environment.
+ */
+public class S3BlobStore implements BlobStore {
+
+    /**
+     * Logger for the S3 blob store.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+
+    /**
+     * The client used for all requests.
+     */
+    private final S3Client client;
+
+    /**
+     * The bucket containing the objects.
+     */
+    private final String bucket;
+
+    /**
+     * The prefix of the object keys.
+     */
+    private final String prefix;
+
+    /**
+     * Creates a store within the given bucket.
+     *
+     * @param bucket the bucket containing the objects.
+     * @param prefix the prefix of the object keys.
+     */
+    public S3BlobStore(String bucket, String prefix) {
+        this.client = S3Client.create();
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public String put(String content) throws IOException {
+        String key = prefix + UUID.randomUUID() + ".json";
+        try {
+            client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(), RequestBody.fromString(content));
+        } catch (SdkException e) {
+            throw new IOException("Could not store payload in bucket " + bucket, e);
+        }
+        return key;
+    }
+
+    @Override
+    public String get(String key) throws IOException {
+        try {
+            return client.getObjectAsBytes(GetObjectRequest.builder().bucket(bucket).key(key).build()).asUtf8String();
+        } catch (SdkException e) {
+            throw new IOException("Could not read payload " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (SdkException e) {
+            logger.warn("Could not delete payload {} from bucket {}: {}", key, bucket, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package at.enactmentengine.serverless.scheduler;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor which limits the number of tasks that are active at the same time. Tasks exceeding the limit are queued
+ * and handed over to the underlying executor as soon as a slot becomes free, tasks with a higher priority (e.g. on the
+ * critical path of the workflow) first and tasks of the same priority in the order of their submission. No threads
+ * are created by the budget itself.
+ * <p>
+ * Besides executing tasks, a slot can also be occupied by {@link #admit(Runnable)} for work whose end is not bound
+ * to a single task. Such a slot has to be given back with {@link #release()}.
+ * <p>
+ * Budgets can be nested by using a budget as the underlying executor of another one (e.g. the budgets of all
+ * workflows on a shared engine-wide budget). A task then occupies a slot of every budget while it runs, and the
+ * priority of the task also decides its order in the shared budget.
+ */
+public class ConcurrencyBudget implements Executor {
+
+    /**
+     * The executor running the admitted tasks.
+     */
+    private final Executor delegate;
+
+    /**
+     * The maximum number of active tasks.
+     */
+    private final int limit;
+
+    /**
+     * Starters of tasks waiting for a free slot.
+     */
+    private final Queue<Waiting> waiting = new PriorityQueue<>(Comparator.comparingLong((Waiting w) -> -w.priority)
+            .thenComparingLong(w -> w.sequence));
+
+    /**
+     * The number of starters which had to wait so far.
+     */
+    private long sequence;
+
+    /**
+     * The number of currently occupied slots.
+     */
+    private int active;
+
+    /**
+     * Default constructor for a concurrency budget.
+     *
+     * @param delegate the executor running the admitted tasks.
+     * @param limit    the maximum number of active tasks.
+     */
+    public ConcurrencyBudget(Executor delegate, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The concurrency limit has to be at least 1, but was " + limit);
+        }
+        this.delegate = delegate;
+        this.limit = limit;
+    }
+
+    /**
+     * Runs the given task as soon as a slot of the budget is free.
+     *
+     * @param task the task to run.
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, 0);
+    }
+
+    /**
+     * Runs the given task as soon as a slot of the budget is free and no task with a higher priority is waiting.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     */
+    public void execute(Runnable task, long priority) {
+        admit(() -> dispatch(task, priority), priority);
+    }
+
+    /**
+     * Occupies a slot as soon as one is free and runs the given starter on the thread which provides the slot. The
+     * slot is held until {@link #release()} is called.
+     *
+     * @param starter non-blocking action which starts the admitted work.
+     */
+    public void admit(Runnable starter) {
+        admit(starter, 0);
+    }
+
+    /**
+     * Occupies a slot as soon as one is free and no starter with a higher priority is waiting (see
+     * {@link #admit(Runnable)}).
+     *
+     * @param starter  non-blocking action which starts the admitted work.
+     * @param priority the priority of the work.
+     */
+    public void admit(Runnable starter, long priority) {
+        synchronized (this) {
+            if (active >= limit) {
+                waiting.add(new Waiting(starter, priority, sequence++));
+                return;
+            }
+            active++;
+        }
+        starter.run();
+    }
+
+    /**
+     * Gives back a slot of the budget. If tasks are waiting, the slot is directly passed on to the next one, unless
+     * more slots than the limit are occupied.
+     */
+    public void release() {
+        Waiting next;
+        synchronized (this) {
+            next = active > limit ? null : waiting.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        next.starter.run();
+    }
+
+    /**
+     * Occupies a slot without waiting. Used to resume a task which temporarily released its slot, therefore the
+     * limit may be exceeded. No waiting task is started until enough slots are given back to be within the limit
+     * again, so the budget exceeds its limit by at most the number of resumed tasks.
+     */
+    public synchronized void reacquire() {
+        active++;
+    }
+
+    /**
+     * Occupies a slot of this budget and of all nested budgets it runs its tasks on (see {@link #admit(Runnable,
+     * long)}). The slots are held until {@link #releaseNested()} is called.
+     *
+     * @param starter  non-blocking action which starts the admitted work.
+     * @param priority the priority of the work.
+     */
+    public void admitNested(Runnable starter, long priority) {
+        admit(() -> {
+            if (delegate instanceof ConcurrencyBudget) {
+                ((ConcurrencyBudget) delegate).admitNested(starter, priority);
+            } else {
+                starter.run();
+            }
+        }, priority);
+    }
+
+    /**
+     * Gives back a slot of this budget and of all nested budgets it runs its tasks on.
+     */
+    public void releaseNested() {
+        if (delegate instanceof ConcurrencyBudget) {
+            ((ConcurrencyBudget) delegate).releaseNested();
+        }
+        release();
+    }
+
+    /**
+     * Occupies a slot of this budget and of all nested budgets it runs its tasks on without waiting (see
+     * {@link #reacquire()}).
+     */
+    public void reacquireNested() {
+        reacquire();
+        if (delegate instanceof ConcurrencyBudget) {
+            ((ConcurrencyBudget) delegate).reacquireNested();
+        }
+    }
+
+    /**
+     * Hands the task over to the underlying executor and frees the slot after it finished.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     */
+    private void dispatch(Runnable task, long priority) {
+        Runnable run = () -> {
+            try {
+                task.run();
+            } finally {
+                release();
+            }
+        };
+        try {
+            if (delegate instanceof ConcurrencyBudget) {
+                ((ConcurrencyBudget) delegate).execute(run, priority);
+            } else {
+                delegate.execute(run);
+            }
+        } catch (RejectedExecutionException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /** Getter */
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * Starter waiting for a free slot.
+     */
+    private static final class Waiting {
+
+        private final Runnable starter;
+        private final long priority;
+        private final long sequence;
+
+        Waiting(Runnable starter, long priority, long sequence) {
+            this.starter = starter;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package at.enactmentengine.serverless.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+
+/**
+ * Engine-wide scheduler which is shared by all workflows and nodes. It is backed by a single work-stealing pool, so
+ * nested parallel constructs and concurrently running workflows no longer create their own thread pools. Each
+ * workflow receives its own {@link WorkflowScheduler} which limits how much of the pool the workflow may use.
+ * Optionally, the tasks of all workflows share an additional engine-wide budget (see {@link #ENGINE_CONCURRENCY}).
+ * Alternatively, workflows can be run in {@link ExecutionMode#VIRTUAL_THREADS} mode, where every node activation gets
+ * its own virtual thread and no pool sizing is needed.
+ */
+public final class EngineScheduler {
+
+    /**
+     * Logger for the engine scheduler.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EngineScheduler.class);
+
+    /**
+     * The execution mode used for workflows which do not specify one.
+     */
+    public static ExecutionMode MODE = ExecutionMode.POOL;
+
+    /**
+     * Flag that determines whether function nodes release their thread while waiting for the result of an invocation.
+     */
+    public static boolean ASYNC_INVOCATIONS = true;
+
+    /**
+     * The number of threads the pool tries to keep running (has to be set before the first usage).
+     */
+    public static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The upper bound of threads in the pool, including threads added to compensate blocked ones (has to be set
+     * before the first usage).
+     */
+    public static int MAX_THREADS = 1000;
+
+    /**
+     * The maximum number of concurrently active tasks of a single workflow (-1 to use {@link #MAX_THREADS} in pool
+     * mode and no limit in virtual thread mode).
+     */
+    public static int WORKFLOW_CONCURRENCY = -1;
+
+    /**
+     * The maximum number of concurrently active tasks and asynchronous invocations of all workflows together (-1 for
+     * no engine-wide limit). If set, tasks waiting for the engine-wide budget are started by their priority across
+     * workflows, so with {@link #CRITICAL_PATH} the workflow with the longest remaining path is preferred (has to be
+     * set before the first usage).
+     */
+    public static int ENGINE_CONCURRENCY = -1;
+
+    /**
+     * Flag that determines whether waiting tasks on the critical path of their workflow (estimated by the average
+     * round trip times of the functions) are started first.
+     */
+    public static boolean CRITICAL_PATH = false;
+
+    /**
+     * The single instance of the scheduler.
+     */
+    private static EngineScheduler INSTANCE;
+
+    /**
+     * The pool running all tasks of the engine.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The budget shared by all workflows running on the pool ({@code null} if there is no engine-wide limit).
+     */
+    private final ConcurrencyBudget poolBudget;
+
+    /**
+     * Executor starting a new virtual thread for every task (created on first usage).
+     */
+    private ExecutorService virtualThreads;
+
+    /**
+     * The budget shared by all workflows running on virtual threads (created on first usage, {@code null} if there is
+     * no engine-wide limit).
+     */
+    private ConcurrencyBudget virtualBudget;
+
+    /**
+     * Scheduler used for nodes which are not started by a workflow.
+     */
+    private WorkflowScheduler defaultScheduler;
+
+    /**
+     * Returns the engine-wide scheduler and creates it on the first call.
+     *
+     * @return the engine scheduler.
+     */
+    public static synchronized EngineScheduler get() {
+        if (EngineScheduler.INSTANCE == null) {
+            EngineScheduler.INSTANCE = new EngineScheduler();
+        }
+        return EngineScheduler.INSTANCE;
+    }
+
+    private EngineScheduler() {
+        int parallelism = Math.max(1, Math.min(PARALLELISM, MAX_THREADS));
+        pool = new ForkJoinPool(parallelism, EngineScheduler::newWorkerThread, null, true,
+                0, Math.max(parallelism, MAX_THREADS), 1, p -> true, 60, TimeUnit.SECONDS);
+        poolBudget = ENGINE_CONCURRENCY == -1 ? null : new ConcurrencyBudget(pool, ENGINE_CONCURRENCY);
+        logger.info("Started engine scheduler with parallelism {} and at most {} threads", parallelism, MAX_THREADS);
+    }
+
+    /**
+     * Creates a worker thread of the pool.
+     *
+     * @param pool the pool the thread belongs to.
+     *
+     * @return the new worker thread.
+     */
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("engine-worker-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * Creates a new scheduler for a single workflow execution using the default execution mode.
+     *
+     * @param workflowName the name of the workflow.
+     *
+     * @return the workflow scheduler.
+     */
+    public WorkflowScheduler newWorkflowScheduler(String workflowName) {
+        return newWorkflowScheduler(workflowName, MODE);
+    }
+
+    /**
+     * Creates a new scheduler for a single workflow execution.
+     *
+     * @param workflowName the name of the workflow.
+     * @param mode         the execution mode of the workflow.
+     *
+     * @return the workflow scheduler.
+     */
+    public WorkflowScheduler newWorkflowScheduler(String workflowName, ExecutionMode mode) {
+        if (mode == ExecutionMode.VIRTUAL_THREADS) {
+            int limit = WORKFLOW_CONCURRENCY == -1 ? Integer.MAX_VALUE : WORKFLOW_CONCURRENCY;
+            return new WorkflowScheduler(workflowName, getVirtualBudget(), limit);
+        }
+        int limit = WORKFLOW_CONCURRENCY == -1 ? MAX_THREADS : WORKFLOW_CONCURRENCY;
+        return new WorkflowScheduler(workflowName, poolBudget != null ? poolBudget : pool, limit);
+    }
+
+    /**
+     * Returns the executor for the workflows running on virtual threads, which is the engine-wide budget if
+     * {@link #ENGINE_CONCURRENCY} is set.
+     *
+     * @return the executor of the workflows.
+     */
+    private synchronized Executor getVirtualBudget() {
+        if (ENGINE_CONCURRENCY == -1) {
+            return getVirtualThreads();
+        }
+        if (virtualBudget == null) {
+            virtualBudget = new ConcurrencyBudget(getVirtualThreads(), ENGINE_CONCURRENCY);
+        }
+        return virtualBudget;
+    }
+
+    /**
+     * Returns the executor for virtual threads and creates it on the first call.
+     *
+     * @return the virtual thread executor.
+     */
+    private synchronized ExecutorService getVirtualThreads() {
+        if (virtualThreads == null) {
+            virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("engine-virtual-", 0).factory());
+            logger.info("Started virtual thread executor of the engine scheduler");
+        }
+        return virtualThreads;
+    }
+
+    /**
+     * Runs a blocking call (e.g. a function invocation) on its own virtual thread, so that no thread of the
+     * workflow is occupied while waiting for the result. Cancelling the returned future interrupts the call.
+     *
+     * @param call the blocking call.
+     * @param <T>  the result type of the call.
+     *
+     * @return future completed with the result or the failure of the call.
+     */
+    public <T> CompletableFuture<T> invokeAsync(BlockingCall<T, ?> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task = getVirtualThreads().submit(() -> {
+            try {
+                future.complete(call.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((result, failure) -> {
+            if (future.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the scheduler used for nodes which are not running within a workflow.
+     *
+     * @return the default workflow scheduler.
+     */
+    public synchronized WorkflowScheduler getDefaultScheduler() {
+        if (defaultScheduler == null) {
+            defaultScheduler = newWorkflowScheduler("default");
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Runs a blocking call (e.g. a remote invocation) and allows the pool to start a compensating thread while the
+     * calling worker is blocked. On virtual threads, the call is simply executed.
+     *
+     * @param call the blocking call.
+     * @param <T>  the result type of the call.
+     * @param <E>  the exception type of the call.
+     *
+     * @return the result of the call.
+     *
+     * @throws E                    if the call fails.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, E extends Exception> T block(BlockingCall<T, E> call) throws E, InterruptedException {
+        BlockingCallBlocker<T> blocker = new BlockingCallBlocker<>(call);
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.failure instanceof RuntimeException) {
+            throw (RuntimeException) blocker.failure;
+        } else if (blocker.failure instanceof InterruptedException) {
+            throw (InterruptedException) blocker.failure;
+        } else if (blocker.failure != null) {
+            throw (E) blocker.failure;
+        }
+        return blocker.result;
+    }
+
+    /**
+     * Sleeps for the given time without reducing the parallelism of the pool.
+     *
+     * @param millis the time to sleep in milliseconds.
+     *
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public static void sleep(long millis) throws InterruptedException {
+        block(() -> {
+            Thread.sleep(millis);
+            return null;
+        });
+    }
+
+    /** Getter */
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * A call which may block the calling thread.
+     *
+     * @param <T> the result type of the call.
+     * @param <E> the exception type of the call.
+     */
+    @FunctionalInterface
+    public interface BlockingCall<T, E extends Exception> {
+        T call() throws E, InterruptedException;
+    }
+
+    /**
+     * Adapter to run a blocking call as managed block of the pool.
+     *
+     * @param <T> the result type of the call.
+     */
+    private static class BlockingCallBlocker<T> implements ForkJoinPool.ManagedBlocker {
+
+        private final BlockingCall<T, ?> call;
+        private T result;
+        private Exception failure;
+        private boolean done;
+
+        BlockingCallBlocker(BlockingCall<T, ?> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
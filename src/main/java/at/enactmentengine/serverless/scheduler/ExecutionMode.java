@@ -0,0 +1,18 @@
+package at.enactmentengine.serverless.scheduler;
+
+/**
+ * Defines on which kind of threads the nodes of a workflow are executed.
+ */
+public enum ExecutionMode {
+
+    /**
+     * All node activations share the bounded work-stealing pool of the engine.
+     */
+    POOL,
+
+    /**
+     * Every node activation runs on its own virtual thread, so blocking function invocations do not occupy a
+     * platform thread while waiting for the provider.
+     */
+    VIRTUAL_THREADS
+}
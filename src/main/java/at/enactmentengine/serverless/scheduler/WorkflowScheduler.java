@@ -0,0 +1,519 @@
+package at.enactmentengine.serverless.scheduler;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler of a single workflow execution. All tasks of the workflow are run on the engine-wide pool, but only
+ * {@link EngineScheduler#WORKFLOW_CONCURRENCY} of them may be active at the same time, so thousands of workflows can
+ * share the pool without starving each other. A task waiting for other tasks of the workflow gives back its slot
+ * until the awaited tasks are finished. If {@link EngineScheduler#ENGINE_CONCURRENCY} is set, the tasks of all
+ * workflows additionally share an engine-wide budget, in which waiting tasks are ordered by their priority across
+ * workflows.
+ * <p>
+ * The scheduler keeps track of all submitted tasks and pending asynchronous operations of the workflow, so the end of
+ * the workflow can be detected even if no task waits for its children.
+ * <p>
+ * Large sets of similar tasks (e.g. the iterations of a parallelFor loop) can be streamed through the scheduler, so
+ * only a bounded number of them exists at the same time. Every streamed task forms a group, which holds its place in
+ * the stream until all tasks and operations started within the group are finished.
+ */
+public class WorkflowScheduler {
+
+    /**
+     * The task group of the task running on the current thread.
+     */
+    private static final ThreadLocal<TaskGroup> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The name of the scheduled workflow.
+     */
+    private final String workflowName;
+
+    /**
+     * The concurrency budget of the workflow.
+     */
+    private final ConcurrencyBudget budget;
+
+    /**
+     * Completed as soon as no task is pending anymore, or exceptionally with the first failure of a task.
+     */
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    /**
+     * The group containing all tasks of the workflow.
+     */
+    private final TaskGroup root = new TaskGroup(null, () -> completion.complete(null));
+
+    /**
+     * Flag if the workflow execution was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Default constructor for a workflow scheduler.
+     *
+     * @param workflowName     the name of the scheduled workflow.
+     * @param executor         the executor running the tasks (a shared budget, if the tasks of several workflows are
+     *                         limited together).
+     * @param concurrencyLimit the maximum number of concurrently active tasks.
+     */
+    WorkflowScheduler(String workflowName, Executor executor, int concurrencyLimit) {
+        this.workflowName = workflowName;
+        this.budget = new ConcurrencyBudget(executor, concurrencyLimit);
+    }
+
+    /**
+     * Returns the scheduler of the workflow the current thread is working for.
+     *
+     * @return the current workflow scheduler.
+     */
+    public static WorkflowScheduler current() {
+        TaskGroup group = CURRENT.get();
+        return group != null ? group.getScheduler() : EngineScheduler.get().getDefaultScheduler();
+    }
+
+    /**
+     * Submits a task of the workflow.
+     *
+     * @param task the task to run.
+     * @param <T>  the result type of the task.
+     *
+     * @return the future of the task.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return submit(currentGroup(), task, 0);
+    }
+
+    /**
+     * Submits a task of the workflow with the given priority. If the budget of the workflow is exhausted, waiting
+     * tasks with a higher priority are started first.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task (e.g. the length of the remaining critical path).
+     * @param <T>      the result type of the task.
+     *
+     * @return the future of the task.
+     */
+    public <T> Future<T> submit(Callable<T> task, long priority) {
+        return submit(currentGroup(), task, priority);
+    }
+
+    /**
+     * Streams the given number of tasks through the workflow. At most {@code window} of the tasks (each including
+     * everything started by it) are in progress at the same time. A task is only created when a previous one is
+     * finished, so the memory used for the tasks does not depend on their number. After the first failure, no
+     * further tasks are started.
+     *
+     * @param count  the number of tasks.
+     * @param window the maximum number of tasks in progress.
+     * @param tasks  creates the task with the given index.
+     *
+     * @return a future which is completed as soon as all tasks are finished, or exceptionally with the first failure.
+     */
+    public Future<Void> stream(int count, int window, IntFunction<Callable<?>> tasks) {
+        return stream(count, window, 0, tasks);
+    }
+
+    /**
+     * Streams the given number of tasks with the given priority through the workflow (see
+     * {@link #stream(int, int, IntFunction)}).
+     *
+     * @param count    the number of tasks.
+     * @param window   the maximum number of tasks in progress.
+     * @param priority the priority of the tasks.
+     * @param tasks    creates the task with the given index.
+     *
+     * @return a future which is completed as soon as all tasks are finished, or exceptionally with the first failure.
+     */
+    public Future<Void> stream(int count, int window, long priority, IntFunction<Callable<?>> tasks) {
+        return stream(count, window, priority, tasks, null);
+    }
+
+    /**
+     * Streams the given number of tasks with the given priority through the workflow (see
+     * {@link #stream(int, int, IntFunction)}) and reports every task as soon as it is finished including everything
+     * started by it, also if it failed.
+     *
+     * @param count    the number of tasks.
+     * @param window   the maximum number of tasks in progress.
+     * @param priority the priority of the tasks.
+     * @param tasks    creates the task with the given index.
+     * @param finished called with the index of every finished task ({@code null} if not needed).
+     *
+     * @return a future which is completed as soon as all tasks are finished, or exceptionally with the first failure.
+     */
+    public Future<Void> stream(int count, int window, long priority, IntFunction<Callable<?>> tasks,
+                               IntConsumer finished) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window has to be at least 1, but was " + window);
+        }
+        TaskStream stream = new TaskStream(currentGroup(), count, priority, tasks, finished);
+        if (count <= 0) {
+            stream.done.complete(null);
+        }
+        for (int i = 0; i < Math.min(window, count); i++) {
+            stream.startNext();
+        }
+        return stream.done;
+    }
+
+    /**
+     * Submits the continuation as task of the workflow as soon as the given asynchronous operation completes. The
+     * workflow is not finished as long as the operation is pending. If the operation fails, the continuation is not
+     * executed and the failure is reported as failure of the workflow.
+     *
+     * @param operation    the asynchronous operation.
+     * @param continuation to be executed with the result of the operation.
+     * @param <T>          the result type of the operation.
+     */
+    public <T> void whenComplete(CompletableFuture<T> operation, Continuation<T> continuation) {
+        whenComplete(operation, continuation, 0);
+    }
+
+    /**
+     * Submits the continuation with the given priority as soon as the given asynchronous operation completes (see
+     * {@link #whenComplete(CompletableFuture, Continuation)}).
+     *
+     * @param operation    the asynchronous operation.
+     * @param continuation to be executed with the result of the operation.
+     * @param priority     the priority of the continuation.
+     * @param <T>          the result type of the operation.
+     */
+    public <T> void whenComplete(CompletableFuture<T> operation, Continuation<T> continuation, long priority) {
+        TaskGroup group = currentGroup();
+        group.enter();
+        whenComplete(group, operation, continuation, priority);
+    }
+
+    /**
+     * Starts an asynchronous operation (e.g. a function invocation) as soon as a slot of the workflow budget is free
+     * and submits the continuation with the given priority as soon as the operation completes. The operation holds
+     * its slot (and the slot of a shared engine-wide budget) until it completes, so operations in flight are limited
+     * like running tasks.
+     *
+     * @param operation    starts the asynchronous operation without blocking.
+     * @param continuation to be executed with the result of the operation.
+     * @param priority     the priority of the operation and its continuation.
+     * @param <T>          the result type of the operation.
+     */
+    public <T> void startAsync(Supplier<CompletableFuture<T>> operation, Continuation<T> continuation, long priority) {
+        TaskGroup group = currentGroup();
+        group.enter();
+        budget.admitNested(() -> {
+            CompletableFuture<T> started;
+            try {
+                started = cancelled ? CompletableFuture.failedFuture(new CancellationException()) : operation.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((result, failure) -> budget.releaseNested());
+            whenComplete(group, started, continuation, priority);
+        }, priority);
+    }
+
+    /**
+     * Submits the continuation to the given group as soon as the operation completes. The group has to be entered
+     * for the operation, it is exited as soon as the continuation is submitted.
+     *
+     * @param group        the group of the continuation.
+     * @param operation    the asynchronous operation.
+     * @param continuation to be executed with the result of the operation.
+     * @param priority     the priority of the continuation.
+     * @param <T>          the result type of the operation.
+     */
+    private <T> void whenComplete(TaskGroup group, CompletableFuture<T> operation, Continuation<T> continuation,
+                                  long priority) {
+        operation.whenComplete((result, failure) -> {
+            try {
+                submit(group, () -> {
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure;
+                        throw cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+                    }
+                    continuation.accept(result);
+                    return true;
+                }, priority);
+            } finally {
+                group.exit();
+            }
+        });
+    }
+
+    /**
+     * Waits until all tasks and asynchronous operations of the workflow are finished.
+     *
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws ExecutionException   with the first failure of a task.
+     */
+    public void awaitCompletion() throws InterruptedException, ExecutionException {
+        if (root.isIdle()) {
+            return;
+        }
+        await(completion);
+    }
+
+    /**
+     * Waits for the given task of this workflow. If the calling thread runs a task of a workflow (e.g. a simulation
+     * replica waiting for its own workflow), its slot (and the slot of a shared engine-wide budget) is given back while
+     * waiting.
+     *
+     * @param future the future to wait for.
+     * @param <T>    the result type of the task.
+     *
+     * @return the result of the task.
+     *
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws ExecutionException   if the task failed.
+     */
+    public <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+        if (!future.isDone()) {
+            TaskGroup group = CURRENT.get();
+            ConcurrencyBudget held = group != null ? group.getScheduler().budget : null;
+            if (held != null) {
+                held.releaseNested();
+            }
+            try {
+                ForkJoinPool.managedBlock(new FutureBlocker(future));
+            } finally {
+                if (held != null) {
+                    held.reacquireNested();
+                }
+            }
+        }
+        return future.get();
+    }
+
+    /**
+     * Cancels all tasks of the workflow which did not start yet.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the task group of the current thread if it belongs to this workflow.
+     *
+     * @return the current task group.
+     */
+    private TaskGroup currentGroup() {
+        TaskGroup group = CURRENT.get();
+        return group != null && group.getScheduler() == this ? group : root;
+    }
+
+    /**
+     * Submits a task to the given group of the workflow.
+     *
+     * @param group    the group of the task.
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     * @param <T>      the result type of the task.
+     *
+     * @return the future of the task.
+     */
+    private <T> Future<T> submit(TaskGroup group, Callable<T> task, long priority) {
+        WorkflowTask<T> future = new WorkflowTask<>(task, group);
+        budget.execute(() -> run(future), priority);
+        return future;
+    }
+
+    /**
+     * Runs a task within the scope of its group.
+     *
+     * @param future the task to run.
+     */
+    private void run(WorkflowTask<?> future) {
+        if (cancelled) {
+            future.cancel(false);
+            return;
+        }
+        TaskGroup previous = CURRENT.get();
+        CURRENT.set(future.group);
+        try {
+            future.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** Getter */
+
+    public String getWorkflowName() {
+        return workflowName;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * A continuation executed with the result of an asynchronous operation.
+     *
+     * @param <T> the result type of the operation.
+     */
+    @FunctionalInterface
+    public interface Continuation<T> {
+        void accept(T result) throws Exception;
+    }
+
+    /**
+     * Group of tasks and asynchronous operations, which is finished as soon as all of its members are finished. A group
+     * is a member of its parent group until it is finished.
+     */
+    private class TaskGroup {
+
+        private final TaskGroup parent;
+        private final Runnable onFinished;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        TaskGroup(TaskGroup parent, Runnable onFinished) {
+            this.parent = parent;
+            this.onFinished = onFinished;
+            if (parent != null) {
+                parent.enter();
+            }
+        }
+
+        void enter() {
+            pending.incrementAndGet();
+        }
+
+        void exit() {
+            if (pending.decrementAndGet() == 0) {
+                onFinished.run();
+                if (parent != null) {
+                    parent.exit();
+                }
+            }
+        }
+
+        boolean isIdle() {
+            return pending.get() == 0;
+        }
+
+        WorkflowScheduler getScheduler() {
+            return WorkflowScheduler.this;
+        }
+    }
+
+    /**
+     * Tasks streamed through the workflow. Every task gets its own group, and as soon as a group is finished, the
+     * next task is started in its place.
+     */
+    private class TaskStream {
+
+        private final TaskGroup parent;
+        private final int count;
+        private final long priority;
+        private final IntFunction<Callable<?>> tasks;
+        private final IntConsumer onFinished;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        TaskStream(TaskGroup parent, int count, long priority, IntFunction<Callable<?>> tasks,
+                   IntConsumer onFinished) {
+            this.parent = parent;
+            this.count = count;
+            this.priority = priority;
+            this.tasks = tasks;
+            this.onFinished = onFinished;
+            this.remaining = new AtomicInteger(count);
+        }
+
+        void startNext() {
+            if (done.isDone()) {
+                return;
+            }
+            if (cancelled) {
+                done.cancel(false);
+                return;
+            }
+            int index = next.getAndIncrement();
+            if (index >= count) {
+                return;
+            }
+            Callable<?> task = tasks.apply(index);
+            submit(new TaskGroup(parent, () -> finished(index)), () -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    done.completeExceptionally(e);
+                    throw e;
+                }
+            }, priority);
+        }
+
+        void finished(int index) {
+            if (onFinished != null) {
+                onFinished.accept(index);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            } else {
+                startNext();
+            }
+        }
+    }
+
+    /**
+     * Task of the workflow which reports its failure and termination to the scheduler.
+     *
+     * @param <T> the result type of the task.
+     */
+    private class WorkflowTask<T> extends FutureTask<T> {
+
+        private final TaskGroup group;
+
+        WorkflowTask(Callable<T> task, TaskGroup group) {
+            super(task);
+            this.group = group;
+            group.enter();
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    completion.completeExceptionally(e.getCause());
+                } catch (InterruptedException | CancellationException e) {
+                    /* Not possible for a finished task */
+                }
+            }
+            group.exit();
+        }
+    }
+
+    /**
+     * Adapter to wait for a future as managed block of the pool.
+     */
+    private static class FutureBlocker implements ForkJoinPool.ManagedBlocker {
+
+        private final Future<?> future;
+
+        FutureBlocker(Future<?> future) {
+            this.future = future;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                /* Reported by the caller */
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return future.isDone();
+        }
+    }
+}
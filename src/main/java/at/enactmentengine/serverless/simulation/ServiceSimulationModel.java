@@ -15,6 +15,7 @@ public class ServiceSimulationModel {
 
     private static final Logger logger = LoggerFactory.getLogger(ServiceSimulationModel.class);
 
+    private final MetadataStore metadata;
     private String serviceString;
     private final String type;
     private final double expectedWork;
@@ -26,7 +27,8 @@ public class ServiceSimulationModel {
     private Integer originallambdaRegionId;
     private Integer serviceRegionId;
 
-    private ServiceSimulationModel(String serviceString) {
+    private ServiceSimulationModel(MetadataStore metadata, String serviceString) {
+        this.metadata = metadata;
         this.serviceString = serviceString;
         try {
             List<String> properties = Arrays.asList(serviceString.split(":"));
@@ -34,24 +36,24 @@ public class ServiceSimulationModel {
             String serviceRegionName = properties.get(1);
             expectedWork = Double.parseDouble(properties.get(2));
             expectedData = Double.parseDouble(properties.get(3));
-            Pair<Integer, Integer> serviceTypeInfo = MetadataStore.get().getServiceTypeInformation(type);
+            Pair<Integer, Integer> serviceTypeInfo = metadata.getServiceTypeInformation(type);
             typeId = serviceTypeInfo.getLeft();
             providerId = serviceTypeInfo.getRight();
-            serviceRegionId = MetadataStore.get().getRegionId(serviceRegionName);
+            serviceRegionId = metadata.getRegionId(serviceRegionName);
         } catch (RuntimeException e) {
             throw new ServiceStringException("Service deployment string could not be parsed.");
         }
     }
 
-    public ServiceSimulationModel(Integer lambdaRegionId, String serviceString) {
-        this(serviceString);
+    public ServiceSimulationModel(MetadataStore metadata, Integer lambdaRegionId, String serviceString) {
+        this(metadata, serviceString);
         this.lambdaRegionId = lambdaRegionId;
         this.originallambdaRegionId = lambdaRegionId;
     }
 
-    public ServiceSimulationModel(Integer originalLambdaRegionId, String lambdaRegionName, String serviceString) {
-        this(serviceString);
-        lambdaRegionId = MetadataStore.get().getRegionId(lambdaRegionName);
+    public ServiceSimulationModel(MetadataStore metadata, Integer originalLambdaRegionId, String lambdaRegionName, String serviceString) {
+        this(metadata, serviceString);
+        lambdaRegionId = metadata.getRegionId(lambdaRegionName);
         this.originallambdaRegionId = originalLambdaRegionId;
     }
 
@@ -71,14 +73,14 @@ public class ServiceSimulationModel {
     /**
      * Computes the total round trip time for all used services for the lambda region with the given id
      */
-    public static PairResult<String, Long> calculateTotalRttForUsedServices(Integer lambdaRegionId, List<String> usedServiceStrings) {
+    public static PairResult<String, Long> calculateTotalRttForUsedServices(MetadataStore metadata, Integer lambdaRegionId, List<String> usedServiceStrings) {
         long rtt = 0;
         int index = 1;
 
         Map<String, Double> serviceOutput = new HashMap<>();
 
         for (String serviceString : usedServiceStrings) {
-            ServiceSimulationModel serviceSimulationModel = new ServiceSimulationModel(lambdaRegionId, serviceString);
+            ServiceSimulationModel serviceSimulationModel = new ServiceSimulationModel(metadata, lambdaRegionId, serviceString);
 
             rtt += serviceSimulationModel.calculateRTT(index, serviceOutput);
             index++;
@@ -90,14 +92,15 @@ public class ServiceSimulationModel {
     /**
      * Computes the total round trip time for all used services for the lambda region with the given name
      */
-    public static PairResult<String, Long> calculateTotalRttForUsedServices(Integer lambdaRegionId, String lambdaRegionName, List<String> usedServiceStrings) {
+    public static PairResult<String, Long> calculateTotalRttForUsedServices(MetadataStore metadata, Integer lambdaRegionId, String lambdaRegionName,
+                                                                            List<String> usedServiceStrings) {
         long rtt = 0;
         int index = 1;
 
         Map<String, Double> serviceOutput = new HashMap<>();
 
         for (String serviceString : usedServiceStrings) {
-            ServiceSimulationModel serviceSimulationModel = new ServiceSimulationModel(lambdaRegionId, lambdaRegionName, serviceString);
+            ServiceSimulationModel serviceSimulationModel = new ServiceSimulationModel(metadata, lambdaRegionId, lambdaRegionName, serviceString);
             rtt += serviceSimulationModel.calculateRTT(index, serviceOutput);
             index++;
         }
@@ -114,14 +117,14 @@ public class ServiceSimulationModel {
         double roundTripTime;
         // check if service is of type file transfer
         if (type.equals("FILE_DL") || type.equals("FILE_UP")) {
-            Pair<Double, Double> dataTransferParams = MetadataStore.get().getDataTransferParamsFromDB(type, lambdaRegionId,
+            Pair<Double, Double> dataTransferParams = metadata.getDataTransferParamsFromDB(type, lambdaRegionId,
                     serviceRegionId, originallambdaRegionId, false);
             Double bandwidth = dataTransferParams.getLeft();        // in Mbps
             Double latency = dataTransferParams.getRight();         // in ms
 
             roundTripTime = expectedWork * latency + ((expectedData / bandwidth) * 1000);
         } else if (type.equals("DT_REMOVE") || type.equals("UT_REMOVE")) {
-            Pair<Double, Double> dataTransferParams = MetadataStore.get().getDataTransferParamsFromDB(type, lambdaRegionId,
+            Pair<Double, Double> dataTransferParams = metadata.getDataTransferParamsFromDB(type, lambdaRegionId,
                     serviceRegionId, originallambdaRegionId, true);
             Double bandwidth = dataTransferParams.getLeft();        // in Mbps
             Double latency = dataTransferParams.getRight();         // in ms
@@ -130,13 +133,13 @@ public class ServiceSimulationModel {
         } else {
             // 1. get missing information from DB
             // 1.1 get Networking information
-            Triple<Double, Double, Double> networkParams = MetadataStore.get().getNetworkParamsFromDB(lambdaRegionId, serviceRegionId);
+            Triple<Double, Double, Double> networkParams = metadata.getNetworkParamsFromDB(lambdaRegionId, serviceRegionId);
             Double bandwidth = networkParams.getLeft();
             Double lambdaLatency = networkParams.getMiddle();
             Double serviceLatency = networkParams.getRight();
 
             // 1.2 get Service Information
-            Pair<Double, Double> serviceParams = MetadataStore.get().getServiceParamsFromDB(typeId, serviceRegionId);
+            Pair<Double, Double> serviceParams = metadata.getServiceParamsFromDB(typeId, serviceRegionId);
             Double velocity = serviceParams.getLeft();
             Double startUpTime = serviceParams.getRight();
 
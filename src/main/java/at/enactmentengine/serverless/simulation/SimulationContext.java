@@ -0,0 +1,226 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.utils.ExecutionLog;
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The state of a single simulation run of a workflow. Every run gets its own context, so several runs of the same
+ * workflow can be simulated at the same time without affecting each other's start times, costs or random numbers.
+ * <p>
+ * Time is simulated on a virtual clock: the start time of the workflow is given, every node starts at the latest
+ * finish time of its predecessors (which is passed along the branches of the workflow), and the run ends with the
+ * latest simulated event. The logs are only written as an output, they are never read to simulate the run.
+ * The context is threaded through the simulated nodes and models instead of global state, so concurrent runs do not
+ * share any locks.
+ * <p>
+ * The random numbers of a run are derived from its seed: every scope (the workflow or an iteration of a parallelFor)
+ * and every node within a scope gets its own stream (see {@link #seed(long, long)}), so the drawn numbers only depend
+ * on the seed and on the position of the node, but not on the order in which the threads of the run happen to
+ * simulate the nodes. The numbers are computed from the seed of the stream and the index of the draw (see
+ * {@link #uniform(long, long)}), so drawing them does not allocate any generator.
+ */
+public class SimulationContext {
+
+    /**
+     * The time at which the simulation of the workflow starts.
+     */
+    private final long start;
+
+    /**
+     * The seed from which all random numbers of the run are derived.
+     */
+    private final long seed;
+
+    /**
+     * Indicates whether the simulated events are written to the logs.
+     */
+    private final boolean logged;
+
+    /**
+     * The parameters of the simulation.
+     */
+    private final SimulationParameters parameters;
+
+    /**
+     * The whole cost of the workflow. The sum is exact, so it does not depend on the order of the additions.
+     */
+    private final AtomicReference<BigDecimal> cost = new AtomicReference<>(BigDecimal.ZERO);
+
+    /**
+     * The latest end of all simulated events.
+     */
+    private final AtomicLong lastEnd = new AtomicLong();
+
+    /**
+     * Constructor for a logged simulation run with a random seed.
+     *
+     * @param start      the time at which the simulation of the workflow starts.
+     * @param parameters the parameters of the simulation.
+     */
+    public SimulationContext(long start, SimulationParameters parameters) {
+        this(start, ThreadLocalRandom.current().nextLong(), true, parameters);
+    }
+
+    /**
+     * Default constructor for a simulation run.
+     *
+     * @param start      the time at which the simulation of the workflow starts.
+     * @param seed       the seed from which all random numbers of the run are derived.
+     * @param logged     whether the simulated events are written to the logs.
+     * @param parameters the parameters of the simulation.
+     */
+    public SimulationContext(long start, long seed, boolean logged, SimulationParameters parameters) {
+        this.start = start;
+        this.seed = seed;
+        this.logged = logged;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Derives the seed of a sub-stream of random numbers (SplitMix64 mixing). Different keys result in independent
+     * streams, the same seed and key always result in the same stream.
+     *
+     * @param seed the seed of the enclosing stream.
+     * @param key  the key of the sub-stream (e.g. the slot of a node or the number of an iteration).
+     *
+     * @return the seed of the sub-stream.
+     */
+    public static long seed(long seed, long key) {
+        long z = seed + (key + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Draws a uniformly distributed number of the stream with the given seed. The draws of a stream are numbered, so
+     * no generator has to be created or kept, and the same seed and index always result in the same number.
+     *
+     * @param seed  the seed of the stream (see {@link #seed(long, long)}).
+     * @param index the number of the draw within the stream.
+     *
+     * @return a number between 0 (inclusive) and 1 (exclusive).
+     */
+    public static double uniform(long seed, long index) {
+        return (seed(seed, index) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Draws a normally distributed number with mean 0 and standard deviation 1 from the stream with the given seed
+     * (Box-Muller transform of the draws {@code index} and {@code index + 1}).
+     *
+     * @param seed  the seed of the stream (see {@link #seed(long, long)}).
+     * @param index the number of the first of the two draws used.
+     *
+     * @return the normally distributed number.
+     */
+    public static double gaussian(long seed, long index) {
+        double radius = Math.sqrt(-2 * Math.log(1 - uniform(seed, index)));
+        return radius * Math.cos(2 * Math.PI * uniform(seed, index + 1));
+    }
+
+    /**
+     * Adds the cost of a simulated function to the cost of the workflow.
+     *
+     * @param functionCost the cost of the function.
+     */
+    public void addCost(double functionCost) {
+        BigDecimal value = new BigDecimal(functionCost);
+        cost.accumulateAndGet(value, BigDecimal::add);
+    }
+
+    /**
+     * Records a simulated event without a cost and writes it to the logs if the run is logged (see
+     * {@link ExecutionLog#saveLog}).
+     *
+     * @param event          the simulated event.
+     * @param resourceLink   the resource link of the function.
+     * @param deployment     the deployment of the function.
+     * @param functionName   the name of the function.
+     * @param type           the type of the function.
+     * @param output         the output of the function.
+     * @param rtt            the simulated round trip time.
+     * @param success        whether the simulation was successful.
+     * @param loopCounter    the number of the iteration ({@code -1} if not within a parallelFor).
+     * @param maxLoopCounter the end of the enclosing parallelFor.
+     * @param startTime      the simulated start time.
+     */
+    public void saveLog(Event event, String resourceLink, String deployment, String functionName, String type,
+                        String output, long rtt, boolean success, int loopCounter, int maxLoopCounter,
+                        long startTime) {
+        lastEnd.accumulateAndGet(startTime + rtt, Math::max);
+        if (logged) {
+            ExecutionLog.saveLog(event, resourceLink, deployment, functionName, type, output, rtt, success,
+                    loopCounter, maxLoopCounter, startTime, Type.SIM);
+        }
+    }
+
+    /**
+     * Records a simulated event and writes it to the logs if the run is logged (see {@link ExecutionLog#saveLog}).
+     *
+     * @param event          the simulated event.
+     * @param resourceLink   the resource link of the function.
+     * @param deployment     the deployment of the function.
+     * @param functionName   the name of the function.
+     * @param type           the type of the function.
+     * @param output         the output of the function.
+     * @param rtt            the simulated round trip time.
+     * @param functionCost   the simulated cost.
+     * @param success        whether the simulation was successful.
+     * @param loopCounter    the number of the iteration ({@code -1} if not within a parallelFor).
+     * @param maxLoopCounter the end of the enclosing parallelFor.
+     * @param startTime      the simulated start time.
+     */
+    public void saveLog(Event event, String resourceLink, String deployment, String functionName, String type,
+                        String output, long rtt, double functionCost, boolean success, int loopCounter,
+                        int maxLoopCounter, long startTime) {
+        lastEnd.accumulateAndGet(startTime + rtt, Math::max);
+        if (logged) {
+            ExecutionLog.saveLog(event, resourceLink, deployment, functionName, type, output, rtt, functionCost,
+                    success, loopCounter, maxLoopCounter, startTime, Type.SIM);
+        }
+    }
+
+    /**
+     * Returns the simulated duration of the workflow.
+     *
+     * @return the time from the start of the workflow to the end of its last event in milliseconds.
+     */
+    public long getMakespan() {
+        return Math.max(0, lastEnd.get() - start);
+    }
+
+
+    /** Getter */
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isLogged() {
+        return logged;
+    }
+
+    public SimulationParameters getParameters() {
+        return parameters;
+    }
+
+    public MetadataStore getMetadata() {
+        return parameters.getMetadata();
+    }
+
+    public double getCost() {
+        return cost.get().doubleValue();
+    }
+}
@@ -0,0 +1,195 @@
+package at.enactmentengine.serverless.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Discrete-event kernel assigning the virtual start times of the iterations of a simulated parallelFor loop. Only
+ * {@code slots} iterations may run at the same time, every further iteration starts as soon as a slot is released.
+ * <p>
+ * The releases of the slots are kept as events in a priority queue ordered by their virtual time. Iterations are
+ * assigned to slots strictly in the order of their loop counter, and an iteration exceeding the concurrency only
+ * gets a slot once the ends of all previous iterations are known. Therefore, the start times only depend on the
+ * simulated durations and not on the order in which the threads of the workflow happen to finish.
+ */
+public final class SimulationKernel {
+
+    /**
+     * The number of iterations which may run at the same time.
+     */
+    private final int slots;
+
+    /**
+     * The virtual times at which the occupied slots are released.
+     */
+    private final PriorityQueue<Long> releases = new PriorityQueue<>();
+
+    /**
+     * The slot times of the iterations which got a slot but were not processed yet.
+     */
+    private final Map<Integer, Long> slotTimes = new HashMap<>();
+
+    /**
+     * The start times handed out to the iterations which were not processed yet.
+     */
+    private final Map<Integer, Long> startTimes = new HashMap<>();
+
+    /**
+     * The latest finish times reported for the iterations which were not processed yet.
+     */
+    private final Map<Integer, Long> finishTimes = new HashMap<>();
+
+    /**
+     * The iterations waiting for a slot.
+     */
+    private final Map<Integer, Request> requests = new HashMap<>();
+
+    /**
+     * The ended iterations which were not processed yet.
+     */
+    private final Set<Integer> ended = new HashSet<>();
+
+    /**
+     * The next iteration to assign to a slot.
+     */
+    private int assigned;
+
+    /**
+     * The number of iterations whose release is part of the events.
+     */
+    private int processed;
+
+    /**
+     * Default constructor for a simulation kernel.
+     *
+     * @param slots the number of iterations which may run at the same time ({@code <= 0} for no limit).
+     */
+    public SimulationKernel(int slots) {
+        this.slots = slots <= 0 ? Integer.MAX_VALUE : slots;
+    }
+
+    /**
+     * Returns the virtual start time of an iteration. All callers within the same iteration get the same start
+     * time.
+     *
+     * @param iteration the loop counter of the iteration.
+     * @param earliest  the earliest possible start time of the iteration.
+     *
+     * @return future completed with the start time as soon as the iteration got a slot.
+     */
+    public CompletableFuture<Long> start(int iteration, long earliest) {
+        List<Runnable> completions;
+        CompletableFuture<Long> future;
+        synchronized (this) {
+            Long start = startTimes.get(iteration);
+            if (start != null) {
+                return CompletableFuture.completedFuture(start);
+            }
+            Request request = requests.get(iteration);
+            if (request != null) {
+                return request.future;
+            }
+            request = new Request(earliest);
+            requests.put(iteration, request);
+            future = request.future;
+            completions = advance();
+        }
+        completions.forEach(Runnable::run);
+        return future;
+    }
+
+    /**
+     * Reports a finish time of an iteration. If there are several, the latest one is used.
+     *
+     * @param iteration the loop counter of the iteration.
+     * @param time      the virtual finish time.
+     */
+    public synchronized void finish(int iteration, long time) {
+        finishTimes.merge(iteration, time, Math::max);
+    }
+
+    /**
+     * Releases the slot of an ended iteration at its latest reported finish time. Every iteration has to be released
+     * exactly once, also if it failed.
+     *
+     * @param iteration the loop counter of the iteration.
+     */
+    public void release(int iteration) {
+        List<Runnable> completions;
+        synchronized (this) {
+            ended.add(iteration);
+            completions = advance();
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Processes the events until no iteration can be assigned or released anymore.
+     *
+     * @return the completions of the requests which got a slot (to be run without holding the lock).
+     */
+    private List<Runnable> advance() {
+        List<Runnable> completions = new ArrayList<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+
+            /* Assign the next iteration to a slot if it is known that no earlier release is outstanding */
+            if ((requests.containsKey(assigned) || ended.contains(assigned))
+                    && (assigned < slots || processed >= assigned)) {
+                long slot = assigned < slots ? 0 : releases.poll();
+                slotTimes.put(assigned, slot);
+                Request request = requests.remove(assigned);
+                if (request != null) {
+                    long start = Math.max(request.earliest, slot);
+                    startTimes.put(assigned, start);
+                    completions.add(() -> request.future.complete(start));
+                }
+                assigned++;
+                progress = true;
+            }
+
+            /* Release the slot of the next ended iteration */
+            if (processed < assigned && ended.remove(processed)) {
+                long start = startTimes.containsKey(processed) ? startTimes.remove(processed)
+                        : slotTimes.get(processed);
+                slotTimes.remove(processed);
+                Long finish = finishTimes.remove(processed);
+                releases.add(finish != null ? Math.max(finish, start) : start);
+                processed++;
+                progress = true;
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * An iteration waiting for a slot.
+     */
+    private static final class Request {
+        /**
+         * The earliest possible start time of the iteration.
+         */
+        private final long earliest;
+        /**
+         * Completed with the start time of the iteration.
+         */
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private Request(long earliest) {
+            this.earliest = earliest;
+        }
+    }
+
+    /** Getter */
+
+    public int getSlots() {
+        return slots;
+    }
+}
@@ -5,7 +5,6 @@ import at.enactmentengine.serverless.exception.MissingSimulationParametersExcept
 import at.enactmentengine.serverless.exception.RegionDetectionException;
 import at.enactmentengine.serverless.object.PairResult;
 import at.enactmentengine.serverless.object.Utils;
-import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
 import at.enactmentengine.serverless.simulation.metadata.model.Cpu;
 import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
 import at.enactmentengine.serverless.simulation.metadata.model.FunctionImplementation;
@@ -14,7 +13,6 @@ import at.uibk.dps.util.Provider;
 
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Class that handles the simulation of the round trip time of a function based on various parameters.
@@ -23,6 +21,21 @@ import java.util.Random;
  */
 public class SimulationModel {
 
+    /**
+     * The simulation run the function belongs to.
+     */
+    private final SimulationContext simulation;
+
+    /**
+     * The seed of the random numbers of the simulated function.
+     */
+    private final long seed;
+
+    /**
+     * The number of random numbers drawn so far.
+     */
+    private long draws;
+
     /**
      * The entry for the functionDeployment in the Metadata-DB.
      */
@@ -66,6 +79,8 @@ public class SimulationModel {
     /**
      * Constructs the SimulationModel object.
      *
+     * @param simulation         the simulation run the function belongs to
+     * @param seed               the seed of the random numbers of the simulated function
      * @param functionDeployment the database entry for the functionDeployment to simulate
      * @param provider           the provider to simulate
      * @param region             the region to simulate in
@@ -74,7 +89,10 @@ public class SimulationModel {
      *
      * @throws SQLException if an error occurs when reading fields from the database entry
      */
-    public SimulationModel(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize, int loopCounter) throws SQLException {
+    public SimulationModel(SimulationContext simulation, long seed, FunctionDeployment functionDeployment,
+                           Provider provider, String region, int memorySize, int loopCounter) throws SQLException {
+        this.simulation = simulation;
+        this.seed = seed;
         this.functionDeployment = functionDeployment;
         this.provider = provider;
         this.region = region;
@@ -91,18 +109,18 @@ public class SimulationModel {
      *
      * @param executionTime to apply the distribution on
      * @param success       whether the simulation is successful or not
+     * @param simulation    the simulation run the function belongs to
+     * @param seed          the seed of the random numbers of the distribution
      *
      * @return the execution time with the applied distribution
      */
-    public static long applyDistribution(long executionTime, boolean success) {
-        if (success && !SimulationParameters.NO_DISTRIBUTION) {
+    public static long applyDistribution(long executionTime, boolean success, SimulationContext simulation, long seed) {
+        if (success && !simulation.getParameters().isNoDistribution()) {
             // calculate the time as usual
-            Random r = new Random();
-            executionTime = (long) (r.nextGaussian() * (executionTime * 0.01) + executionTime);
+            executionTime = (long) (SimulationContext.gaussian(seed, 0) * (executionTime * 0.01) + executionTime);
         } else if (!success){
             // get a random double between 0 and 1
-            Random random = new Random();
-            executionTime *= random.nextDouble();
+            executionTime *= SimulationContext.uniform(seed, 0);
         }
         return executionTime;
     }
@@ -127,8 +145,8 @@ public class SimulationModel {
         Provider mdProvider = Utils.detectProvider(functionId);
         String mdRegion = Utils.detectRegion(functionId);
 
-        at.enactmentengine.serverless.simulation.metadata.model.Provider mdProviderEntry = MetadataStore.get().getProviderEntry(mdProvider);
-        Region mdRegionEntry = MetadataStore.get().getRegionEntry(mdRegion, mdProvider);
+        at.enactmentengine.serverless.simulation.metadata.model.Provider mdProviderEntry = simulation.getMetadata().getProviderEntry(mdProvider);
+        Region mdRegionEntry = simulation.getMetadata().getRegionEntry(mdRegion, mdProvider);
 
         int faasOverhead = mdProviderEntry.getFaasSystemOverheadms();
         int cryptoOverhead = mdProviderEntry.getCryptoOverheadms();
@@ -179,8 +197,8 @@ public class SimulationModel {
     private long addOverheads(long executionTime) throws SQLException, MissingSimulationParametersException {
         // O = xcs · CSO + NO + xa · AO + F O + CO
 
-        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-        Region regionEntry = MetadataStore.get().getRegionEntry(region, provider);
+        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = simulation.getMetadata().getProviderEntry(provider);
+        Region regionEntry = simulation.getMetadata().getRegionEntry(region, provider);
 
         int faasOverhead = providerEntry.getFaasSystemOverheadms();
         int cryptoOverhead = providerEntry.getCryptoOverheadms();
@@ -226,13 +244,13 @@ public class SimulationModel {
      */
     private long estimateExecutionTime() throws SQLException, MissingComputationalWorkException {
         long implementationId = functionDeployment.getFunctionImplementationId();
-        FunctionImplementation implementation = MetadataStore.get().getImplementationById(implementationId);
+        FunctionImplementation implementation = simulation.getMetadata().getImplementationById(implementationId);
         double instructions = implementation.getComputationWork();
         if (instructions == 0) {
             throw new MissingComputationalWorkException("No computational work is given for the functionImplementation " +
                     "with the id " + implementationId + ". Therefore simulating different memory sizes is not possible.");
         }
-        List<FunctionDeployment> sameMemoryDeployment = MetadataStore.get().getDeploymentsWithImplementationIdAndMemorySize(implementationId, memorySize);
+        List<FunctionDeployment> sameMemoryDeployment = simulation.getMetadata().getDeploymentsWithImplementationIdAndMemorySize(implementationId, memorySize);
         double speedup = 0;
         if (sameMemoryDeployment != null && !sameMemoryDeployment.isEmpty()) {
             speedup = sameMemoryDeployment.get(0).getSpeedup();
@@ -243,26 +261,25 @@ public class SimulationModel {
             speedup = memorySize / 128.0;
         }
         // get a random double between 0 and 1
-        Random random = new Random();
-        int randomValue = (int) (random.nextDouble() * 100);
+        int randomValue = (int) (SimulationContext.uniform(seed, draws++) * 100);
         int parallel = loopCounter == -1 ? 0 : 1;
         Cpu cpu = null;
 
         switch (provider) {
             case AWS:
-                cpu = MetadataStore.get().getCpuByProvider(provider, parallel, randomValue);
+                cpu = simulation.getMetadata().getCpuByProvider(provider, parallel, randomValue);
                 break;
             case GOOGLE:
-                at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
+                at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = simulation.getMetadata().getProviderEntry(provider);
                 int maxConcurrency = providerEntry.getMaxConcurrency();
                 // if the loopCounter is smaller than the concurrency limit, use the sequential CPU
                 if (loopCounter < maxConcurrency) {
                     parallel = 0;
                 }
-                cpu = MetadataStore.get().getCpuByProvider(provider, parallel, randomValue);
+                cpu = simulation.getMetadata().getCpuByProvider(provider, parallel, randomValue);
                 break;
             case IBM:
-                cpu = MetadataStore.get().getCpuByProviderAndRegion(provider, region, parallel, randomValue);
+                cpu = simulation.getMetadata().getCpuByProviderAndRegion(provider, region, parallel, randomValue);
                 break;
             default:
                 break;
@@ -295,9 +312,9 @@ public class SimulationModel {
             executionTime = estimateExecutionTime();
         }
 
-        executionTime = applyDistribution(executionTime, success);
+        executionTime = applyDistribution(executionTime, success, simulation, SimulationContext.seed(seed, draws++));
         double cost = calculateCost(memorySize, executionTime, provider);
-        SimulationParameters.workflowCost += cost;
+        simulation.addCost(cost);
         long rtt = addOverheads(executionTime);
 
         return new PairResult<>(rtt, cost);
@@ -313,7 +330,7 @@ public class SimulationModel {
      * @return the total cost of the executed function
      */
     private double calculateCost(int memorySize, double runtime, Provider provider) {
-        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
+        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = simulation.getMetadata().getProviderEntry(provider);
         double result = -1.0;
 
         if (providerEntry != null) {
@@ -0,0 +1,169 @@
+package at.enactmentengine.serverless.simulation;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Summary of a batch of independent simulation runs (replicas) of the same workflow. Only the successful replicas are
+ * part of the makespan and cost distributions.
+ */
+public class SimulationSummary {
+
+    /**
+     * The number of simulated replicas.
+     */
+    private final int replicas;
+
+    /**
+     * The number of replicas whose simulation failed.
+     */
+    private final int failures;
+
+    /**
+     * The distribution of the simulated durations of the workflow in milliseconds.
+     */
+    private final Distribution makespan;
+
+    /**
+     * The distribution of the simulated costs of the workflow.
+     */
+    private final Distribution cost;
+
+    /**
+     * Default constructor for a simulation summary.
+     *
+     * @param replicas  the number of simulated replicas.
+     * @param makespans the simulated durations of the successful replicas.
+     * @param costs     the simulated costs of the successful replicas.
+     */
+    public SimulationSummary(int replicas, double[] makespans, double[] costs) {
+        this.replicas = replicas;
+        this.failures = replicas - makespans.length;
+        this.makespan = new Distribution(makespans);
+        this.cost = new Distribution(costs);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d replicas (%d failed), makespan [ms] %s, cost %s",
+                replicas, failures, makespan, cost);
+    }
+
+    /** Getter */
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public Distribution getMakespan() {
+        return makespan;
+    }
+
+    public Distribution getCost() {
+        return cost;
+    }
+
+    /**
+     * Summary statistics of a sample.
+     */
+    public static class Distribution {
+
+        /**
+         * The z-value of the 95% confidence interval of the mean.
+         */
+        private static final double Z_95 = 1.96;
+
+        /**
+         * The sorted values of the sample.
+         */
+        private final double[] values;
+
+        /**
+         * The mean of the sample.
+         */
+        private final double mean;
+
+        /**
+         * The (corrected) standard deviation of the sample.
+         */
+        private final double standardDeviation;
+
+        /**
+         * Computes the statistics of the given sample.
+         *
+         * @param sample the values of the sample.
+         */
+        public Distribution(double[] sample) {
+            values = sample.clone();
+            Arrays.sort(values);
+            int n = values.length;
+            double sum = 0;
+            for (double value : values) {
+                sum += value;
+            }
+            mean = n == 0 ? Double.NaN : sum / n;
+            double squares = 0;
+            for (double value : values) {
+                squares += (value - mean) * (value - mean);
+            }
+            standardDeviation = n < 2 ? 0 : Math.sqrt(squares / (n - 1));
+        }
+
+        /**
+         * Returns the given percentile of the sample (nearest-rank method).
+         *
+         * @param percentile the percentile between 0 and 100.
+         *
+         * @return the smallest value such that at least the given percentage of the sample is less or equal to it.
+         */
+        public double getPercentile(double percentile) {
+            if (values.length == 0) {
+                return Double.NaN;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * values.length);
+            return values[Math.min(values.length, Math.max(1, rank)) - 1];
+        }
+
+        /**
+         * Returns the half-width of the 95% confidence interval of the mean (normal approximation).
+         *
+         * @return the half-width of the interval.
+         */
+        public double getConfidenceInterval() {
+            return values.length == 0 ? Double.NaN : Z_95 * standardDeviation / Math.sqrt(values.length);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "mean=%.6g (95%% CI ±%.3g), p50=%.6g, p95=%.6g, p99=%.6g, min=%.6g, max=%.6g",
+                    mean, getConfidenceInterval(), getPercentile(50), getPercentile(95), getPercentile(99),
+                    getMin(), getMax());
+        }
+
+        /** Getter */
+
+        public int getSize() {
+            return values.length;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+
+        public double getMin() {
+            return values.length == 0 ? Double.NaN : values[0];
+        }
+
+        public double getMax() {
+            return values.length == 0 ? Double.NaN : values[values.length - 1];
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package at.enactmentengine.serverless.simulation.metadata;
 
+import at.enactmentengine.serverless.simulation.metadata.cache.JsonProvider;
 import at.enactmentengine.serverless.simulation.metadata.model.*;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MetadataStore implements DataStore {
 
     private static MetadataStore INSTANCE;
-    public static boolean USE_JSON_METADATA = false;
     public static boolean FORCE_DATABASE_PROVIDER = false;
 
+    /**
+     * Incremented whenever the metadata was refreshed, so values derived from it can be computed again.
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
     private final DataProvider dataProvider;
 
     public static synchronized MetadataStore get() {
@@ -21,10 +27,36 @@ public class MetadataStore implements DataStore {
         return MetadataStore.INSTANCE;
     }
 
-    private MetadataStore(DataProvider dataProvider) {
+    public MetadataStore(DataProvider dataProvider) {
         this.dataProvider = dataProvider;
     }
 
+    /**
+     * Marks the metadata as refreshed (e.g. after the metadata database was updated).
+     */
+    public static void refreshed() {
+        VERSION.incrementAndGet();
+    }
+
+    /**
+     * Returns the version of the metadata, which changes whenever the metadata was refreshed.
+     *
+     * @return the version of the metadata
+     */
+    public static long getVersion() {
+        return VERSION.get();
+    }
+
+    /**
+     * Checks whether the metadata is read from the local JSON files instead of the metadata database. JSON metadata
+     * cannot be refreshed while simulating.
+     *
+     * @return true if the metadata is read from JSON files, false otherwise
+     */
+    public boolean usesJsonMetadata() {
+        return dataProvider instanceof JsonProvider;
+    }
+
     @Override
     public FunctionDeployment getFunctionIdEntry(String kmsArn) {
         return dataProvider.getFunctionIdEntry(kmsArn);
@@ -21,7 +21,6 @@ public class ProviderSelector {
 
     public static DataProvider getProvider(boolean forceDatabaseProvider) {
         if (!forceDatabaseProvider && jsonFilesExist()) {
-            MetadataStore.USE_JSON_METADATA = true;
             return JsonProvider.get();
         } else {
             return DatabaseProvider.get();
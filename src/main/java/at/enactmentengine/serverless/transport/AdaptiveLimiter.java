@@ -0,0 +1,206 @@
+package at.enactmentengine.serverless.transport;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Limits the number of invocations in flight for a provider region and adapts the limit to the observed behaviour
+ * (additive increase, multiplicative decrease). The limit starts at the concurrency limit of the provider account and
+ * never exceeds it. It is decreased if invocations are throttled or if the smoothed round trip time of a function
+ * grows well beyond its long-term average, and increased by one for every successful invocation while the limit is
+ * actually used. The long-term average follows the round trip times slowly, so functions whose round trip time
+ * depends on their input or that got a single fast (e.g. cached) response do not keep the limit down.
+ * <p>
+ * The limit is decreased at most once per round of invocations (the invocations in flight at the time of the last
+ * decrease), so a burst of throttling errors caused by a single overshoot does not collapse the limit.
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * The factor the limit is multiplied with on congestion.
+     */
+    public static double BACKOFF_RATIO = 0.9;
+
+    /**
+     * The ratio between the smoothed and the long-term round trip time of a function above which the provider is
+     * considered congested.
+     */
+    public static double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * The weight of a new round trip time in the smoothed round trip time.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * The weight of a new round trip time in the long-term round trip time.
+     */
+    private static final double BASELINE_SMOOTHING = 0.01;
+
+    /**
+     * Matches the status code of rejected requests.
+     */
+    private static final Pattern STATUS_429 = Pattern.compile("\\b429\\b");
+
+    /**
+     * The upper bound of the limit (the concurrency limit of the provider).
+     */
+    private final int maxLimit;
+
+    /**
+     * Guards the state of the limiter.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when an invocation finished or the limit increased.
+     */
+    private final Condition available = lock.newCondition();
+
+    /**
+     * The round trip times of the functions (long-term and smoothed) invoked in the region.
+     */
+    private final Map<String, double[]> latencies = new HashMap<>();
+
+    /**
+     * The current limit.
+     */
+    private double limit;
+
+    /**
+     * The number of invocations in flight.
+     */
+    private int inFlight;
+
+    /**
+     * The number of finished invocations.
+     */
+    private long completed;
+
+    /**
+     * The number of finished invocations after which the limit may be decreased again.
+     */
+    private long recoveredAt;
+
+    /**
+     * Default constructor for an adaptive limiter.
+     *
+     * @param maxLimit the concurrency limit of the provider.
+     */
+    public AdaptiveLimiter(int maxLimit) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("The concurrency limit has to be at least 1, but was " + maxLimit);
+        }
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Waits until another invocation may be started.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finishes an invocation started with {@link #acquire()} and adapts the limit.
+     *
+     * @param function  the invoked function.
+     * @param rtt       the round trip time of the invocation (negative if it failed).
+     * @param throttled whether the invocation was rejected by the provider.
+     */
+    public void release(String function, long rtt, boolean throttled) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+            completed++;
+            if (throttled) {
+                decrease();
+            } else if (rtt >= 0) {
+                double[] latency = latencies.get(function);
+                if (latency == null) {
+                    latencies.put(function, new double[]{rtt, rtt});
+                } else {
+                    latency[0] += BASELINE_SMOOTHING * (rtt - latency[0]);
+                    latency[1] += SMOOTHING * (rtt - latency[1]);
+                }
+                if (latency != null && latency[1] > LATENCY_TOLERANCE * Math.max(latency[0], 1)) {
+                    decrease();
+                } else if (saturated) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decreases the limit if it was not already decreased for the invocations currently in flight.
+     */
+    private void decrease() {
+        if (completed > recoveredAt) {
+            limit = Math.max(1, limit * BACKOFF_RATIO);
+            recoveredAt = completed + inFlight;
+        }
+    }
+
+    /**
+     * Checks whether an invocation failed because the provider throttled it.
+     *
+     * @param failure the cause of the failed invocation.
+     *
+     * @return true if the failure or one of its causes indicates throttling.
+     */
+    public static boolean isThrottling(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage() != null ? cause.getMessage().toLowerCase(Locale.ROOT) : "";
+            String type = cause.getClass().getSimpleName().toLowerCase(Locale.ROOT);
+            if (STATUS_429.matcher(message).find() || message.contains("toomanyrequests") || message.contains("rate exceeded")
+                    || message.contains("throttl") || type.contains("toomanyrequests") || type.contains("throttl")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Getter */
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package at.enactmentengine.serverless.transport;
+
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import jFaaS.utils.PairResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Invokes a function and sends a second (hedged) request if the first one takes longer than a latency percentile of
+ * the function. The hedged request goes to the same or an alternative deployment, the first successful result is
+ * used and the other request is cancelled. No hedged requests are sent until enough invocations of the function have
+ * been observed (see {@link LatencyHistory}).
+ */
+public final class HedgedInvocation {
+
+    /**
+     * Logger for hedged invocations.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(HedgedInvocation.class);
+
+    /**
+     * The number of sent hedged requests.
+     */
+    private static final AtomicLong hedged = new AtomicLong();
+
+    /**
+     * The number of hedged requests which finished first.
+     */
+    private static final AtomicLong won = new AtomicLong();
+
+    private HedgedInvocation() {
+    }
+
+    /**
+     * Invokes a function with a hedged request.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param alternative  the resource link the hedged request is sent to.
+     * @param input        the input of the function.
+     * @param percentile   the latency percentile (between 0 and 1) after which the hedged request is sent.
+     * @param success      checks whether a result is successful.
+     *
+     * @return the first successful result (or the result of the first request if none was successful), the time it
+     * took to get it and whether it is the result of the hedged request.
+     *
+     * @throws IOException          if all requests failed.
+     * @throws InterruptedException if interrupted while waiting for the results.
+     */
+    public static Result invoke(String resourceLink, String alternative, Map<String, Object> input, double percentile,
+                                Predicate<String> success) throws IOException, InterruptedException {
+        long delay = LatencyHistory.get().percentile(resourceLink, percentile);
+        if (delay < 0) {
+            PairResult<String, Long> result = InvocationTransport.get().invoke(resourceLink, input);
+            return new Result(result.getResult(), result.getRTT(), false);
+        }
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<PairResult<String, Long>> first = EngineScheduler.get().invokeAsync(
+                () -> InvocationTransport.get().invoke(resourceLink, input));
+        CompletableFuture<PairResult<String, Long>> second = null;
+        try {
+            try {
+                PairResult<String, Long> result = first.get(delay, TimeUnit.MILLISECONDS);
+                return new Result(result.getResult(), result.getRTT(), false);
+            } catch (TimeoutException e) {
+                /* The invocation is slower than usual, send the hedged request */
+            }
+            logger.info("Invocation of {} exceeded {}ms, sending hedged request to {}", resourceLink, delay,
+                    alternative);
+            hedged.incrementAndGet();
+            second = EngineScheduler.get().invokeAsync(() -> InvocationTransport.get().invoke(alternative, input));
+
+            PairResult<String, Long> result = firstSuccessful(first, second, success).get();
+            boolean hedgedResult = second.isDone() && !second.isCompletedExceptionally() && second.join() == result;
+            if (hedgedResult) {
+                won.incrementAndGet();
+            }
+            return new Result(result.getResult(), System.currentTimeMillis() - start, hedgedResult);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Completes with the first successful result of two requests. If neither is successful, it completes like the
+     * first request.
+     *
+     * @param first   the first request.
+     * @param second  the hedged request.
+     * @param success checks whether a result is successful.
+     *
+     * @return the first successful result.
+     */
+    private static CompletableFuture<PairResult<String, Long>> firstSuccessful(
+            CompletableFuture<PairResult<String, Long>> first, CompletableFuture<PairResult<String, Long>> second,
+            Predicate<String> success) {
+        CompletableFuture<PairResult<String, Long>> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(2);
+        BiConsumer<PairResult<String, Long>, Throwable> handler = (result, failure) -> {
+            if (failure == null && result.getResult() != null && success.test(result.getResult())) {
+                winner.complete(result);
+            } else if (remaining.decrementAndGet() == 0) {
+                /* Neither request was successful, report the outcome of the first one */
+                first.whenComplete((r, f) -> {
+                    if (f != null) {
+                        winner.completeExceptionally(f);
+                    } else {
+                        winner.complete(r);
+                    }
+                });
+            }
+        };
+        first.whenComplete(handler);
+        second.whenComplete(handler);
+        return winner;
+    }
+
+    /** Getter */
+
+    public static long getHedged() {
+        return hedged.get();
+    }
+
+    public static long getWon() {
+        return won.get();
+    }
+
+    /**
+     * The result of a hedged invocation.
+     */
+    public static final class Result extends PairResult<String, Long> {
+
+        /**
+         * Whether the result is the result of the hedged request.
+         */
+        private final boolean hedged;
+
+        private Result(String result, Long rtt, boolean hedged) {
+            super(result, rtt);
+            this.hedged = hedged;
+        }
+
+        public boolean isHedged() {
+            return hedged;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package at.enactmentengine.serverless.transport;
+
+import at.enactmentengine.serverless.object.DataType;
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.uibk.dps.util.Provider;
+import jFaaS.Gateway;
+import jFaaS.utils.PairResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Engine-wide transport for function invocations. Functions with an HTTP trigger are invoked directly by one
+ * {@link HttpClient} per provider, which keeps the connections to each host alive and multiplexes requests over HTTP/2
+ * where the provider supports it. Therefore only the first invocation of a host pays the TLS handshake. All other
+ * functions (AWS Lambda ARNs and IBM actions requiring the API key) are invoked by the {@link Gateway} of jFaaS.
+ * <p>
+ * The number of invocations in flight can be limited per endpoint (host or AWS region) with
+ * {@link #MAX_IN_FLIGHT_PER_ENDPOINT} or adaptively with {@link #ADAPTIVE_CONCURRENCY}, further invocations wait until
+ * one of them finished.
+ */
+public final class InvocationTransport {
+
+    /**
+     * Logger for the invocation transport.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(InvocationTransport.class);
+
+    /**
+     * Flag that determines whether HTTP functions are invoked by the pooled clients (otherwise all functions are
+     * invoked by jFaaS).
+     */
+    public static boolean POOLED_HTTP = false;
+
+    /**
+     * Flag that determines whether HTTP/2 is negotiated with providers supporting it.
+     */
+    public static boolean HTTP2 = true;
+
+    /**
+     * The maximum number of invocations in flight per endpoint (less than 1 for no limit, has to be set before the
+     * first invocation of an endpoint).
+     */
+    public static int MAX_IN_FLIGHT_PER_ENDPOINT = 0;
+
+    /**
+     * Flag that determines whether the invocations in flight per provider region are limited adaptively (see
+     * {@link AdaptiveLimiter}).
+     */
+    public static boolean ADAPTIVE_CONCURRENCY = false;
+
+    /**
+     * The concurrency limit used for the adaptive limit if the metadata does not contain the limit of a provider.
+     */
+    public static int DEFAULT_CONCURRENCY = 1000;
+
+    /**
+     * The timeout for establishing a connection in milliseconds.
+     */
+    public static long CONNECT_TIMEOUT = 10000;
+
+    /**
+     * The timeout for a single invocation in milliseconds (the maximum running time of AWS Lambda).
+     */
+    public static long REQUEST_TIMEOUT = 900000;
+
+    /**
+     * The single instance of the transport.
+     */
+    private static InvocationTransport INSTANCE;
+
+    /**
+     * Invokes the functions which cannot be invoked by the pooled clients.
+     */
+    private final Gateway gateway = new Gateway(Utils.PATH_TO_CREDENTIALS);
+
+    /**
+     * The HTTP clients (including their connection pools) of the providers.
+     */
+    private final Map<Provider, HttpClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Limits the invocations in flight per endpoint.
+     */
+    private final Map<String, Semaphore> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Limits the invocations in flight per provider region adaptively.
+     */
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    private InvocationTransport() {
+    }
+
+    /**
+     * Returns the invocation transport and creates it on the first call.
+     *
+     * @return the invocation transport.
+     */
+    public static synchronized InvocationTransport get() {
+        if (InvocationTransport.INSTANCE == null) {
+            InvocationTransport.INSTANCE = new InvocationTransport();
+        }
+        return InvocationTransport.INSTANCE;
+    }
+
+    /**
+     * Invokes a function and waits for its result.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param input        the input of the function.
+     *
+     * @return the result of the function and its round trip time.
+     *
+     * @throws IOException if the invocation failed.
+     */
+    public PairResult<String, Long> invoke(String resourceLink, Map<String, Object> input) throws IOException {
+        Provider provider = Utils.detectProvider(resourceLink);
+        String endpoint = endpoint(resourceLink, provider);
+        Semaphore permits = MAX_IN_FLIGHT_PER_ENDPOINT > 0
+                ? inFlight.computeIfAbsent(endpoint, e -> new Semaphore(MAX_IN_FLIGHT_PER_ENDPOINT))
+                : null;
+        AdaptiveLimiter limiter = ADAPTIVE_CONCURRENCY
+                ? limiters.computeIfAbsent(provider + "/" + endpoint, e -> new AdaptiveLimiter(accountLimit(provider)))
+                : null;
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to invoke " + resourceLink);
+        }
+        try {
+            if (limiter != null) {
+                limiter.acquire();
+            }
+        } catch (InterruptedException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to invoke " + resourceLink);
+        }
+        long rtt = -1;
+        boolean throttled = false;
+        try {
+            PairResult<String, Long> result = POOLED_HTTP && isHttpTrigger(resourceLink, provider)
+                    ? post(client(provider), resourceLink, input)
+                    : gateway.invokeFunction(resourceLink, input);
+            rtt = result.getRTT();
+            LatencyHistory.get().record(resourceLink, rtt);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            throttled = AdaptiveLimiter.isThrottling(e);
+            throw e;
+        } finally {
+            if (limiter != null) {
+                limiter.release(resourceLink, rtt, throttled);
+            }
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the concurrency limit of a provider account as recorded in the metadata.
+     *
+     * @param provider the provider.
+     *
+     * @return the concurrency limit or {@link #DEFAULT_CONCURRENCY} if it is not known.
+     */
+    private static int accountLimit(Provider provider) {
+        try {
+            Integer maxConcurrency = MetadataStore.get().getProviderEntry(provider).getMaxConcurrency();
+            if (maxConcurrency != null && maxConcurrency > 0) {
+                return maxConcurrency;
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read the concurrency limit of {}: {}", provider, e.getMessage());
+        }
+        return DEFAULT_CONCURRENCY;
+    }
+
+    /**
+     * Invokes a function by sending its input to the HTTP trigger.
+     *
+     * @param client       the client of the provider.
+     * @param resourceLink the url of the function.
+     * @param input        the input of the function.
+     *
+     * @return the result of the function and its round trip time.
+     *
+     * @throws IOException if the request failed or the function returned an error status.
+     */
+    private PairResult<String, Long> post(HttpClient client, String resourceLink, Map<String, Object> input)
+            throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(resourceLink))
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(DataType.toJsonString(input)))
+                .build();
+        long start = System.currentTimeMillis();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while invoking " + resourceLink);
+        }
+        long rtt = System.currentTimeMillis() - start;
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Invocation of " + resourceLink + " failed with status " + response.statusCode()
+                    + ": " + response.body());
+        }
+        logger.debug("Invoked {} over {} in {}ms.", resourceLink, response.version(), rtt);
+        return new PairResult<>(response.body(), rtt);
+    }
+
+    /**
+     * Returns the client of a provider and creates it on the first call.
+     *
+     * @param provider the provider.
+     *
+     * @return the client.
+     */
+    private HttpClient client(Provider provider) {
+        return clients.computeIfAbsent(provider, p -> HttpClient.newBuilder()
+                .version(HTTP2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build());
+    }
+
+    /**
+     * Checks whether a function can be invoked by posting its input to the resource link.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param provider     the provider of the function.
+     *
+     * @return true if the function has an HTTP trigger not requiring provider credentials.
+     */
+    private static boolean isHttpTrigger(String resourceLink, Provider provider) {
+        return (resourceLink.startsWith("https://") || resourceLink.startsWith("http://"))
+                && provider != Provider.AWS && provider != Provider.IBM;
+    }
+
+    /**
+     * Returns the endpoint used to limit the invocations in flight.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param provider     the provider of the function.
+     *
+     * @return the host of the function or the region for AWS Lambda.
+     */
+    static String endpoint(String resourceLink, Provider provider) {
+        if (provider == Provider.AWS) {
+            return "lambda." + resourceLink.split("lambda:")[1].split(":")[0];
+        }
+        try {
+            String host = URI.create(resourceLink).getHost();
+            return host != null ? host : resourceLink;
+        } catch (IllegalArgumentException e) {
+            return resourceLink;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package at.enactmentengine.serverless.transport;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Round trip times of the recent successful invocations of each function. Used to estimate the latency percentiles
+ * of a function, e.g. to decide when an invocation is considered slow.
+ */
+public final class LatencyHistory {
+
+    /**
+     * The number of recent round trip times kept per function.
+     */
+    public static int WINDOW = 128;
+
+    /**
+     * The number of round trip times needed before percentiles are estimated.
+     */
+    public static int MIN_SAMPLES = 20;
+
+    /**
+     * The single instance of the history.
+     */
+    private static LatencyHistory INSTANCE;
+
+    /**
+     * The round trip times per resource link.
+     */
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    private LatencyHistory() {
+    }
+
+    /**
+     * Returns the latency history and creates it on the first call.
+     *
+     * @return the latency history.
+     */
+    public static synchronized LatencyHistory get() {
+        if (LatencyHistory.INSTANCE == null) {
+            LatencyHistory.INSTANCE = new LatencyHistory();
+        }
+        return LatencyHistory.INSTANCE;
+    }
+
+    /**
+     * Records the round trip time of a successful invocation.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param rtt          the round trip time in milliseconds.
+     */
+    public void record(String resourceLink, long rtt) {
+        samples.computeIfAbsent(resourceLink, r -> new Samples(WINDOW)).add(rtt);
+    }
+
+    /**
+     * Estimates a percentile of the round trip time of a function.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param percentile   the percentile (between 0 and 1).
+     *
+     * @return the round trip time in milliseconds or -1 if there are less than {@link #MIN_SAMPLES} invocations.
+     */
+    public long percentile(String resourceLink, double percentile) {
+        Samples recent = samples.get(resourceLink);
+        return recent != null ? recent.percentile(percentile) : -1;
+    }
+
+    /**
+     * Ring buffer of the recent round trip times of a function.
+     */
+    private static final class Samples {
+        /**
+         * The round trip times.
+         */
+        private final long[] values;
+        /**
+         * The number of recorded round trip times.
+         */
+        private long count;
+
+        private Samples(int window) {
+            values = new long[Math.max(1, window)];
+        }
+
+        private synchronized void add(long rtt) {
+            values[(int) (count++ % values.length)] = rtt;
+        }
+
+        private long percentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                if (count < MIN_SAMPLES) {
+                    return -1;
+                }
+                sorted = Arrays.copyOf(values, (int) Math.min(count, values.length));
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(Math.min(1, Math.max(0, percentile)) * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package at.enactmentengine.serverless.transport;
+
+import at.enactmentengine.serverless.object.DataType;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import jFaaS.utils.PairResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache for the results of deterministic functions. Results are stored per resource link and input (with the members
+ * of json objects sorted, so the order of the inputs does not matter). Invocations with an input that is already
+ * being invoked wait for the running invocation instead of invoking the function again.
+ * <p>
+ * Entries expire after the time to live of the function and the least recently used entries are evicted if the cache
+ * holds more than {@link #MAX_ENTRIES} results. Only successful results are stored.
+ */
+public final class ResultCache {
+
+    /**
+     * Logger for the result cache.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    /**
+     * The maximum number of cached results.
+     */
+    public static int MAX_ENTRIES = 10000;
+
+    /**
+     * The time to live of a result in milliseconds if the function does not specify one.
+     */
+    public static long DEFAULT_TTL = 600000;
+
+    /**
+     * The single instance of the cache.
+     */
+    private static ResultCache INSTANCE;
+
+    /**
+     * The cached and running invocations in the order of their last usage.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * The number of results served from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of invocations which waited for a running invocation with the same input.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * The number of invocations which were not cached.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of evicted results.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ResultCache() {
+    }
+
+    /**
+     * Returns the result cache and creates it on the first call.
+     *
+     * @return the result cache.
+     */
+    public static synchronized ResultCache get() {
+        if (ResultCache.INSTANCE == null) {
+            ResultCache.INSTANCE = new ResultCache();
+        }
+        return ResultCache.INSTANCE;
+    }
+
+    /**
+     * Returns the cached result of a function or invokes the function if there is none.
+     *
+     * @param resourceLink the resource link of the function.
+     * @param input        the input of the function.
+     * @param ttl          the time to live of the result in milliseconds.
+     * @param success      checks whether a result may be cached.
+     * @param invocation   invokes the function.
+     *
+     * @return the result and the time it took to get it.
+     *
+     * @throws IOException          if the invocation failed.
+     * @throws InterruptedException if interrupted while waiting for a running invocation.
+     */
+    public PairResult<String, Long> invoke(String resourceLink, Map<String, Object> input, long ttl,
+                                           Predicate<String> success, Invocation invocation)
+            throws IOException, InterruptedException {
+        String key = resourceLink + '\n' + canonicalize(DataType.toJson(input));
+        long start = System.currentTimeMillis();
+        Entry entry = new Entry();
+        Entry existing;
+        synchronized (entries) {
+            existing = entries.get(key);
+            if (existing != null && existing.isExpired(start)) {
+                entries.remove(key);
+                existing = null;
+            }
+            if (existing == null) {
+                entries.put(key, entry);
+            }
+        }
+
+        if (existing != null) {
+            (existing.result.isDone() ? hits : coalesced).incrementAndGet();
+            logger.debug("Serving result of {} from the cache.", resourceLink);
+            try {
+                String result = existing.result.get();
+                return new PairResult<>(result, System.currentTimeMillis() - start);
+            } catch (ExecutionException e) {
+                /* The running invocation failed, this one fails the same way */
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                        : new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            PairResult<String, Long> result = invocation.invoke();
+            if (result.getResult() != null && success.test(result.getResult())) {
+                entry.expiresAt = System.currentTimeMillis() + ttl;
+            } else {
+                remove(key, entry);
+            }
+            entry.result.complete(result.getResult());
+            return result;
+        } catch (IOException | RuntimeException e) {
+            remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Removes an entry if it was not replaced in the meantime.
+     *
+     * @param key   the key of the entry.
+     * @param entry the entry.
+     */
+    private void remove(String key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Converts a json value to a string with the members of all objects sorted by name.
+     *
+     * @param element the json value.
+     *
+     * @return the canonical string.
+     */
+    static String canonicalize(JsonElement element) {
+        return DataType.toJsonString(sorted(element));
+    }
+
+    /**
+     * Sorts the members of all objects of a json value.
+     *
+     * @param element the json value.
+     *
+     * @return the sorted json value.
+     */
+    private static JsonElement sorted(JsonElement element) {
+        if (element.isJsonObject()) {
+            Map<String, JsonElement> members = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                members.put(member.getKey(), sorted(member.getValue()));
+            }
+            JsonObject object = new JsonObject();
+            for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+                object.add(member.getKey(), member.getValue());
+            }
+            return object;
+        } else if (element.isJsonArray()) {
+            JsonArray array = new JsonArray();
+            for (JsonElement item : element.getAsJsonArray()) {
+                array.add(sorted(item));
+            }
+            return array;
+        }
+        return element;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache[hits=" + hits + ", coalesced=" + coalesced + ", misses=" + misses + ", evictions="
+                + evictions + "]";
+    }
+
+    /** Getter */
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Invocation of a function whose result may be cached.
+     */
+    @FunctionalInterface
+    public interface Invocation {
+        PairResult<String, Long> invoke() throws IOException;
+    }
+
+    /**
+     * A cached or running invocation.
+     */
+    private static final class Entry {
+        /**
+         * The result of the invocation.
+         */
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        /**
+         * The time the result expires ({@link Long#MAX_VALUE} while the invocation is running).
+         */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package at.enactmentengine.serverless.utils;
+
+import at.uibk.dps.databases.MongoDBAccess;
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the log entries of executed and simulated functions and workflows in the background. Entries are put into a
+ * bounded lock-free ring buffer and a single writer thread stores up to {@link #BATCH_SIZE} of them with one bulk write
+ * of {@link MongoDBAccess}, so logging does not delay the completion of a function and no more than the buffer and one
+ * batch are held in memory. If the buffer is full, entries are either waited for or dropped (see {@link #OVERFLOW}).
+ * Batches which cannot be written are appended to {@link #FALLBACK_FILE}.
+ */
+public final class ExecutionLog {
+
+    /**
+     * Logger for the execution log.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLog.class);
+
+    /**
+     * What to do with new entries if the buffer is full.
+     */
+    public enum Overflow {
+        /**
+         * Wait until the writer has made space.
+         */
+        BLOCK,
+        /**
+         * Discard the entry.
+         */
+        DROP
+    }
+
+    /**
+     * Flag that determines whether entries are written in the background.
+     */
+    public static boolean ASYNC = true;
+
+    /**
+     * The number of entries the buffer can hold (rounded up to a power of two, has to be set before the first usage).
+     */
+    public static int CAPACITY = 8192;
+
+    /**
+     * The maximum number of entries written in one batch.
+     */
+    public static int BATCH_SIZE = 256;
+
+    /**
+     * What to do with new entries if the buffer is full.
+     */
+    public static Overflow OVERFLOW = Overflow.BLOCK;
+
+    /**
+     * The file entries are appended to if they cannot be written to the database log.
+     */
+    public static String FALLBACK_FILE = "execution-log-fallback.jsonl";
+
+    /**
+     * The single instance of the execution log.
+     */
+    private static ExecutionLog INSTANCE;
+
+    /**
+     * Converts entries for the fallback file.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The slots of the ring buffer.
+     */
+    private final AtomicReferenceArray<Entry> slots;
+
+    /**
+     * Mask to map a sequence number to its slot.
+     */
+    private final int mask;
+
+    /**
+     * The sequence number of the next entry to add.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The sequence number of the next entry to write (only advanced by the writer).
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The number of dropped entries.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The thread writing the entries.
+     */
+    private final Thread writer;
+
+    /**
+     * Flag if a database is configured (cleared after the first bulk write failed because of a missing configuration).
+     */
+    private boolean database = true;
+
+    /**
+     * Returns the execution log and starts its writer on the first call.
+     *
+     * @return the execution log.
+     */
+    public static synchronized ExecutionLog get() {
+        if (ExecutionLog.INSTANCE == null) {
+            ExecutionLog.INSTANCE = new ExecutionLog(CAPACITY);
+        }
+        return ExecutionLog.INSTANCE;
+    }
+
+    /**
+     * Creates an execution log with the given capacity.
+     *
+     * @param capacity the number of entries the buffer can hold.
+     */
+    private ExecutionLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        writer = new Thread(this::write, "execution-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Logs an event of a function or workflow (see {@link MongoDBAccess#saveLog}).
+     */
+    public static void saveLog(Event event, String resourceLink, String deployment, String name, String type,
+                               String output, long rtt, boolean success, int loopCounter, int maxLoopCounter,
+                               long start, Type executionType) {
+        add(new Entry(event, resourceLink, deployment, name, type, output, rtt, null, success, loopCounter,
+                maxLoopCounter, start, executionType));
+    }
+
+    /**
+     * Logs an event of a function or workflow including its cost (see {@link MongoDBAccess#saveLog}).
+     */
+    public static void saveLog(Event event, String resourceLink, String deployment, String name, String type,
+                               String output, long rtt, double cost, boolean success, int loopCounter,
+                               int maxLoopCounter, long start, Type executionType) {
+        add(new Entry(event, resourceLink, deployment, name, type, output, rtt, cost, success, loopCounter,
+                maxLoopCounter, start, executionType));
+    }
+
+    /**
+     * Waits until all entries added so far are written. Only used before the program ends, since it also waits for the
+     * entries of concurrently running workflows.
+     */
+    public static void flush() {
+        ExecutionLog log;
+        synchronized (ExecutionLog.class) {
+            log = INSTANCE;
+        }
+        if (log == null) {
+            return;
+        }
+        long target = log.tail.get();
+        while (log.head.get() < target) {
+            LockSupport.unpark(log.writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Adds an entry to the log.
+     *
+     * @param entry the entry.
+     */
+    private static void add(Entry entry) {
+        if (!ASYNC) {
+            try {
+                entry.save();
+            } catch (RuntimeException e) {
+                writeFallback(Collections.singletonList(entry), e);
+            }
+            return;
+        }
+        ExecutionLog log = get();
+        if (!log.offer(entry)) {
+            long count = log.dropped.incrementAndGet();
+            if ((count & (count - 1)) == 0) {
+                logger.warn("Execution log is full, dropped {} entries so far.", count);
+            }
+        }
+    }
+
+    /**
+     * Puts an entry into the buffer.
+     *
+     * @param entry the entry.
+     *
+     * @return {@code false} if the entry was dropped.
+     */
+    private boolean offer(Entry entry) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head.get() > mask) {
+
+                /* The buffer is full */
+                if (OVERFLOW == Overflow.DROP) {
+                    return false;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            } else if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), entry);
+                if (sequence == head.get()) {
+                    LockSupport.unpark(writer);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of the buffer in batches until the program ends. The slots of a batch are only given back
+     * after the batch is written, so the entries held in memory never exceed the capacity of the buffer.
+     */
+    private void write() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            long sequence = head.get();
+            while (batch.size() < BATCH_SIZE && sequence < tail.get()) {
+                int slot = (int) (sequence & mask);
+                Entry entry = slots.get(slot);
+                if (entry == null) {
+
+                    /* The entry is reserved but not yet set */
+                    Thread.onSpinWait();
+                    continue;
+                }
+                slots.set(slot, null);
+                batch.add(entry);
+                sequence++;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+            head.set(sequence);
+        }
+    }
+
+    /**
+     * Stores a batch of entries with one bulk write.
+     *
+     * @param batch the entries to store.
+     */
+    private void writeBatch(List<Entry> batch) {
+        if (!database) {
+            return;
+        }
+        try {
+            for (Entry entry : batch) {
+                entry.save();
+            }
+            MongoDBAccess.addAllEntries();
+        } catch (IOException e) {
+            logger.info("No mongoDatabase.properties file found. Logs will not be stored in a database.");
+            database = false;
+        } catch (RuntimeException e) {
+            writeFallback(batch, e);
+        }
+    }
+
+    /**
+     * Appends a batch which could not be written to the fallback file.
+     *
+     * @param batch the entries.
+     * @param e     the cause of the failure.
+     */
+    private static synchronized void writeFallback(List<Entry> batch, RuntimeException e) {
+        logger.warn("Could not write {} execution log entries, appending them to {}: {}", batch.size(), FALLBACK_FILE,
+                e.getMessage());
+        try (Writer file = new FileWriter(FALLBACK_FILE, true)) {
+            for (Entry entry : batch) {
+                file.write(GSON.toJson(entry));
+                file.write(System.lineSeparator());
+            }
+        } catch (IOException io) {
+            logger.error("Could not write execution log entries to {}: {}", FALLBACK_FILE, io.getMessage());
+        }
+    }
+
+    /**
+     * An event of a function or workflow.
+     */
+    private static final class Entry {
+        /**
+         * The logged event.
+         */
+        private final Event event;
+        /**
+         * The resource link of the function.
+         */
+        private final String resourceLink;
+        /**
+         * The deployment of the function.
+         */
+        private final String deployment;
+        /**
+         * The name of the function.
+         */
+        private final String name;
+        /**
+         * The type of the function.
+         */
+        private final String type;
+        /**
+         * The output of the function.
+         */
+        private final String output;
+        /**
+         * The round trip time.
+         */
+        private final long rtt;
+        /**
+         * The cost ({@code null} if not known).
+         */
+        private final Double cost;
+        /**
+         * Whether the function or workflow succeeded.
+         */
+        private final boolean success;
+        /**
+         * The loop counter of the function.
+         */
+        private final int loopCounter;
+        /**
+         * The maximum loop counter of the function.
+         */
+        private final int maxLoopCounter;
+        /**
+         * The start time.
+         */
+        private final long start;
+        /**
+         * Whether the event belongs to an execution or a simulation.
+         */
+        private final Type executionType;
+
+        private Entry(Event event, String resourceLink, String deployment, String name, String type, String output,
+                      long rtt, Double cost, boolean success, int loopCounter, int maxLoopCounter, long start,
+                      Type executionType) {
+            this.event = event;
+            this.resourceLink = resourceLink;
+            this.deployment = deployment;
+            this.name = name;
+            this.type = type;
+            this.output = output;
+            this.rtt = rtt;
+            this.cost = cost;
+            this.success = success;
+            this.loopCounter = loopCounter;
+            this.maxLoopCounter = maxLoopCounter;
+            this.start = start;
+            this.executionType = executionType;
+        }
+
+        /**
+         * Adds the entry to the pending entries of the database log.
+         */
+        private void save() {
+            if (cost == null) {
+                MongoDBAccess.saveLog(event, resourceLink, deployment, name, type, output, rtt, success,
+                        loopCounter, maxLoopCounter, start, executionType);
+            } else {
+                MongoDBAccess.saveLog(event, resourceLink, deployment, name, type, output, rtt, cost, success,
+                        loopCounter, maxLoopCounter, start, executionType);
+            }
+        }
+    }
+}
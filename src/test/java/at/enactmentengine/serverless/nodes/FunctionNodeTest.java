@@ -0,0 +1,42 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FunctionNodeTest {
+
+    /**
+     * Functions with the hedging constraint send hedged requests.
+     */
+    @Test
+    public void hedged() {
+        List<PropertyConstraint> constraints = Arrays.asList(
+                new PropertyConstraint("FT-Hedge", "95"),
+                new PropertyConstraint("FT-Retries", "2"));
+        Assert.assertTrue(functionNode(constraints).isHedged());
+    }
+
+    /**
+     * Hedged requests would bypass the constraints, so functions with constraints are not hedged.
+     */
+    @Test
+    public void constraintsDisableHedging() {
+        for (String constraint : new String[]{"C-latestStartingTime", "C-latestFinishingTime", "C-maxRunningTime"}) {
+            List<PropertyConstraint> constraints = Arrays.asList(
+                    new PropertyConstraint("FT-Hedge", "95"),
+                    new PropertyConstraint(constraint, "C-maxRunningTime".equals(constraint) ? "1000" : "2030-01-01 00:00:00"));
+            Assert.assertFalse(constraint, functionNode(constraints).isHedged());
+        }
+    }
+
+    private static FunctionNode functionNode(List<PropertyConstraint> constraints) {
+        return new FunctionNode("f", "t", null,
+                Collections.singletonList(new PropertyConstraint("resource", "https://example.org/f")),
+                constraints, Collections.emptyList(), Collections.emptyList());
+    }
+}
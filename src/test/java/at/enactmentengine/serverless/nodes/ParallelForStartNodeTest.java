@@ -0,0 +1,103 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.object.ListPair;
+import at.enactmentengine.serverless.scheduler.EngineScheduler;
+import at.enactmentengine.serverless.scheduler.WorkflowScheduler;
+import at.enactmentengine.serverless.simulation.SimulationContext;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+public class ParallelForStartNodeTest {
+
+    /**
+     * The slot of a simulated iteration is only given to the next iteration when all branches of a parallel construct
+     * in the body are finished, not when the parallel start node returns.
+     */
+    @Test(timeout = 30000)
+    public void simulatedIterationsWaitForParallelBody() throws ExecutionException, InterruptedException {
+        LoopCounter loopCounter = new LoopCounter();
+        loopCounter.setFrom("0");
+        loopCounter.setTo("4");
+        loopCounter.setStep("1");
+        ParallelForStartNode loopStart = new ParallelForStartNode("loop", "type", Collections.emptyList(), loopCounter,
+                null, Collections.singletonList(new PropertyConstraint("concurrency", "1")));
+        ParallelForEndNode loopEnd = new ParallelForEndNode("loop", "", Collections.emptyList(), true);
+        ParallelStartNode parallelStart = new ParallelStartNode("parallel", "", null);
+        ParallelEndNode parallelEnd = new ParallelEndNode("parallel", "", null);
+        Map<Integer, Long> starts = new ConcurrentHashMap<>();
+        Node slow = new DelayNode("slow", 100, starts);
+        Node fast = new DelayNode("fast", 50, null);
+        link(loopStart, parallelStart);
+        link(parallelStart, slow);
+        link(parallelStart, fast);
+        link(slow, parallelEnd);
+        link(fast, parallelEnd);
+        link(parallelEnd, loopEnd);
+        WorkflowGraph graph = new WorkflowGraph("loop", new ListPair<>(loopStart, loopEnd), Collections.emptyList());
+
+        SimulationContext simulation = new SimulationContext(1000, 42, false, null);
+        ExecutionFrame frame = new ExecutionFrame(graph.getSize(), -1, simulation);
+        loopStart.passResult(frame, Collections.emptyMap());
+        loopStart.setStartTime(frame, 1000);
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler("loop");
+        scheduler.submit(() -> loopStart.call(frame));
+        scheduler.awaitCompletion();
+
+        Assert.assertEquals(4, starts.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(1000L + i * 100, (long) starts.get(i));
+        }
+        Assert.assertEquals(1400, loopEnd.getStartTime(frame));
+    }
+
+    private static void link(Node parent, Node child) {
+        parent.addChild(child);
+        child.addParent(parent);
+    }
+
+    /**
+     * Simulated node which takes a fixed time and records its start time per iteration.
+     */
+    private static class DelayNode extends Node {
+
+        private final long duration;
+        private final Map<Integer, Long> starts;
+
+        DelayNode(String name, long duration, Map<Integer, Long> starts) {
+            super(name, "test");
+            this.duration = duration;
+            this.starts = starts;
+        }
+
+        @Override
+        public Boolean call(ExecutionFrame frame) throws Exception {
+            long start = getStartTime(frame);
+            if (starts != null) {
+                starts.put(frame.getLoopCounter(), start);
+            }
+            for (Node node : getChildren()) {
+                node.passResult(frame, Collections.emptyMap());
+                node.setStartTime(frame, start + duration);
+                node.call(frame);
+            }
+            return true;
+        }
+
+        @Override
+        public void passResult(ExecutionFrame frame, Map<String, Object> map) {
+            /* The node has no input */
+        }
+
+        @Override
+        public Map<String, Object> getResult(ExecutionFrame frame) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.object.ListPair;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class WorkflowGraphTest {
+
+    /**
+     * The ranks belong to an execution, so executions of the same graph with and without ranks do not interfere.
+     */
+    @Test
+    public void ranksPerExecution() {
+        FunctionNode node = new FunctionNode("f", "t", null,
+                Collections.singletonList(new PropertyConstraint("resource", "https://example.org/f")),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        WorkflowGraph graph = new WorkflowGraph("wf", new ListPair<>(node, node), Collections.emptyList());
+        Map<Node, Long> ranks = new IdentityHashMap<>();
+        ranks.put(node, 42L);
+
+        ExecutionFrame ranked = new ExecutionFrame(graph.getSize(), 1, null, ranks);
+        ExecutionFrame unranked = new ExecutionFrame(graph.getSize(), 2, null);
+        Assert.assertEquals(42, node.getRank(ranked));
+        Assert.assertEquals(0, node.getRank(unranked));
+    }
+
+    /**
+     * The ranks are computed once and shared by the executions until the metadata is refreshed.
+     */
+    @Test
+    public void ranksCachedUntilRefresh() {
+        Node node = new ParallelEndNode("end", "", Collections.emptyList());
+        WorkflowGraph graph = new WorkflowGraph("wf", new ListPair<>(node, node), Collections.emptyList());
+
+        Map<Node, Long> first = graph.rankNodes();
+        Assert.assertSame(first, graph.rankNodes());
+
+        MetadataStore.refreshed();
+        Map<Node, Long> refreshed = graph.rankNodes();
+        Assert.assertNotSame(first, refreshed);
+        Assert.assertEquals(first, refreshed);
+    }
+}
@@ -0,0 +1,55 @@
+package at.enactmentengine.serverless.object;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CollectionViewTest {
+
+    private static JsonArray numbers(int count) {
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            array.add(i);
+        }
+        return array;
+    }
+
+    /**
+     * Ranges and selections refer to the elements of the backing array.
+     */
+    @Test
+    public void viewRangesAndSelections() {
+        CollectionView view = CollectionView.of(numbers(10));
+
+        CollectionView range = view.subList(2, 8);
+        Assert.assertEquals(6, range.size());
+        Assert.assertEquals(2, range.get(0).getAsInt());
+
+        CollectionView selection = range.select(Arrays.asList(5, 0, 3));
+        Assert.assertEquals(3, selection.size());
+        Assert.assertEquals(7, selection.get(0).getAsInt());
+        Assert.assertEquals(5, selection.subList(1, 3).get(1).getAsInt());
+    }
+
+    /**
+     * A view is serialized like the json array of its elements.
+     */
+    @Test
+    public void serializeAsJsonArray() {
+        CollectionView view = CollectionView.of(numbers(5)).subList(1, 4);
+
+        Assert.assertEquals("[1,2,3]", new Gson().toJson(view));
+        Assert.assertEquals(view.toJsonArray(), CollectionView.toJsonArray(view));
+    }
+
+    /**
+     * Indices outside of the view are rejected.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectIndexOutsideOfView() {
+        CollectionView.of(numbers(5)).subList(0, 2).get(2);
+    }
+}
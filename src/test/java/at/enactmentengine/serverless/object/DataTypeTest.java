@@ -0,0 +1,49 @@
+package at.enactmentengine.serverless.object;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DataTypeTest {
+
+    /**
+     * Json values are converted to the representation of their type, null values are kept.
+     */
+    @Test
+    public void convertJsonValues() {
+        Assert.assertEquals(2.5, DataType.of("number").fromJson(new JsonPrimitive(2.5)));
+        Assert.assertEquals("text", DataType.of("string").fromJson(new JsonPrimitive("text")));
+        Assert.assertEquals(true, DataType.of("bool").fromJson(new JsonPrimitive(true)));
+        Assert.assertTrue(DataType.of("collection").fromJson(new JsonParser().parse("[1, 2]")) instanceof JsonArray);
+        Assert.assertEquals(JsonNull.INSTANCE, DataType.of("number").fromJson(JsonNull.INSTANCE));
+        Assert.assertNull(DataType.of("unknown"));
+    }
+
+    /**
+     * Constant values are only supported for number, string and bool.
+     */
+    @Test
+    public void convertConstantValues() {
+        Assert.assertEquals(3.0, DataType.NUMBER.fromConstant("3"));
+        Assert.assertEquals(false, DataType.BOOL.fromConstant("false"));
+        try {
+            DataType.COLLECTION.fromConstant("[]");
+            Assert.fail("Constant collection was converted");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertTrue(e.getMessage().contains("collection"));
+        }
+    }
+
+    /**
+     * Values passed between nodes are converted back to json.
+     */
+    @Test
+    public void convertToJson() {
+        Assert.assertEquals(new JsonPrimitive(1.0), DataType.toJson(1.0));
+        Assert.assertEquals(new JsonPrimitive("a"), DataType.toJson("a"));
+        Assert.assertEquals("[1]", DataType.toJsonString(CollectionView.of(new JsonParser().parse("[1]").getAsJsonArray())));
+    }
+}
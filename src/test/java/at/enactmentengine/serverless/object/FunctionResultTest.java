@@ -0,0 +1,46 @@
+package at.enactmentengine.serverless.object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FunctionResultTest {
+
+    /**
+     * Only the declared outputs are kept, numbers and nested values are read like with Gson.
+     */
+    @Test
+    public void keepDeclaredOutputs() {
+        FunctionResult result = FunctionResult.parse(
+                "{\"sum\": 3, \"list\": [1, {\"a\": true}], \"ignored\": {\"big\": [1, 2, 3]}}",
+                Arrays.asList("sum", "list"));
+
+        Assert.assertEquals(3.0, result.get("sum").getAsDouble(), 0.0);
+        Assert.assertEquals("[1,{\"a\":true}]", result.get("list").toString());
+        Assert.assertNull(result.get("ignored"));
+        Assert.assertFalse(result.isError());
+    }
+
+    /**
+     * Error markers are detected in skipped values as well.
+     */
+    @Test
+    public void detectErrors() {
+        Assert.assertTrue(FunctionResult.parse("{\"out\": 1, \"error\": \"timeout\"}", Collections.singletonList("out")).isError());
+        Assert.assertTrue(FunctionResult.parse("{\"x\": {\"msg\": \"error: failed\"}}", Collections.emptyList()).isError());
+        Assert.assertFalse(FunctionResult.parse("{\"errors\": 0}", Collections.emptyList()).isError());
+    }
+
+    /**
+     * A result which is no json object is the value of every output.
+     */
+    @Test
+    public void useResultWithoutJsonObject() {
+        FunctionResult result = FunctionResult.parse("plain text result", Collections.singletonList("out"));
+
+        Assert.assertEquals("plain text result", result.get("out").getAsString());
+        Assert.assertFalse(result.isError());
+    }
+}
@@ -0,0 +1,65 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.Workflow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class WorkflowPlanCacheTest {
+
+    /**
+     * Plans of the same workflow are only parsed once.
+     */
+    @Test
+    public void reusePlanOfSameWorkflow() throws IOException {
+        WorkflowPlanCache cache = new WorkflowPlanCache(2);
+        WorkflowPlan first = cache.getPlan("a", Workflow::new);
+        WorkflowPlan second = cache.getPlan("a", () -> {
+            throw new IOException("Workflow parsed twice");
+        });
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * The least recently used plan is evicted if the cache is full.
+     */
+    @Test
+    public void evictLeastRecentlyUsedPlan() throws IOException {
+        WorkflowPlanCache cache = new WorkflowPlanCache(2);
+        WorkflowPlan a = cache.getPlan("a", Workflow::new);
+        WorkflowPlan b = cache.getPlan("b", Workflow::new);
+        cache.getPlan("a", Workflow::new);
+        cache.getPlan("c", Workflow::new);
+
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertSame(a, cache.getPlan("a", Workflow::new));
+        Assert.assertNotSame(b, cache.getPlan("b", Workflow::new));
+    }
+
+    /**
+     * Files which do not contain a workflow are not cached.
+     */
+    @Test
+    public void doNotCacheMissingWorkflow() throws IOException {
+        WorkflowPlanCache cache = new WorkflowPlanCache(2);
+
+        Assert.assertNull(cache.getPlan("a", () -> null));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * The hash depends on the content and the language of the file.
+     */
+    @Test
+    public void hashContentAndLanguage() {
+        byte[] content = "name: test".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(WorkflowPlanCache.hash(content, Language.YAML), WorkflowPlanCache.hash(content.clone(), Language.YAML));
+        Assert.assertNotEquals(WorkflowPlanCache.hash(content, Language.YAML), WorkflowPlanCache.hash(content, Language.JSON));
+    }
+}
@@ -0,0 +1,56 @@
+package at.enactmentengine.serverless.payload;
+
+import com.google.gson.JsonArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PayloadStoreTest {
+
+    private int threshold;
+
+    @Before
+    public void setUp() throws IOException {
+        threshold = PayloadStore.THRESHOLD;
+        PayloadStore.THRESHOLD = 10;
+        PayloadStore.use(new LocalBlobStore());
+    }
+
+    @After
+    public void tearDown() {
+        PayloadStore.THRESHOLD = threshold;
+    }
+
+    /**
+     * Large values are replaced by handles and read again as the same value, small values are kept.
+     */
+    @Test
+    public void offloadLargeValues() throws IOException {
+        JsonArray collection = new JsonArray();
+        for (int i = 0; i < 10; i++) {
+            collection.add(i);
+        }
+        Map<String, Object> values = new HashMap<>();
+        values.put("f/collection", collection);
+        values.put("f/text", "a rather long string value");
+        values.put("f/small", "short");
+        values.put("f/number", 12345678901.0);
+
+        PayloadStore.get().offload(values);
+
+        Assert.assertTrue(values.get("f/collection") instanceof PayloadRef);
+        Assert.assertTrue(values.get("f/text") instanceof PayloadRef);
+        Assert.assertEquals("short", values.get("f/small"));
+        Assert.assertEquals(12345678901.0, values.get("f/number"));
+
+        PayloadStore.resolveAll(values);
+
+        Assert.assertEquals(collection, values.get("f/collection"));
+        Assert.assertEquals("a rather long string value", values.get("f/text"));
+    }
+}
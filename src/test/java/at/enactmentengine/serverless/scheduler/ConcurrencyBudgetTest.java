@@ -0,0 +1,80 @@
+package at.enactmentengine.serverless.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConcurrencyBudgetTest {
+
+    /**
+     * Waiting tasks are started by priority, tasks of the same priority in the order of their submission.
+     */
+    @Test
+    public void startWaitingTasksByPriority() {
+        ConcurrencyBudget budget = new ConcurrencyBudget(Runnable::run, 1);
+        List<String> started = new ArrayList<>();
+
+        budget.admit(() -> started.add("occupied"));
+        budget.execute(() -> started.add("a1"), 1);
+        budget.execute(() -> started.add("b5"), 5);
+        budget.execute(() -> started.add("c0"));
+        budget.execute(() -> started.add("d5"), 5);
+        Assert.assertEquals(4, budget.getWaiting());
+
+        budget.release();
+
+        Assert.assertEquals(Arrays.asList("occupied", "b5", "d5", "a1", "c0"), started);
+        Assert.assertEquals(0, budget.getActive());
+    }
+
+    /**
+     * Tasks of several budgets sharing a budget are started by priority across the budgets, and nested slots are
+     * occupied and given back in all budgets.
+     */
+    @Test
+    public void startWaitingTasksByPriorityAcrossBudgets() {
+        ConcurrencyBudget shared = new ConcurrencyBudget(Runnable::run, 1);
+        ConcurrencyBudget first = new ConcurrencyBudget(shared, 2);
+        ConcurrencyBudget second = new ConcurrencyBudget(shared, 1);
+        List<String> started = new ArrayList<>();
+
+        first.admitNested(() -> started.add("occupied"), 0);
+        first.execute(() -> started.add("first1"), 1);
+        second.execute(() -> started.add("second5"), 5);
+        second.execute(() -> started.add("second0"));
+        Assert.assertEquals(2, first.getActive());
+        Assert.assertEquals(2, shared.getWaiting());
+        Assert.assertEquals(1, second.getWaiting());
+
+        first.releaseNested();
+
+        Assert.assertEquals(Arrays.asList("occupied", "second5", "first1", "second0"), started);
+        Assert.assertEquals(0, shared.getActive());
+        Assert.assertEquals(0, first.getActive());
+        Assert.assertEquals(0, second.getActive());
+    }
+
+    /**
+     * Slots occupied beyond the limit by resumed tasks are not passed on to waiting tasks.
+     */
+    @Test
+    public void doNotPassOnSlotsBeyondLimit() {
+        ConcurrencyBudget budget = new ConcurrencyBudget(Runnable::run, 1);
+        List<String> started = new ArrayList<>();
+
+        budget.admit(() -> started.add("occupied"));
+        budget.reacquire();
+        budget.execute(() -> started.add("waiting"));
+
+        budget.release();
+        Assert.assertEquals(Arrays.asList("occupied"), started);
+        Assert.assertEquals(1, budget.getActive());
+
+        budget.release();
+        Assert.assertEquals(Arrays.asList("occupied", "waiting"), started);
+        Assert.assertEquals(0, budget.getActive());
+    }
+}
@@ -0,0 +1,176 @@
+package at.enactmentengine.serverless.scheduler;
+
+import at.enactmentengine.serverless.nodes.ExecutionFrame;
+import at.enactmentengine.serverless.nodes.Node;
+import at.enactmentengine.serverless.nodes.ParallelForEndNode;
+import at.enactmentengine.serverless.nodes.ParallelForStartNode;
+import at.enactmentengine.serverless.nodes.WorkflowGraph;
+import at.enactmentengine.serverless.object.ListPair;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkflowSchedulerTest {
+
+    /**
+     * Streamed tasks are all executed, but never more than the window at the same time.
+     */
+    @Test
+    public void streamTasksWithinWindow() throws ExecutionException, InterruptedException {
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler("stream");
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger executed = new AtomicInteger();
+
+        Future<Void> stream = scheduler.stream(500, 4, i -> () -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            active.decrementAndGet();
+            return executed.incrementAndGet();
+        });
+        scheduler.await(stream);
+
+        Assert.assertEquals(500, executed.get());
+        Assert.assertTrue(maxActive.get() <= 4);
+    }
+
+    /**
+     * No further tasks are started after a task failed.
+     */
+    @Test
+    public void stopStreamOnFailure() throws InterruptedException {
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler("failure");
+        AtomicInteger started = new AtomicInteger();
+
+        Future<Void> stream = scheduler.stream(1000, 1, i -> () -> {
+            started.incrementAndGet();
+            if (i == 3) {
+                throw new IllegalStateException("failed iteration");
+            }
+            return true;
+        });
+        try {
+            scheduler.await(stream);
+            Assert.fail("Failure was not reported");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("failed iteration", e.getCause().getMessage());
+        }
+        Assert.assertEquals(4, started.get());
+    }
+
+    /**
+     * An asynchronous operation holds its slot of the budget until it completes.
+     */
+    @Test
+    public void asyncOperationHoldsSlot() throws ExecutionException, InterruptedException {
+        WorkflowScheduler scheduler = new WorkflowScheduler("async", EngineScheduler.get().getPool(), 1);
+        CompletableFuture<String> operation = new CompletableFuture<>();
+        CompletableFuture<String> continued = new CompletableFuture<>();
+
+        scheduler.startAsync(() -> operation, continued::complete, 0);
+        Future<Boolean> task = scheduler.submit(() -> true);
+        Thread.sleep(50);
+        Assert.assertFalse(task.isDone());
+
+        operation.complete("done");
+        Assert.assertTrue(scheduler.await(task));
+        Assert.assertEquals("done", continued.get());
+        scheduler.awaitCompletion();
+    }
+
+    /**
+     * A stream without tasks is finished immediately.
+     */
+    @Test
+    public void finishEmptyStream() {
+        WorkflowScheduler scheduler = EngineScheduler.get().newWorkflowScheduler("empty");
+
+        Assert.assertTrue(scheduler.stream(0, 10, i -> () -> true).isDone());
+    }
+
+    /**
+     * The start nodes of loops do not occupy a thread until their iterations are finished, so nested loops with more
+     * outer iterations than threads in the pool still finish.
+     */
+    @Test(timeout = 30000)
+    public void nestedLoopsOnBoundedPool() throws ExecutionException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true,
+                0, 4, 1, p -> true, 60, TimeUnit.SECONDS);
+        WorkflowScheduler scheduler = new WorkflowScheduler("nested", pool, 1000);
+        AtomicInteger executed = new AtomicInteger();
+
+        ParallelForStartNode outerStart = loopStart("outer", 50);
+        ParallelForEndNode outerEnd = new ParallelForEndNode("outer", "", Collections.emptyList(), false);
+        ParallelForStartNode innerStart = loopStart("inner", 4);
+        ParallelForEndNode innerEnd = new ParallelForEndNode("inner", "", Collections.emptyList(), false);
+        Node body = new BodyNode(executed);
+        link(outerStart, innerStart);
+        link(innerStart, body);
+        link(body, innerEnd);
+        link(innerEnd, outerEnd);
+        WorkflowGraph graph = new WorkflowGraph("nested", new ListPair<>(outerStart, outerEnd), Collections.emptyList());
+
+        ExecutionFrame frame = new ExecutionFrame(graph.getSize(), -1);
+        outerStart.passResult(frame, Collections.emptyMap());
+        scheduler.submit(() -> outerStart.call(frame));
+        scheduler.awaitCompletion();
+
+        Assert.assertEquals(200, executed.get());
+        pool.shutdown();
+    }
+
+    private static ParallelForStartNode loopStart(String name, int iterations) {
+        LoopCounter loopCounter = new LoopCounter();
+        loopCounter.setFrom("0");
+        loopCounter.setTo(String.valueOf(iterations));
+        loopCounter.setStep("1");
+        return new ParallelForStartNode(name, "type", Collections.emptyList(), loopCounter, null, null);
+    }
+
+    private static void link(Node parent, Node child) {
+        parent.addChild(child);
+        child.addParent(parent);
+    }
+
+    /**
+     * Body of a loop which counts its executions and passes an empty result to its children.
+     */
+    private static class BodyNode extends Node {
+
+        private final AtomicInteger executed;
+
+        BodyNode(AtomicInteger executed) {
+            super("body", "test");
+            this.executed = executed;
+        }
+
+        @Override
+        public Boolean call(ExecutionFrame frame) throws Exception {
+            executed.incrementAndGet();
+            for (Node node : getChildren()) {
+                node.passResult(frame, Collections.emptyMap());
+                node.call(frame);
+            }
+            return true;
+        }
+
+        @Override
+        public void passResult(ExecutionFrame frame, Map<String, Object> map) {
+            /* The body has no input */
+        }
+
+        @Override
+        public Map<String, Object> getResult(ExecutionFrame frame) {
+            return null;
+        }
+    }
+}
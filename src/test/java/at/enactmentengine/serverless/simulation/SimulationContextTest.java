@@ -0,0 +1,56 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulationContextTest {
+
+    /**
+     * The streams of random numbers only depend on the seed and on the key.
+     */
+    @Test
+    public void streams() {
+        Assert.assertEquals(SimulationContext.seed(42, 3), SimulationContext.seed(42, 3));
+        Assert.assertNotEquals(SimulationContext.seed(42, 3), SimulationContext.seed(42, 4));
+        Assert.assertNotEquals(SimulationContext.seed(42, 3), SimulationContext.seed(43, 3));
+        Assert.assertEquals(SimulationContext.uniform(7, 1), SimulationContext.uniform(7, 1), 0);
+        Assert.assertNotEquals(SimulationContext.uniform(7, 1), SimulationContext.uniform(7, 2), 0);
+    }
+
+    /**
+     * The draws of a stream follow their distributions.
+     */
+    @Test
+    public void distributions() {
+        int n = 100_000;
+        double uniformSum = 0;
+        double gaussianSum = 0;
+        double gaussianSquares = 0;
+        for (int i = 0; i < n; i++) {
+            double uniform = SimulationContext.uniform(42, i);
+            Assert.assertTrue(uniform >= 0 && uniform < 1);
+            uniformSum += uniform;
+            double gaussian = SimulationContext.gaussian(42, 2L * i);
+            gaussianSum += gaussian;
+            gaussianSquares += gaussian * gaussian;
+        }
+        Assert.assertEquals(0.5, uniformSum / n, 0.01);
+        Assert.assertEquals(0, gaussianSum / n, 0.02);
+        Assert.assertEquals(1, gaussianSquares / n, 0.02);
+    }
+
+    /**
+     * The cost of a run does not depend on the order in which the costs of the functions are added.
+     */
+    @Test
+    public void exactCost() {
+        SimulationContext forward = new SimulationContext(0, 1, false, null);
+        SimulationContext backward = new SimulationContext(0, 1, false, null);
+        double[] costs = {1e16, 0.1, -1e16, 2.5e-7, 3.3};
+        for (int i = 0; i < costs.length; i++) {
+            forward.addCost(costs[i]);
+            backward.addCost(costs[costs.length - 1 - i]);
+        }
+        Assert.assertEquals(Double.doubleToLongBits(forward.getCost()), Double.doubleToLongBits(backward.getCost()));
+    }
+}
@@ -0,0 +1,70 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class SimulationKernelTest {
+
+    /**
+     * Iterations exceeding the concurrency start as soon as the earliest running iteration is finished.
+     */
+    @Test
+    public void slots() {
+        SimulationKernel kernel = new SimulationKernel(2);
+        Assert.assertEquals(100, (long) kernel.start(0, 100).join());
+        Assert.assertEquals(100, (long) kernel.start(1, 100).join());
+        CompletableFuture<Long> third = kernel.start(2, 100);
+        CompletableFuture<Long> fourth = kernel.start(3, 100);
+
+        /* The iterations only get a slot once the ends of all previous iterations are known */
+        kernel.finish(1, 150);
+        kernel.release(1);
+        Assert.assertFalse(third.isDone());
+        kernel.finish(0, 300);
+        kernel.release(0);
+        Assert.assertEquals(150, (long) third.join());
+        Assert.assertFalse(fourth.isDone());
+
+        kernel.finish(2, 200);
+        kernel.release(2);
+        Assert.assertEquals(200, (long) fourth.join());
+    }
+
+    /**
+     * The start times do not depend on the order in which the iterations are started and finished.
+     */
+    @Test
+    public void deterministic() {
+        long[] durations = {30, 10, 50, 20, 40, 10};
+        long[] expected = {0, 0, 10, 30, 50, 60};
+
+        SimulationKernel kernel = new SimulationKernel(2);
+        long[] starts = new long[durations.length];
+        for (int i = durations.length - 1; i >= 0; i--) {
+            int iteration = i;
+            kernel.start(iteration, 0).thenAccept(start -> {
+                starts[iteration] = start;
+                kernel.finish(iteration, start + durations[iteration]);
+                kernel.release(iteration);
+            });
+        }
+        Assert.assertArrayEquals(expected, starts);
+    }
+
+    /**
+     * All callers within an iteration get the same start time.
+     */
+    @Test
+    public void sharedStart() {
+        SimulationKernel kernel = new SimulationKernel(1);
+        kernel.start(0, 10);
+        kernel.finish(0, 40);
+        CompletableFuture<Long> first = kernel.start(1, 10);
+        CompletableFuture<Long> second = kernel.start(1, 20);
+        kernel.release(0);
+        Assert.assertEquals(40, (long) first.join());
+        Assert.assertEquals(40, (long) second.join());
+    }
+}
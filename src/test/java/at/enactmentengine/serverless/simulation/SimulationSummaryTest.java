@@ -0,0 +1,48 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulationSummaryTest {
+
+    /**
+     * Percentiles use the nearest rank of the sorted sample.
+     */
+    @Test
+    public void percentiles() {
+        double[] sample = new double[100];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = 100 - i;
+        }
+        SimulationSummary.Distribution distribution = new SimulationSummary.Distribution(sample);
+        Assert.assertEquals(50, distribution.getPercentile(50), 0);
+        Assert.assertEquals(95, distribution.getPercentile(95), 0);
+        Assert.assertEquals(99, distribution.getPercentile(99), 0);
+        Assert.assertEquals(1, distribution.getMin(), 0);
+        Assert.assertEquals(100, distribution.getMax(), 0);
+        Assert.assertEquals(50.5, distribution.getMean(), 1e-9);
+    }
+
+    /**
+     * The confidence interval of the mean shrinks with the square root of the sample size.
+     */
+    @Test
+    public void confidenceInterval() {
+        SimulationSummary.Distribution distribution = new SimulationSummary.Distribution(new double[]{2, 4, 4, 4, 5, 5, 7, 9});
+        Assert.assertEquals(5, distribution.getMean(), 1e-9);
+        Assert.assertEquals(Math.sqrt(32.0 / 7), distribution.getStandardDeviation(), 1e-9);
+        Assert.assertEquals(1.96 * Math.sqrt(32.0 / 7) / Math.sqrt(8), distribution.getConfidenceInterval(), 1e-9);
+    }
+
+    /**
+     * Failed replicas are counted but not part of the distributions.
+     */
+    @Test
+    public void failures() {
+        SimulationSummary summary = new SimulationSummary(3, new double[]{100}, new double[]{0.5});
+        Assert.assertEquals(2, summary.getFailures());
+        Assert.assertEquals(1, summary.getMakespan().getSize());
+        Assert.assertEquals(0, summary.getCost().getStandardDeviation(), 0);
+        Assert.assertTrue(Double.isNaN(new SimulationSummary.Distribution(new double[0]).getMean()));
+    }
+}
@@ -0,0 +1,77 @@
+package at.enactmentengine.serverless.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class AdaptiveLimiterTest {
+
+    /**
+     * Throttling decreases the limit once per round of invocations, successful invocations increase it again up to
+     * the limit of the provider.
+     */
+    @Test
+    public void additiveIncreaseMultiplicativeDecrease() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(100);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.release("f", -1, true);
+        }
+        Assert.assertEquals(90, limiter.getLimit());
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 60; i++) {
+                limiter.acquire();
+            }
+            for (int i = 0; i < 60; i++) {
+                limiter.release("f", 100, false);
+            }
+        }
+        Assert.assertEquals(100, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * A growing round trip time is treated like throttling.
+     */
+    @Test
+    public void latencyDecreasesLimit() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release("f", i == 0 ? 100 : 1000, false);
+        }
+        Assert.assertTrue(limiter.getLimit() < 10);
+    }
+
+    /**
+     * Round trip times varying by more than the tolerance (e.g. depending on the input) do not collapse the limit.
+     */
+    @Test
+    public void varyingLatency() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(50);
+        int lowest = limiter.getLimit();
+        for (int round = 0; round < 100; round++) {
+            int invocations = limiter.getLimit();
+            for (int i = 0; i < invocations; i++) {
+                limiter.acquire();
+            }
+            for (int i = 0; i < invocations; i++) {
+                limiter.release("f", round == 0 && i == 0 ? 1 : i % 3 == 0 ? 400 : 60, false);
+            }
+            lowest = Math.min(lowest, limiter.getLimit());
+        }
+        Assert.assertTrue("limit dropped to " + lowest, lowest > 1);
+        Assert.assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    public void throttlingErrors() {
+        Assert.assertTrue(AdaptiveLimiter.isThrottling(new IOException("Invocation failed with status 429: slow down")));
+        Assert.assertTrue(AdaptiveLimiter.isThrottling(new RuntimeException(new IOException("Rate Exceeded."))));
+        Assert.assertFalse(AdaptiveLimiter.isThrottling(new IOException("Connection reset")));
+    }
+}
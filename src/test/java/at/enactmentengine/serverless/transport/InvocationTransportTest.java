@@ -0,0 +1,21 @@
+package at.enactmentengine.serverless.transport;
+
+import at.uibk.dps.util.Provider;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InvocationTransportTest {
+
+    /**
+     * Invocations are limited per host, AWS Lambda functions per region.
+     */
+    @Test
+    public void endpoints() {
+        Assert.assertEquals("lambda.us-east-1", InvocationTransport.endpoint(
+                "arn:aws:lambda:us-east-1:123456789012:function:hello", Provider.AWS));
+        Assert.assertEquals("europe-west1-project.cloudfunctions.net", InvocationTransport.endpoint(
+                "https://europe-west1-project.cloudfunctions.net/hello", Provider.GOOGLE));
+        Assert.assertEquals("app.azurewebsites.net", InvocationTransport.endpoint(
+                "https://app.azurewebsites.net/api/hello?code=abc", Provider.AZURE));
+    }
+}
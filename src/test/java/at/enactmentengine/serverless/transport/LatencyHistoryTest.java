@@ -0,0 +1,27 @@
+package at.enactmentengine.serverless.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistoryTest {
+
+    /**
+     * Percentiles are estimated from the recent round trip times once enough of them are known.
+     */
+    @Test
+    public void percentiles() {
+        LatencyHistory history = LatencyHistory.get();
+        String function = "https://example.org/percentiles";
+        for (int i = 1; i < LatencyHistory.MIN_SAMPLES; i++) {
+            history.record(function, i);
+        }
+        Assert.assertEquals(-1, history.percentile(function, 0.5));
+
+        for (int i = LatencyHistory.MIN_SAMPLES; i <= 100; i++) {
+            history.record(function, i);
+        }
+        Assert.assertEquals(50, history.percentile(function, 0.5));
+        Assert.assertEquals(95, history.percentile(function, 0.95));
+        Assert.assertEquals(100, history.percentile(function, 1));
+    }
+}
@@ -0,0 +1,89 @@
+package at.enactmentengine.serverless.transport;
+
+import com.google.gson.JsonParser;
+import jFaaS.utils.PairResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResultCacheTest {
+
+    private ResultCache cache;
+
+    @Before
+    public void setUp() {
+        cache = ResultCache.get();
+        cache.clear();
+    }
+
+    /**
+     * The order of object members does not change the key.
+     */
+    @Test
+    public void canonicalInput() {
+        Assert.assertEquals(
+                ResultCache.canonicalize(new JsonParser().parse("{\"b\":[{\"y\":1,\"x\":2}],\"a\":\"s\"}")),
+                ResultCache.canonicalize(new JsonParser().parse("{\"a\":\"s\",\"b\":[{\"x\":2,\"y\":1}]}")));
+    }
+
+    /**
+     * Concurrent invocations with the same input invoke the function once, failed results are not cached.
+     */
+    @Test
+    public void coalesceAndCache() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("n", 1);
+        input.put("s", "x");
+        Map<String, Object> reordered = new HashMap<>();
+        reordered.put("s", "x");
+        reordered.put("n", 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?>[] futures = new Future<?>[4];
+        for (int i = 0; i < futures.length; i++) {
+            Map<String, Object> values = i % 2 == 0 ? input : reordered;
+            futures[i] = executor.submit(() -> cache.invoke("f", values, 60000, r -> true, () -> {
+                invocations.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return new PairResult<>("{\"r\":1}", 10L);
+            }));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<?> future : futures) {
+            Assert.assertEquals("{\"r\":1}", ((PairResult<?, ?>) future.get(10, TimeUnit.SECONDS)).getResult());
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, invocations.get());
+
+        cache.invoke("f", input, 60000, r -> true, () -> {
+            throw new IOException("not cached");
+        });
+        Assert.assertEquals(1, invocations.get());
+
+        for (int i = 0; i < 2; i++) {
+            cache.invoke("g", input, 60000, r -> false, () -> {
+                invocations.incrementAndGet();
+                return new PairResult<>("{\"error\":\"e\"}", 10L);
+            });
+        }
+        Assert.assertEquals(3, invocations.get());
+    }
+}